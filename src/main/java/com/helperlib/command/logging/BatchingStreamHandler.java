@@ -0,0 +1,364 @@
+package com.helperlib.command.logging;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.core.command.CommandExecutorService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StreamHandler adapter that decouples a chatty process from a slow consumer (e.g. a UI) with bounded memory.
+ * Output is coalesced into chunks of up to {@code maxChunkBytes}, flushed when a chunk is full (cut at the
+ * last newline) or when its oldest byte has waited {@code flushInterval}, and passed to the wrapped handler
+ * through a queue of at most {@code queueCapacity} chunks. Memory per stream is therefore bounded by
+ * {@code (queueCapacity + 1) * maxChunkBytes}; what happens when the queue is full is chosen by
+ * {@link StreamOverflowPolicy}.
+ */
+public class BatchingStreamHandler implements StreamHandler {
+
+    public static final int DEFAULT_MAX_CHUNK_BYTES = 64 * 1024;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+    public static final int DEFAULT_QUEUE_CAPACITY = 32;
+    public static final int DEFAULT_SAMPLE_EVERY = 10;
+
+    // Identity-compared marker; never handed to the wrapped handler
+    private static final byte[] END_OF_STREAM = new byte[0];
+    private static final long OFFER_RETRY_MS = 100;
+
+    private final StreamHandler delegate;
+    private final int maxChunkBytes;
+    private final Duration flushInterval;
+    private final int queueCapacity;
+    private final StreamOverflowPolicy overflowPolicy;
+    private final int sampleEvery;
+
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesDelivered = new LongAdder();
+    private final LongAdder chunksDelivered = new LongAdder();
+    private final LongAdder droppedChunks = new LongAdder();
+    private final LongAdder droppedLines = new LongAdder();
+    private final LongAdder droppedBytes = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public BatchingStreamHandler(StreamHandler delegate) {
+        this(delegate, DEFAULT_MAX_CHUNK_BYTES, DEFAULT_FLUSH_INTERVAL, DEFAULT_QUEUE_CAPACITY,
+                StreamOverflowPolicy.BLOCK, DEFAULT_SAMPLE_EVERY);
+    }
+
+    public BatchingStreamHandler(StreamHandler delegate, StreamOverflowPolicy overflowPolicy) {
+        this(delegate, DEFAULT_MAX_CHUNK_BYTES, DEFAULT_FLUSH_INTERVAL, DEFAULT_QUEUE_CAPACITY,
+                overflowPolicy, DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * @param delegate       handler receiving the coalesced output
+     * @param maxChunkBytes  size at which a chunk is flushed
+     * @param flushInterval  maximum time a byte waits in a partially filled chunk
+     * @param queueCapacity  maximum number of chunks waiting for the delegate
+     * @param overflowPolicy behaviour when the queue is full
+     * @param sampleEvery    N for {@link StreamOverflowPolicy#SAMPLE}: keep one line in N
+     */
+    public BatchingStreamHandler(StreamHandler delegate,
+                                 int maxChunkBytes,
+                                 Duration flushInterval,
+                                 int queueCapacity,
+                                 StreamOverflowPolicy overflowPolicy,
+                                 int sampleEvery) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.flushInterval = Objects.requireNonNull(flushInterval, "flushInterval");
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        if (maxChunkBytes <= 0 || queueCapacity <= 0 || sampleEvery <= 0) {
+            throw new IllegalArgumentException("maxChunkBytes, queueCapacity and sampleEvery must be positive");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive");
+        }
+        this.maxChunkBytes = maxChunkBytes;
+        this.queueCapacity = queueCapacity;
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public CompletableFuture<Void> handleStream(InputStream inputStream, String streamType, String commandName) {
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ChunkInputStream consumerSide = new ChunkInputStream(queue);
+        Batch batch = new Batch(queue, consumerSide);
+
+        // Start the producer first: the delegate may consume synchronously before returning its future
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(
+                () -> pump(inputStream, batch), CommandExecutorService.getVirtualThreadExecutor());
+        CompletableFuture<Void> consumer = delegate.handleStream(consumerSide, streamType, commandName);
+
+        return CompletableFuture.allOf(producer, consumer);
+    }
+
+    /**
+     * @return throughput and drop counters accumulated over all streams handled so far
+     */
+    public StreamThroughputStatistics getStatistics() {
+        double seconds = Math.max((System.nanoTime() - createdNanos) / 1_000_000_000.0, 1e-9);
+        long in = bytesIn.sum();
+        long chunks = chunksDelivered.sum();
+        return new StreamThroughputStatistics(
+                in,
+                bytesDelivered.sum(),
+                chunks,
+                droppedChunks.sum(),
+                droppedLines.sum(),
+                droppedBytes.sum(),
+                maxQueueDepth.get(),
+                in / seconds,
+                chunks / seconds
+        );
+    }
+
+    private void pump(InputStream source, Batch batch) {
+        // Time-based flushing, so a slow trickle of output is not held back until a chunk fills up
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (batch.isOpen()) {
+                    Thread.sleep(flushInterval);
+                    batch.flushIfStale();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        byte[] buffer = new byte[8192];
+        try (source) {
+            int n;
+            while ((n = source.read(buffer)) != -1) {
+                bytesIn.add(n);
+                batch.append(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading stream: " + e.getMessage(), e);
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Accumulates source bytes into one chunk and hands full or stale chunks to the queue.
+     */
+    private final class Batch {
+        private final BlockingQueue<byte[]> queue;
+        private final ChunkInputStream consumer;
+        private final byte[] buffer = new byte[maxChunkBytes];
+        private int size;
+        private long oldestByteNanos;
+        private long sampledLineCounter;
+        private volatile boolean open = true;
+
+        Batch(BlockingQueue<byte[]> queue, ChunkInputStream consumer) {
+            this.queue = queue;
+            this.consumer = consumer;
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        synchronized void append(byte[] data, int offset, int length) {
+            while (length > 0) {
+                if (size == 0) {
+                    oldestByteNanos = System.nanoTime();
+                }
+                int n = Math.min(length, buffer.length - size);
+                System.arraycopy(data, offset, buffer, size, n);
+                size += n;
+                offset += n;
+                length -= n;
+                if (size == buffer.length) {
+                    flushFull();
+                }
+            }
+        }
+
+        synchronized void flushIfStale() {
+            if (size > 0 && System.nanoTime() - oldestByteNanos >= flushInterval.toNanos()) {
+                flushAll();
+            }
+        }
+
+        synchronized void close() {
+            flushAll();
+            open = false;
+            enqueue(END_OF_STREAM);
+        }
+
+        private void flushFull() {
+            // Cut at the last newline so chunks carry whole lines; a single huge line is split as-is
+            int cut = size;
+            for (int i = size - 1; i >= 0; i--) {
+                if (buffer[i] == '\n') {
+                    cut = i + 1;
+                    break;
+                }
+            }
+            emit(Arrays.copyOf(buffer, cut));
+            System.arraycopy(buffer, cut, buffer, 0, size - cut);
+            size -= cut;
+        }
+
+        private void flushAll() {
+            if (size > 0) {
+                emit(Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+        }
+
+        private void emit(byte[] chunk) {
+            switch (overflowPolicy) {
+                case BLOCK -> enqueue(chunk);
+                case DROP_OLDEST -> {
+                    while (!queue.offer(chunk)) {
+                        byte[] dropped = queue.poll();
+                        if (dropped != null) {
+                            droppedChunks.increment();
+                            droppedBytes.add(dropped.length);
+                        }
+                    }
+                }
+                case SAMPLE -> {
+                    if (!queue.offer(chunk)) {
+                        // Never wait here: a stalled consumer must not block the producer (and the process pipe)
+                        byte[] sampled = sample(chunk);
+                        if (sampled.length > 0 && !queue.offer(sampled)) {
+                            droppedChunks.increment();
+                            droppedLines.add(countLines(sampled));
+                            droppedBytes.add(sampled.length);
+                        }
+                    }
+                }
+            }
+            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+        }
+
+        /**
+         * Blocks until the chunk is queued, unless the consumer has gone away.
+         */
+        private void enqueue(byte[] chunk) {
+            try {
+                while (!queue.offer(chunk, OFFER_RETRY_MS, TimeUnit.MILLISECONDS)) {
+                    if (consumer.isClosed()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private byte[] sample(byte[] chunk) {
+            ByteArrayOutputStream kept = new ByteArrayOutputStream(chunk.length / sampleEvery + 1);
+            int lineStart = 0;
+            for (int i = 0; i <= chunk.length; i++) {
+                if (i == chunk.length || chunk[i] == '\n') {
+                    int lineEnd = i == chunk.length ? i : i + 1;
+                    if (lineEnd > lineStart) {
+                        if (sampledLineCounter++ % sampleEvery == 0) {
+                            kept.write(chunk, lineStart, lineEnd - lineStart);
+                        } else {
+                            droppedLines.increment();
+                            droppedBytes.add(lineEnd - lineStart);
+                        }
+                    }
+                    lineStart = lineEnd;
+                }
+            }
+            return kept.toByteArray();
+        }
+
+        private static int countLines(byte[] chunk) {
+            int lines = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                if (chunk[i] == '\n' || i == chunk.length - 1) {
+                    lines++;
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Consumer side handed to the wrapped handler; reads chunks off the queue.
+     */
+    private final class ChunkInputStream extends InputStream {
+        private final BlockingQueue<byte[]> queue;
+        private final byte[] single = new byte[1];
+        private byte[] current;
+        private int position;
+        private boolean endOfStream;
+        private volatile boolean closed;
+
+        ChunkInputStream(BlockingQueue<byte[]> queue) {
+            this.queue = queue;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || position == current.length) {
+                if (endOfStream || closed) {
+                    return -1;
+                }
+                byte[] next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for output");
+                }
+                if (next == END_OF_STREAM) {
+                    endOfStream = true;
+                    return -1;
+                }
+                current = next;
+                position = 0;
+                chunksDelivered.increment();
+                bytesDelivered.add(next.length);
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - position;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.helperlib.command.logging;
+
+import com.helperlib.api.command.logging.StreamHandler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Most recent output lines of a command, bounded by bytes and by lines.
+ * Lines are stored in one preallocated byte ring with fixed-size offset tables, so memory stays at
+ * {@code maxBytes} plus {@code maxLines} bookkeeping entries however much the command prints; the oldest
+ * lines are dropped to make room. Only complete lines are kept, and lines longer than the per-stream line
+ * limit are cut. {@link #tee(StreamHandler)} feeds a tail from the streams passing to a handler.
+ * Appends and snapshots are thread-safe; a snapshot copies only the retained lines.
+ */
+public class LogTail {
+
+    public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+    public static final int DEFAULT_MAX_LINES = 1_000;
+    private static final int MAX_LINE_BYTES = 8 * 1024;
+
+    private final byte[] data;
+    private final long[] lineStarts;   // absolute byte positions, ring indexed by line number
+    private final int[] lineLengths;
+    private final int maxLineBytes;
+
+    private long writePosition;        // absolute position of the next byte
+    private long firstLine;            // line number of the oldest retained line
+    private long nextLine;             // line number the next appended line gets
+    private long retainedBytes;
+    private long totalLines;
+
+    public LogTail() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_LINES);
+    }
+
+    public LogTail(int maxBytes, int maxLines) {
+        if (maxBytes <= 0 || maxLines <= 0) {
+            throw new IllegalArgumentException("maxBytes and maxLines must be positive");
+        }
+        this.data = new byte[maxBytes];
+        this.lineStarts = new long[maxLines];
+        this.lineLengths = new int[maxLines];
+        this.maxLineBytes = Math.min(maxBytes, MAX_LINE_BYTES);
+    }
+
+    /**
+     * Appends one line (without terminator), cut to the tail's line limit.
+     */
+    public void appendLine(byte[] line, int offset, int length) {
+        int n = Math.min(length, maxLineBytes);
+        synchronized (this) {
+            while (nextLine > firstLine && (nextLine - firstLine == lineStarts.length
+                    || retainedBytes + n > data.length)) {
+                retainedBytes -= lineLengths[slot(firstLine)];
+                firstLine++;
+            }
+            int slot = slot(nextLine);
+            lineStarts[slot] = writePosition;
+            lineLengths[slot] = n;
+            int at = (int) (writePosition % data.length);
+            int first = Math.min(n, data.length - at);
+            System.arraycopy(line, offset, data, at, first);
+            System.arraycopy(line, offset + first, data, 0, n - first);
+            writePosition += n;
+            retainedBytes += n;
+            nextLine++;
+            totalLines++;
+        }
+    }
+
+    public void appendLine(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        appendLine(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @return the retained lines, oldest first
+     */
+    public List<String> snapshot() {
+        return snapshot(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return up to {@code maxLines} of the most recent lines, oldest first
+     */
+    public synchronized List<String> snapshot(int maxLines) {
+        long from = Math.max(firstLine, nextLine - Math.max(0, maxLines));
+        List<String> lines = new ArrayList<>((int) (nextLine - from));
+        for (long line = from; line < nextLine; line++) {
+            int slot = slot(line);
+            int length = lineLengths[slot];
+            int at = (int) (lineStarts[slot] % data.length);
+            byte[] bytes = new byte[length];
+            int first = Math.min(length, data.length - at);
+            System.arraycopy(data, at, bytes, 0, first);
+            System.arraycopy(data, 0, bytes, first, length - first);
+            lines.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    public synchronized int getRetainedLines() {
+        return (int) (nextLine - firstLine);
+    }
+
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return lines appended since creation or the last {@link #clear()}, retained or not
+     */
+    public synchronized long getTotalLines() {
+        return totalLines;
+    }
+
+    public synchronized void clear() {
+        firstLine = nextLine;
+        retainedBytes = 0;
+        totalLines = 0;
+    }
+
+    /**
+     * @return a handler that forwards every stream to {@code delegate} unchanged and adds its lines to this tail
+     */
+    public StreamHandler tee(StreamHandler delegate) {
+        return (inputStream, streamType, commandName) ->
+                delegate.handleStream(new TailingInputStream(inputStream), streamType, commandName);
+    }
+
+    private int slot(long line) {
+        return (int) (line % lineStarts.length);
+    }
+
+    /**
+     * Splits the bytes read into lines with one fixed line buffer per stream, so streams never mix mid-line.
+     */
+    private final class TailingInputStream extends FilterInputStream {
+        private final byte[] line = new byte[maxLineBytes];
+        private int lineLength;
+
+        TailingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                flushPartialLine();
+            } else {
+                accept((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                flushPartialLine();
+            } else if (n > 0) {
+                scan(b, off, n);
+            }
+            return n;
+        }
+
+        private void scan(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                accept(b[i]);
+            }
+        }
+
+        private void accept(byte b) {
+            if (b == '\n') {
+                int end = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+                appendLine(line, 0, end);
+                lineLength = 0;
+            } else if (lineLength < line.length) {
+                line[lineLength++] = b;
+            }
+        }
+
+        private void flushPartialLine() {
+            if (lineLength > 0) {
+                appendLine(line, 0, lineLength);
+                lineLength = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.helperlib.command.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Disk-backed store for very large command output.
+ * Bytes are appended to fixed-size, memory-mapped segment files ({@code segment-000000.spool}, ...), so the
+ * output lives in the page cache rather than on the heap. While writing, a sparse index records the byte
+ * offset of every {@code indexInterval}-th line; random-access reads ({@link #readLines}, {@link #tail},
+ * {@link #search}) start from the nearest indexed line and are safe from any thread while output is still
+ * being appended. A single thread is expected to write. {@link #delete()} waits for reads in progress;
+ * reads after it return no lines.
+ */
+public class OutputSpool implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_INDEX_INTERVAL = 1024;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int indexInterval;
+
+    // Segment i holds bytes [i * segmentBytes, (i + 1) * segmentBytes)
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private FileChannel currentChannel;
+    private MappedByteBuffer current;
+
+    // Bytes below 'written' are immutable and readable without locking
+    private volatile long written;
+    // Line bookkeeping, guarded by 'this'; lineIndex[k] = byte offset of line k * indexInterval
+    private long completeLines;
+    private long lastLineStart;
+    private long[] lineIndex = new long[64];
+    private int lineIndexSize;
+
+    private volatile boolean closed;
+
+    // Reads hold the read lock so delete() cannot drop the segments underneath them
+    private final ReadWriteLock deletion = new ReentrantReadWriteLock();
+    private boolean deleted;
+
+    public OutputSpool(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * @param directory     where segment files are created; created if missing
+     * @param segmentBytes  size of each segment file, i.e. rotation threshold
+     * @param indexInterval every how many lines a byte offset is indexed
+     */
+    public OutputSpool(Path directory, long segmentBytes, int indexInterval) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes must be between 1 and " + Integer.MAX_VALUE);
+        }
+        if (indexInterval <= 0) {
+            throw new IllegalArgumentException("indexInterval must be positive");
+        }
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        Files.createDirectories(directory);
+        lineIndex[lineIndexSize++] = 0;
+    }
+
+    /**
+     * Appends output bytes, rotating to a new segment whenever the current one is full.
+     */
+    public void write(byte[] data, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, data.length);
+        if (closed) {
+            throw new IOException("Spool is closed");
+        }
+        long position = written;
+        while (length > 0) {
+            if (current == null || !current.hasRemaining()) {
+                rotate();
+            }
+            int n = Math.min(length, current.remaining());
+            current.put(data, offset, n);
+            indexLines(data, offset, n, position);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+        // Publish after the bytes are in place
+        written = position;
+    }
+
+    /**
+     * @return number of lines, counting a trailing line without newline
+     */
+    public long getLineCount() {
+        long complete;
+        long start;
+        synchronized (this) {
+            complete = completeLines;
+            start = lastLineStart;
+        }
+        return written > start ? complete + 1 : complete;
+    }
+
+    public long getByteCount() {
+        return written;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Reads up to {@code maxLines} lines starting at the zero-based line {@code firstLine}.
+     */
+    public List<String> readLines(long firstLine, int maxLines) {
+        List<String> lines = new ArrayList<>();
+        deletion.readLock().lock();
+        try {
+            if (deleted) {
+                return lines;
+            }
+            long end = written;
+            long position = findLineStart(firstLine, end);
+            while (lines.size() < maxLines && position < end) {
+                long next = nextLineStart(position, end);
+                lines.add(decode(position, next));
+                position = next;
+            }
+            return lines;
+        } finally {
+            deletion.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the last {@code maxLines} lines written so far
+     */
+    public List<String> tail(int maxLines) {
+        return readLines(Math.max(0, getLineCount() - maxLines), maxLines);
+    }
+
+    /**
+     * Scans forward from {@code fromLine} and returns up to {@code maxResults} lines matching the pattern.
+     */
+    public List<SpoolMatch> search(Pattern pattern, long fromLine, int maxResults) {
+        List<SpoolMatch> matches = new ArrayList<>();
+        deletion.readLock().lock();
+        try {
+            if (deleted) {
+                return matches;
+            }
+            long end = written;
+            long line = fromLine;
+            long position = findLineStart(fromLine, end);
+            while (matches.size() < maxResults && position < end) {
+                long next = nextLineStart(position, end);
+                String text = decode(position, next);
+                if (pattern.matcher(text).find()) {
+                    matches.add(new SpoolMatch(line, text));
+                }
+                position = next;
+                line++;
+            }
+            return matches;
+        } finally {
+            deletion.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops writing and trims the last segment to its used size. Reads remain possible.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (currentChannel != null) {
+            try {
+                currentChannel.truncate(written - (segments.size() - 1) * segmentBytes);
+            } catch (IOException ignored) {
+                // Some platforms refuse to truncate a mapped file; the tail is then zero-filled
+            } finally {
+                currentChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Closes the spool and removes its segment files and directory, once reads in progress have finished.
+     */
+    public void delete() throws IOException {
+        close();
+        deletion.writeLock().lock();
+        try {
+            deleted = true;
+            segments.clear();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(p);
+                }
+            }
+        } finally {
+            deletion.writeLock().unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (currentChannel != null) {
+            currentChannel.close();
+        }
+        Path file = directory.resolve(String.format("segment-%06d.spool", segments.size()));
+        currentChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        current = currentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.add(current);
+    }
+
+    private synchronized void indexLines(byte[] data, int offset, int length, long position) {
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != '\n') {
+                continue;
+            }
+            lastLineStart = position + i + 1;
+            if (++completeLines % indexInterval == 0) {
+                if (lineIndexSize == lineIndex.length) {
+                    lineIndex = Arrays.copyOf(lineIndex, lineIndexSize * 2);
+                }
+                lineIndex[lineIndexSize++] = lastLineStart;
+            }
+        }
+    }
+
+    private long findLineStart(long line, long end) {
+        long position;
+        long current;
+        synchronized (this) {
+            int slot = (int) Math.min(line / indexInterval, lineIndexSize - 1);
+            position = lineIndex[slot];
+            current = (long) slot * indexInterval;
+        }
+        while (current < line && position < end) {
+            position = nextLineStart(position, end);
+            current++;
+        }
+        return position;
+    }
+
+    private long nextLineStart(long position, long end) {
+        while (position < end) {
+            if (byteAt(position++) == '\n') {
+                return position;
+            }
+        }
+        return end;
+    }
+
+    private byte byteAt(long position) {
+        return segments.get((int) (position / segmentBytes)).get((int) (position % segmentBytes));
+    }
+
+    private String decode(long start, long end) {
+        long stop = end;
+        if (stop > start && byteAt(stop - 1) == '\n') {
+            stop--;
+        }
+        if (stop > start && byteAt(stop - 1) == '\r') {
+            stop--;
+        }
+        if (stop - start > Integer.MAX_VALUE - 8) {
+            throw new UncheckedIOException(new IOException("Line too long to decode: " + (stop - start) + " bytes"));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) (stop - start));
+        long position = start;
+        while (position < stop) {
+            MappedByteBuffer segment = segments.get((int) (position / segmentBytes));
+            int from = (int) (position % segmentBytes);
+            int n = (int) Math.min(stop - position, segmentBytes - from);
+            byte[] chunk = new byte[n];
+            segment.get(from, chunk);
+            bytes.write(chunk, 0, n);
+            position += n;
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,10 @@
+package com.helperlib.command.logging;
+
+/**
+ * A line found by {@link OutputSpool#search}.
+ *
+ * @param lineNumber zero-based line number within the spool
+ * @param line       line text without its line terminator
+ */
+public record SpoolMatch(long lineNumber, String line) {
+}
@@ -0,0 +1,16 @@
+package com.helperlib.command.logging;
+
+/**
+ * What {@link BatchingStreamHandler} does when its bounded chunk queue is full.
+ */
+public enum StreamOverflowPolicy {
+    /** Block the producer until the consumer catches up (backpressure reaches the process pipe). */
+    BLOCK,
+    /** Discard the oldest queued chunk to make room for the newest output. */
+    DROP_OLDEST,
+    /**
+     * Keep only every N-th line of the overflowing chunk, counting the dropped lines; the sample is dropped
+     * too if the queue is still full, so the producer never waits.
+     */
+    SAMPLE
+}
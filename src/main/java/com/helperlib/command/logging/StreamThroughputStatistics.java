@@ -0,0 +1,25 @@
+package com.helperlib.command.logging;
+
+/**
+ * Snapshot of the traffic seen by a {@link BatchingStreamHandler} across all of its streams.
+ *
+ * @param bytesIn          bytes read from the source streams
+ * @param bytesDelivered   bytes handed to the wrapped handler
+ * @param chunksDelivered  number of coalesced chunks handed to the wrapped handler
+ * @param droppedChunks    chunks discarded by {@link StreamOverflowPolicy#DROP_OLDEST}
+ * @param droppedLines     lines discarded by {@link StreamOverflowPolicy#SAMPLE}
+ * @param droppedBytes     bytes discarded by either dropping policy
+ * @param maxQueueDepth    highest number of chunks waiting for the wrapped handler
+ * @param bytesPerSecond   average input rate since the handler was created
+ * @param chunksPerSecond  average delivery rate since the handler was created
+ */
+public record StreamThroughputStatistics(long bytesIn,
+                                         long bytesDelivered,
+                                         long chunksDelivered,
+                                         long droppedChunks,
+                                         long droppedLines,
+                                         long droppedBytes,
+                                         int maxQueueDepth,
+                                         double bytesPerSecond,
+                                         double chunksPerSecond) {
+}
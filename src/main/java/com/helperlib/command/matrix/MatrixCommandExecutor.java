@@ -0,0 +1,190 @@
+package com.helperlib.command.matrix;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandFactory;
+import com.helperlib.api.command.CommandMetadata;
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.TemplateEngine;
+import com.helperlib.api.command.TemplatingPolicy;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.core.command.CommandExecutorService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one templated command against many parameter sets (environments, hosts, ...) in parallel.
+ * Each variant is rendered with the {@link TemplatingPolicy}, created through the {@link CommandFactory}
+ * and executed, with at most {@code maxConcurrency} variants running at once. The StreamHandler sees each
+ * variant's streams under the command name tagged with its parameters, e.g. {@code Deploy[env=prod]}.
+ * Variants missing a required placeholder are not run and count as failed.
+ */
+public class MatrixCommandExecutor {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    private final CommandFactory commandFactory;
+    private final TemplatingPolicy templatingPolicy;
+    private final TemplateEngine templateEngine;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    public MatrixCommandExecutor(CommandFactory commandFactory,
+                                 TemplatingPolicy templatingPolicy,
+                                 TemplateEngine templateEngine) {
+        this.commandFactory = Objects.requireNonNull(commandFactory, "commandFactory");
+        this.templatingPolicy = Objects.requireNonNull(templatingPolicy, "templatingPolicy");
+        this.templateEngine = Objects.requireNonNull(templateEngine, "templateEngine");
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Renders and runs every variant. Cancelling the returned future cancels the variants still running
+     * or waiting.
+     */
+    public CompletableFuture<MatrixSummary> executeAsync(CommandMetadata template,
+                                                         List<Map<String, String>> parameterSets,
+                                                         StreamHandler streamHandler) {
+        Objects.requireNonNull(template, "template");
+        long start = System.currentTimeMillis();
+        Semaphore slots = new Semaphore(maxConcurrency);
+        Set<String> required = templatingPolicy.requiredPlaceholders(template, templateEngine);
+        List<CompletableFuture<CommandResult>> running = new CopyOnWriteArrayList<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        List<CompletableFuture<MatrixRunResult>> variants = new ArrayList<>(parameterSets.size());
+        for (Map<String, String> parameters : parameterSets) {
+            variants.add(CompletableFuture.supplyAsync(
+                    () -> runVariant(template, parameters, required, streamHandler, slots, running, cancelled),
+                    CommandExecutorService.getVirtualThreadExecutor()));
+        }
+
+        CompletableFuture<MatrixSummary> summary = CompletableFuture
+                .allOf(variants.toArray(CompletableFuture[]::new))
+                .thenApply(done -> summarize(variants.stream().map(CompletableFuture::join).toList(),
+                        System.currentTimeMillis() - start));
+
+        summary.whenComplete((result, error) -> {
+            if (summary.isCancelled()) {
+                // The flag stops queued variants; supplyAsync tasks are not interrupted by cancel
+                cancelled.set(true);
+                variants.forEach(v -> v.cancel(true));
+                running.forEach(r -> r.cancel(true));
+            }
+        });
+        return summary;
+    }
+
+    private MatrixRunResult runVariant(CommandMetadata template,
+                                       Map<String, String> parameters,
+                                       Set<String> required,
+                                       StreamHandler streamHandler,
+                                       Semaphore slots,
+                                       List<CompletableFuture<CommandResult>> running,
+                                       AtomicBoolean cancelRequested) {
+        String label = label(parameters);
+        Set<String> missing = new HashSet<>(required);
+        missing.removeAll(parameters.keySet());
+        if (!missing.isEmpty()) {
+            return failed(parameters, label, "Missing parameters: " + new TreeSet<>(missing));
+        }
+
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return cancelled(parameters, label);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            if (cancelRequested.get()) {
+                return cancelled(parameters, label);
+            }
+            CommandMetadata rendered = templatingPolicy.render(template, parameters, templateEngine);
+            Command command = commandFactory.createCommand(rendered, tagged(streamHandler, label));
+            CompletableFuture<CommandResult> future = command.executeAsync();
+            running.add(future);
+            // Cancelled between the check above and add: the canceller may not have seen this future
+            if (cancelRequested.get()) {
+                future.cancel(true);
+            }
+            CommandResult result = future.join();
+            return new MatrixRunResult(Map.copyOf(parameters), label, result, elapsedMs(startNanos), null);
+        } catch (CompletionException | CancellationException e) {
+            boolean cancelled = e instanceof CancellationException;
+            return new MatrixRunResult(Map.copyOf(parameters), label,
+                    new CommandResult(false, cancelled ? 130 : -1, elapsedMs(startNanos)), elapsedMs(startNanos),
+                    cancelled ? "Cancelled" : String.valueOf(e.getCause()));
+        } catch (RuntimeException e) {
+            return failed(parameters, label, "Could not render or start: " + e.getMessage());
+        } finally {
+            slots.release();
+        }
+    }
+
+    private static MatrixRunResult cancelled(Map<String, String> parameters, String label) {
+        return new MatrixRunResult(Map.copyOf(parameters), label, new CommandResult(false, 130, 0), 0, "Cancelled");
+    }
+
+    private static StreamHandler tagged(StreamHandler delegate, String label) {
+        return (inputStream, streamType, commandName) ->
+                delegate.handleStream(inputStream, streamType, commandName + "[" + label + "]");
+    }
+
+    private static String label(Map<String, String> parameters) {
+        return new TreeMap<>(parameters).entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(","));
+    }
+
+    private static MatrixRunResult failed(Map<String, String> parameters, String label, String error) {
+        return new MatrixRunResult(Map.copyOf(parameters), label, new CommandResult(false, -1, 0), 0, error);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static MatrixSummary summarize(List<MatrixRunResult> runs, long wallClockMs) {
+        int succeeded = (int) runs.stream().filter(r -> r.result().success()).count();
+        long[] latencies = runs.stream()
+                .filter(r -> r.error() == null)
+                .mapToLong(MatrixRunResult::latencyMs)
+                .sorted()
+                .toArray();
+        return new MatrixSummary(runs, succeeded, runs.size() - succeeded,
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1],
+                wallClockMs);
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
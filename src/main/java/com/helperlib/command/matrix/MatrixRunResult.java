@@ -0,0 +1,21 @@
+package com.helperlib.command.matrix;
+
+import com.helperlib.api.command.CommandResult;
+
+import java.util.Map;
+
+/**
+ * Outcome of one variant of a matrix execution.
+ *
+ * @param parameters the variant's parameter set
+ * @param label      tag added to the variant's stream names, e.g. {@code env=prod,region=eu}
+ * @param result     the command's result; exit code -1 if the variant could not be rendered or started
+ * @param latencyMs  time from start to completion, excluding time spent waiting for a concurrency slot
+ * @param error      why the variant could not run, or null
+ */
+public record MatrixRunResult(Map<String, String> parameters,
+                              String label,
+                              CommandResult result,
+                              long latencyMs,
+                              String error) {
+}
@@ -0,0 +1,21 @@
+package com.helperlib.command.matrix;
+
+import java.util.List;
+
+/**
+ * Combined outcome of a matrix execution. Results are in parameter-set order; latency percentiles use the
+ * nearest-rank method over all variants that ran.
+ */
+public record MatrixSummary(List<MatrixRunResult> runs,
+                            int succeeded,
+                            int failed,
+                            long p50LatencyMs,
+                            long p90LatencyMs,
+                            long p99LatencyMs,
+                            long maxLatencyMs,
+                            long wallClockMs) {
+
+    public boolean allSucceeded() {
+        return failed == 0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.helperlib.command.remote;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.ssh.SshSessionPool;
+import com.helperlib.core.command.CommandExecutorService;
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.io.InputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs a command on a remote host through a JSch {@code exec} channel, in place of spawning {@code ssh host cmd}.
+ * Sessions come from {@link SshSessionPool}, so consecutive commands against one host share a single
+ * handshake. Remote stdout/stderr are streamed to the StreamHandler and the remote exit status is the
+ * exit code; a cancelled run reports 130.
+ */
+public class RemoteCommand extends Command {
+
+    // How long to wait for the exit status once both streams have reached EOF
+    private static final long EXIT_STATUS_WAIT_MS = 5_000;
+
+    private final StreamHandler streamHandler;
+    private final Set<Execution> activeExecutions = ConcurrentHashMap.newKeySet();
+
+    public RemoteCommand(RemoteCommandMetadata metadata, StreamHandler streamHandler) {
+        super(metadata);
+        this.streamHandler = streamHandler;
+    }
+
+    @Override
+    public CompletableFuture<CommandResult> executeAsync() {
+        Execution execution = new Execution();
+        activeExecutions.add(execution);
+
+        CompletableFuture<CommandResult> future = CompletableFuture.supplyAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            RemoteCommandMetadata remoteMetadata = (RemoteCommandMetadata) metadata;
+
+            try {
+                int exitCode = executeWithPooledSession(remoteMetadata, execution);
+                long executionTime = System.currentTimeMillis() - startTime;
+                if (execution.cancelled) {
+                    return new CommandResult(false, 130, executionTime);
+                }
+                return new CommandResult(exitCode == 0, exitCode, executionTime);
+
+            } catch (Exception e) {
+                long executionTime = System.currentTimeMillis() - startTime;
+                if (execution.cancelled) {
+                    return new CommandResult(false, 130, executionTime);
+                }
+                System.err.println("Remote command execution failed: " + e.getMessage());
+                return new CommandResult(false, -1, executionTime);
+            } finally {
+                activeExecutions.remove(execution);
+            }
+        }, CommandExecutorService.getVirtualThreadExecutor());
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                execution.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Cancels all in-flight executions: sends KILL to the remote command and closes its channel.
+     *
+     * @return true if at least one execution was cancelled
+     */
+    public boolean cancel() {
+        boolean cancelledAny = false;
+        for (Execution execution : activeExecutions) {
+            cancelledAny |= execution.cancel();
+        }
+        return cancelledAny;
+    }
+
+    private int executeWithPooledSession(RemoteCommandMetadata m, Execution execution) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try (SshSessionPool.Lease lease = SshSessionPool.acquire(m.toConnectionSettings())) {
+                Session session = lease.getSession();
+                ChannelExec channel = null;
+                InputStream stdout;
+                InputStream stderr;
+                try {
+                    channel = (ChannelExec) session.openChannel("exec");
+                    channel.setCommand(m.getCommandText());
+                    channel.setInputStream(null);
+                    // Streams must exist before connect, or early output is lost
+                    stdout = channel.getInputStream();
+                    stderr = channel.getErrStream();
+                    execution.attach(channel);
+                    channel.connect(m.toConnectionSettings().connectTimeoutMs());
+                } catch (JSchException e) {
+                    if (channel != null) {
+                        channel.disconnect();
+                    }
+                    // A pooled session may have died while idle; the command has not run yet, so retry once
+                    if (attempt == 0 && !session.isConnected()) {
+                        lease.invalidate();
+                        continue;
+                    }
+                    throw e;
+                }
+                return streamAndWait(channel, stdout, stderr, m);
+            }
+        }
+    }
+
+    private int streamAndWait(ChannelExec channel,
+                              InputStream stdout,
+                              InputStream stderr,
+                              RemoteCommandMetadata m) throws Exception {
+        try {
+            var vexec = CommandExecutorService.getVirtualThreadExecutor();
+
+            CompletableFuture<Void> outputHandler = CompletableFuture
+                    .supplyAsync(() -> streamHandler.handleStream(stdout, "stdout", m.getName()), vexec)
+                    .thenCompose(f -> f);
+            CompletableFuture<Void> errorHandler = CompletableFuture
+                    .supplyAsync(() -> streamHandler.handleStream(stderr, "stderr", m.getName()), vexec)
+                    .thenCompose(f -> f);
+            CompletableFuture.allOf(outputHandler, errorHandler).join();
+
+            // The exit status arrives just before the channel closes
+            long deadline = System.currentTimeMillis() + EXIT_STATUS_WAIT_MS;
+            while (!channel.isClosed() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return channel.getExitStatus();
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    /**
+     * One execution's channel and cancellation state.
+     */
+    private static final class Execution {
+        private volatile ChannelExec channel;
+        private volatile boolean cancelled;
+
+        void attach(ChannelExec channel) {
+            this.channel = channel;
+            // cancel() may have raced with channel setup
+            if (cancelled) {
+                channel.disconnect();
+            }
+        }
+
+        synchronized boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            ChannelExec c = channel;
+            if (c != null) {
+                try {
+                    c.sendSignal("KILL");
+                } catch (Exception ignored) {
+                    // Not every server supports signals; closing the channel still ends the command
+                }
+                c.disconnect();
+            }
+            return true;
+        }
+    }
+}
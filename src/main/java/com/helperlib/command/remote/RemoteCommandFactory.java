@@ -0,0 +1,88 @@
+package com.helperlib.command.remote;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandFactory;
+import com.helperlib.api.command.CommandMetadata;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+/**
+ * Factory for {@link RemoteCommand}.
+ * Not registered as a ServiceLoader provider: the API's CommandType has no remote-exec value and the
+ * TERMINAL slot belongs to TerminalCommandFactory. Use it directly, or register it in place of the
+ * terminal factory where remote execution is the only terminal flavour needed.
+ */
+public class RemoteCommandFactory implements CommandFactory {
+
+    @Override
+    public CommandMetadata parseMetadata(JsonObject json) {
+        String type = json.getString("type", RemoteCommandMetadata.SERIALIZED_TYPE);
+        if (!RemoteCommandMetadata.SERIALIZED_TYPE.equals(type)) {
+            throw new IllegalArgumentException("Not remote command metadata: type " + type);
+        }
+        String name = json.getString("name");
+        String description = json.getString("description", "Remote command");
+
+        // SSH
+        String host = json.getString("host");
+        int port = json.getInt("port", 22);
+        String username = json.getString("username");
+
+        // Auth
+        TunnelAuthType authType = TunnelAuthType.valueOf(json.getString("authType", "PASSWORD"));
+        String password = json.getString("password", "");
+        String privateKeyPath = json.getString("privateKeyPath", "");
+        String passphrase = json.getString("passphrase", "");
+
+        // Host key verification
+        boolean strictHK = json.getBoolean("strictHostKeyChecking", false);
+        String knownHostsPath = json.getString("knownHostsPath", "");
+
+        // Command and timings
+        String commandText = json.getString("commandText");
+        int connectTimeoutMs = json.getInt("connectTimeoutMs", 10_000);
+        int keepAliveIntervalSec = json.getInt("keepAliveIntervalSec", 30);
+
+        return new RemoteCommandMetadata(
+                name, description,
+                host, port, username,
+                authType, password, privateKeyPath, passphrase,
+                strictHK, knownHostsPath,
+                commandText,
+                connectTimeoutMs, keepAliveIntervalSec
+        );
+    }
+
+    @Override
+    public JsonObject serializeMetadata(CommandMetadata meta) {
+        RemoteCommandMetadata m = (RemoteCommandMetadata) meta;
+        JsonObjectBuilder b = Json.createObjectBuilder()
+                .add("name", m.getName())
+                .add("description", m.getDescription())
+                .add("type", RemoteCommandMetadata.SERIALIZED_TYPE)
+                .add("host", m.getHost())
+                .add("port", m.getPort())
+                .add("username", m.getUsername())
+                .add("authType", m.getAuthType().name())
+                .add("strictHostKeyChecking", m.isStrictHostKeyChecking())
+                .add("commandText", m.getCommandText())
+                .add("connectTimeoutMs", m.getConnectTimeoutMs())
+                .add("keepAliveIntervalSec", m.getKeepAliveIntervalSec());
+
+        // Optional fields
+        if (m.getKnownHostsPath() != null) b.add("knownHostsPath", m.getKnownHostsPath());
+        if (m.getPassword() != null) b.add("password", m.getPassword());
+        if (m.getPrivateKeyPath() != null) b.add("privateKeyPath", m.getPrivateKeyPath());
+        if (m.getPassphrase() != null) b.add("passphrase", m.getPassphrase());
+
+        return b.build();
+    }
+
+    @Override
+    public Command createCommand(CommandMetadata metadata, StreamHandler streamHandler) {
+        return new RemoteCommand((RemoteCommandMetadata) metadata, streamHandler);
+    }
+}
@@ -0,0 +1,51 @@
+package com.helperlib.command.remote;
+
+import com.helperlib.api.command.CommandType;
+import com.helperlib.command.ssh.SshCommandMetadata;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+
+/**
+ * Metadata for a command executed on a remote host over SSH.
+ * The API has no dedicated command type for remote execution, so it is typed as TERMINAL in memory;
+ * it is saved as {@link #SERIALIZED_TYPE} so a reload never hands it to the terminal factory.
+ */
+public class RemoteCommandMetadata extends SshCommandMetadata {
+
+    /** Value of the "type" field in saved remote command metadata. */
+    public static final String SERIALIZED_TYPE = "REMOTE";
+
+    // Remote command
+    private String commandText;
+
+    public RemoteCommandMetadata(
+            String name,
+            String description,
+            String host,
+            int port,
+            String username,
+            TunnelAuthType authType,
+            String password,
+            String privateKeyPath,
+            String passphrase,
+            boolean strictHostKeyChecking,
+            String knownHostsPath,
+            String commandText,
+            int connectTimeoutMs,
+            int keepAliveIntervalSec
+    ) {
+        super(name, description, CommandType.TERMINAL,
+                host, port, username,
+                authType, password, privateKeyPath, passphrase,
+                strictHostKeyChecking, knownHostsPath,
+                connectTimeoutMs, keepAliveIntervalSec);
+        this.commandText = commandText;
+    }
+
+    public String getCommandText() {
+        return commandText;
+    }
+
+    public void setCommandText(String commandText) {
+        this.commandText = commandText;
+    }
+}
@@ -0,0 +1,91 @@
+package com.helperlib.command.sftp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Records which ranges of a download are complete, so an interrupted transfer resumes by range.
+ * Text file: a header line {@code <size> <mtime> <chunkBytes>} describing the remote file and range layout,
+ * then one completed range index per line. A header that does not match the current remote file discards
+ * the recorded ranges.
+ */
+final class RangeJournal implements AutoCloseable {
+
+    private final Path file;
+    private final BitSet completed;
+    private final FileChannel channel;
+
+    private RangeJournal(Path file, BitSet completed, FileChannel channel) {
+        this.file = file;
+        this.completed = completed;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal for a remote file, keeping recorded ranges only if {@code resume} is set and the
+     * header matches.
+     */
+    static RangeJournal open(Path file, long size, long mtime, long chunkBytes, boolean resume) throws IOException {
+        String header = size + " " + mtime + " " + chunkBytes;
+        BitSet completed = new BitSet();
+        boolean reuse = false;
+        if (resume && Files.exists(file)) {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.getFirst().equals(header)) {
+                reuse = true;
+                for (String line : lines.subList(1, lines.size())) {
+                    try {
+                        completed.set(Integer.parseInt(line.strip()));
+                    } catch (NumberFormatException ignored) {
+                        // Torn last line from an interrupted write; that range is simply fetched again
+                    }
+                }
+            }
+        }
+
+        FileChannel channel;
+        if (reuse) {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            write(channel, header + "\n");
+        }
+        return new RangeJournal(file, completed, channel);
+    }
+
+    /**
+     * @return true if the range was completed by a previous run
+     */
+    synchronized boolean isComplete(int range) {
+        return completed.get(range);
+    }
+
+    /**
+     * Records a range as complete. The range's bytes must already be forced to disk.
+     */
+    synchronized void markComplete(int range) throws IOException {
+        completed.set(range);
+        write(channel, range + "\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void write(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+}
@@ -0,0 +1,9 @@
+package com.helperlib.command.sftp;
+
+/**
+ * Direction of an SFTP transfer, seen from the local side.
+ */
+public enum SftpDirection {
+    UPLOAD,
+    DOWNLOAD
+}
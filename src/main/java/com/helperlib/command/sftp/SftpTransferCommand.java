@@ -0,0 +1,379 @@
+package com.helperlib.command.sftp;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.ssh.SshSessionPool;
+import com.helperlib.core.command.CommandExecutorService;
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelExec;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
+import com.jcraft.jsch.SftpException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Transfers one file over SFTP on a pooled SSH session ({@link SshSessionPool}).
+ * <ul>
+ *   <li>Downloads are split into {@code chunkBytes} ranges fetched over {@code parallelChannels} SFTP channels
+ *       of the same session, each with {@code bulkRequests} pipelined read requests, and written in place
+ *       into {@code <localPath>.part}. Completed ranges are recorded in {@code <localPath>.part.ranges}, so
+ *       an interrupted download resumes by range.</li>
+ *   <li>Uploads stream sequentially into {@code <remotePath>.part}, resuming from its current size. JSch
+ *       positions resumed writes at the remote file size, so ranges cannot be written in parallel.</li>
+ * </ul>
+ * Once all bytes are in place the SHA-256 of the result is compared with {@code expectedSha256}, or with
+ * {@code sha256sum} run on the remote host, before the part file is renamed to its final name. A mismatch
+ * discards the partial state and fails with exit code -1. Progress lines go to the StreamHandler's stdout;
+ * a cancelled transfer reports 130 and keeps its partial state for resuming.
+ */
+public class SftpTransferCommand extends Command {
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final long EXIT_STATUS_WAIT_MS = 5_000;
+
+    private final StreamHandler streamHandler;
+    private final Set<Execution> activeExecutions = ConcurrentHashMap.newKeySet();
+
+    public SftpTransferCommand(SftpTransferCommandMetadata metadata, StreamHandler streamHandler) {
+        super(metadata);
+        this.streamHandler = streamHandler;
+    }
+
+    @Override
+    public CompletableFuture<CommandResult> executeAsync() {
+        Execution execution = new Execution();
+        activeExecutions.add(execution);
+
+        CompletableFuture<CommandResult> future = CompletableFuture.supplyAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            SftpTransferCommandMetadata transferMetadata = (SftpTransferCommandMetadata) metadata;
+
+            try (SshSessionPool.Lease lease = SshSessionPool.acquire(transferMetadata.toConnectionSettings())) {
+                boolean ok = transferMetadata.getDirection() == SftpDirection.UPLOAD
+                        ? upload(transferMetadata, lease.getSession(), execution)
+                        : download(transferMetadata, lease.getSession(), execution);
+                long executionTime = System.currentTimeMillis() - startTime;
+                return new CommandResult(ok, ok ? 0 : -1, executionTime);
+
+            } catch (Exception e) {
+                long executionTime = System.currentTimeMillis() - startTime;
+                if (execution.cancelled) {
+                    return new CommandResult(false, 130, executionTime);
+                }
+                System.err.println("SFTP transfer failed: " + e.getMessage());
+                return new CommandResult(false, -1, executionTime);
+            } finally {
+                activeExecutions.remove(execution);
+            }
+        }, CommandExecutorService.getVirtualThreadExecutor());
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                execution.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Cancels all in-flight transfers by closing their channels. Partial state is kept for resuming.
+     *
+     * @return true if at least one transfer was cancelled
+     */
+    public boolean cancel() {
+        boolean cancelledAny = false;
+        for (Execution execution : activeExecutions) {
+            cancelledAny |= execution.cancel();
+        }
+        return cancelledAny;
+    }
+
+    private boolean download(SftpTransferCommandMetadata m, Session session, Execution execution) throws Exception {
+        Path target = Path.of(m.getLocalPath());
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Path journalPath = target.resolveSibling(target.getFileName() + ".part.ranges");
+        long chunkBytes = Math.max(1, m.getChunkBytes());
+
+        // Every channel, the control channel included, is closed however the download ends
+        try {
+            ChannelSftp control = openSftp(session, m, execution);
+            SftpATTRS attrs = control.stat(m.getRemotePath());
+            long size = attrs.getSize();
+            int rangeCount = (int) ((size + chunkBytes - 1) / chunkBytes);
+
+            if (!m.isResume()) {
+                Files.deleteIfExists(part);
+            }
+            try (TransferProgress progress = new TransferProgress(streamHandler, m.getName(), "Downloaded", size)) {
+                boolean verified;
+                try (RangeJournal journal = RangeJournal.open(journalPath, size, attrs.getMTime(), chunkBytes, m.isResume());
+                     FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+                    ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+                    long resumedBytes = 0;
+                    for (int range = 0; range < rangeCount; range++) {
+                        if (journal.isComplete(range)) {
+                            resumedBytes += Math.min(chunkBytes, size - range * chunkBytes);
+                        } else {
+                            pending.add(range);
+                        }
+                    }
+                    progress.resumed(resumedBytes);
+
+                    // Each worker drains the shared queue on its own channel; the control channel serves the first
+                    int workers = Math.max(1, Math.min(m.getParallelChannels(), pending.size()));
+                    List<CompletableFuture<Void>> running = new ArrayList<>(workers);
+                    for (int w = 0; w < workers; w++) {
+                        ChannelSftp channel = w == 0 ? control : openSftp(session, m, execution);
+                        running.add(CompletableFuture.runAsync(() ->
+                                fetchRanges(channel, m, size, chunkBytes, pending, out, journal, progress, execution),
+                                CommandExecutorService.getVirtualThreadExecutor()));
+                    }
+                    try {
+                        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+                    } catch (CompletionException e) {
+                        throw e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                    out.truncate(size);
+                    out.force(true);
+
+                    verified = !m.isVerifyChecksum() || verify(m, session, part, m.getRemotePath(), progress);
+                }
+
+                // The part file and journal are closed here; discard them or move the download into place
+                Files.deleteIfExists(journalPath);
+                if (!verified) {
+                    Files.deleteIfExists(part);
+                    return false;
+                }
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+                progress.message(String.format(Locale.ROOT, "Download complete: %s (%d bytes, %.1f MiB/s)",
+                        target, size, progress.getThroughputMiBs()));
+                return true;
+            }
+        } finally {
+            execution.closeChannels();
+        }
+    }
+
+    private static void fetchRanges(ChannelSftp channel,
+                                    SftpTransferCommandMetadata m,
+                                    long size,
+                                    long chunkBytes,
+                                    ConcurrentLinkedQueue<Integer> pending,
+                                    FileChannel out,
+                                    RangeJournal journal,
+                                    TransferProgress progress,
+                                    Execution execution) {
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        try {
+            Integer range;
+            while ((range = pending.poll()) != null) {
+                long position = range * chunkBytes;
+                long remaining = Math.min(chunkBytes, size - position);
+                try (InputStream in = channel.get(m.getRemotePath(), null, position)) {
+                    while (remaining > 0) {
+                        execution.checkCancelled();
+                        int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (n < 0) {
+                            throw new EOFException("Remote file shrank during download at byte " + position);
+                        }
+                        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+                        while (bytes.hasRemaining()) {
+                            position += out.write(bytes, position);
+                        }
+                        remaining -= n;
+                        progress.add(n);
+                    }
+                }
+                // Only record ranges whose bytes are durable
+                out.force(false);
+                journal.markComplete(range);
+            }
+        } catch (Exception e) {
+            // Stop the other workers too; the failure is reported once
+            pending.clear();
+            throw new CompletionException(e);
+        }
+    }
+
+    private boolean upload(SftpTransferCommandMetadata m, Session session, Execution execution) throws Exception {
+        Path source = Path.of(m.getLocalPath());
+        String target = m.getRemotePath();
+        String part = target + ".part";
+        long size = Files.size(source);
+
+        try (TransferProgress progress = new TransferProgress(streamHandler, m.getName(), "Uploaded", size)) {
+            ChannelSftp channel = openSftp(session, m, execution);
+
+            long offset = m.isResume() ? remoteSize(channel, part) : 0;
+            if (offset > size) {
+                offset = 0; // Not a prefix of this file
+            }
+            progress.resumed(offset);
+
+            // RESUME writes at the remote file's current size; OVERWRITE truncates first
+            int mode = offset > 0 ? ChannelSftp.RESUME : ChannelSftp.OVERWRITE;
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream remote = channel.put(part, null, mode, 0)) {
+                in.skipNBytes(offset);
+                byte[] buffer = new byte[COPY_BUFFER_BYTES];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    execution.checkCancelled();
+                    remote.write(buffer, 0, n);
+                    progress.add(n);
+                }
+            }
+
+            if (m.isVerifyChecksum() && !verify(m, session, source, part, progress)) {
+                channel.rm(part);
+                return false;
+            }
+            try {
+                channel.rm(target);
+            } catch (SftpException ignored) {
+                // No previous file; SFTPv3 rename refuses to overwrite one
+            }
+            channel.rename(part, target);
+            progress.message(String.format(Locale.ROOT, "Upload complete: %s (%d bytes, %.1f MiB/s)",
+                    target, size, progress.getThroughputMiBs()));
+            return true;
+        } finally {
+            execution.closeChannels();
+        }
+    }
+
+    private boolean verify(SftpTransferCommandMetadata m,
+                           Session session,
+                           Path localFile,
+                           String remoteFile,
+                           TransferProgress progress) throws Exception {
+        String local = sha256(localFile);
+        String expected = m.getExpectedSha256() != null && !m.getExpectedSha256().isBlank()
+                ? m.getExpectedSha256().strip().toLowerCase(Locale.ROOT)
+                : remoteSha256(session, remoteFile, m.getConnectTimeoutMs());
+        if (!local.equals(expected)) {
+            progress.message("SHA-256 mismatch: local " + local + ", expected " + expected);
+            return false;
+        }
+        progress.message("SHA-256 verified: " + local);
+        return true;
+    }
+
+    private static String sha256(Path file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Hashes the remote file where it lives, so verification does not move the data a second time.
+     */
+    private static String remoteSha256(Session session, String path, int timeoutMs) throws Exception {
+        ChannelExec channel = (ChannelExec) session.openChannel("exec");
+        try {
+            channel.setCommand("sha256sum -- '" + path.replace("'", "'\\''") + "'");
+            channel.setInputStream(null);
+            InputStream stdout = channel.getInputStream();
+            channel.connect(timeoutMs);
+            String output = new String(stdout.readAllBytes(), StandardCharsets.UTF_8).strip();
+
+            long deadline = System.currentTimeMillis() + EXIT_STATUS_WAIT_MS;
+            while (!channel.isClosed() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            if (channel.getExitStatus() != 0 || output.isEmpty()) {
+                throw new IOException("sha256sum failed on remote host (exit " + channel.getExitStatus()
+                        + "); set expectedSha256 or disable verifyChecksum");
+            }
+            return output.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    private static long remoteSize(ChannelSftp channel, String path) {
+        try {
+            return channel.stat(path).getSize();
+        } catch (SftpException e) {
+            return 0;
+        }
+    }
+
+    private static ChannelSftp openSftp(Session session,
+                                        SftpTransferCommandMetadata m,
+                                        Execution execution) throws Exception {
+        ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+        execution.attach(channel);
+        channel.connect(m.getConnectTimeoutMs());
+        channel.setBulkRequests(Math.max(1, m.getBulkRequests()));
+        return channel;
+    }
+
+    /**
+     * One transfer's channels and cancellation state.
+     */
+    private static final class Execution {
+        private final List<Channel> channels = new ArrayList<>();
+        private volatile boolean cancelled;
+
+        synchronized void attach(Channel channel) {
+            channels.add(channel);
+            // cancel() may have raced with channel setup
+            if (cancelled) {
+                channel.disconnect();
+            }
+        }
+
+        void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException("Transfer cancelled");
+            }
+        }
+
+        synchronized void closeChannels() {
+            channels.forEach(Channel::disconnect);
+            channels.clear();
+        }
+
+        synchronized boolean cancel() {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            channels.forEach(Channel::disconnect);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.helperlib.command.sftp;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandFactory;
+import com.helperlib.api.command.CommandMetadata;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+/**
+ * Factory for {@link SftpTransferCommand}.
+ * Not registered as a ServiceLoader provider, for the same reason as the remote exec factory: the API's
+ * CommandType has no file-transfer value and the TERMINAL slot belongs to TerminalCommandFactory.
+ */
+public class SftpTransferCommandFactory implements CommandFactory {
+
+    @Override
+    public CommandMetadata parseMetadata(JsonObject json) {
+        String type = json.getString("type", SftpTransferCommandMetadata.SERIALIZED_TYPE);
+        if (!SftpTransferCommandMetadata.SERIALIZED_TYPE.equals(type)) {
+            throw new IllegalArgumentException("Not SFTP transfer metadata: type " + type);
+        }
+        String name = json.getString("name");
+        String description = json.getString("description", "SFTP transfer");
+
+        // SSH
+        String host = json.getString("host");
+        int port = json.getInt("port", 22);
+        String username = json.getString("username");
+
+        // Auth
+        TunnelAuthType authType = TunnelAuthType.valueOf(json.getString("authType", "PASSWORD"));
+        String password = json.getString("password", "");
+        String privateKeyPath = json.getString("privateKeyPath", "");
+        String passphrase = json.getString("passphrase", "");
+
+        // Host key verification
+        boolean strictHK = json.getBoolean("strictHostKeyChecking", false);
+        String knownHostsPath = json.getString("knownHostsPath", "");
+
+        // Transfer and timings
+        SftpDirection direction = SftpDirection.valueOf(json.getString("direction", "DOWNLOAD"));
+        String localPath = json.getString("localPath");
+        String remotePath = json.getString("remotePath");
+        int connectTimeoutMs = json.getInt("connectTimeoutMs", 10_000);
+        int keepAliveIntervalSec = json.getInt("keepAliveIntervalSec", 30);
+
+        SftpTransferCommandMetadata metadata = new SftpTransferCommandMetadata(
+                name, description,
+                host, port, username,
+                authType, password, privateKeyPath, passphrase,
+                strictHK, knownHostsPath,
+                direction, localPath, remotePath,
+                connectTimeoutMs, keepAliveIntervalSec
+        );
+
+        // Optional tuning
+        metadata.setParallelChannels(json.getInt("parallelChannels", SftpTransferCommandMetadata.DEFAULT_PARALLEL_CHANNELS));
+        if (json.containsKey("chunkBytes")) {
+            metadata.setChunkBytes(json.getJsonNumber("chunkBytes").longValue());
+        }
+        metadata.setBulkRequests(json.getInt("bulkRequests", SftpTransferCommandMetadata.DEFAULT_BULK_REQUESTS));
+        metadata.setResume(json.getBoolean("resume", true));
+        metadata.setVerifyChecksum(json.getBoolean("verifyChecksum", true));
+        if (json.containsKey("expectedSha256")) {
+            metadata.setExpectedSha256(json.getString("expectedSha256"));
+        }
+        return metadata;
+    }
+
+    @Override
+    public JsonObject serializeMetadata(CommandMetadata meta) {
+        SftpTransferCommandMetadata m = (SftpTransferCommandMetadata) meta;
+        JsonObjectBuilder b = Json.createObjectBuilder()
+                .add("name", m.getName())
+                .add("description", m.getDescription())
+                .add("type", SftpTransferCommandMetadata.SERIALIZED_TYPE)
+                .add("host", m.getHost())
+                .add("port", m.getPort())
+                .add("username", m.getUsername())
+                .add("authType", m.getAuthType().name())
+                .add("strictHostKeyChecking", m.isStrictHostKeyChecking())
+                .add("direction", m.getDirection().name())
+                .add("localPath", m.getLocalPath())
+                .add("remotePath", m.getRemotePath())
+                .add("connectTimeoutMs", m.getConnectTimeoutMs())
+                .add("keepAliveIntervalSec", m.getKeepAliveIntervalSec())
+                .add("parallelChannels", m.getParallelChannels())
+                .add("chunkBytes", m.getChunkBytes())
+                .add("bulkRequests", m.getBulkRequests())
+                .add("resume", m.isResume())
+                .add("verifyChecksum", m.isVerifyChecksum());
+
+        // Optional fields
+        if (m.getKnownHostsPath() != null) b.add("knownHostsPath", m.getKnownHostsPath());
+        if (m.getPassword() != null) b.add("password", m.getPassword());
+        if (m.getPrivateKeyPath() != null) b.add("privateKeyPath", m.getPrivateKeyPath());
+        if (m.getPassphrase() != null) b.add("passphrase", m.getPassphrase());
+        if (m.getExpectedSha256() != null) b.add("expectedSha256", m.getExpectedSha256());
+
+        return b.build();
+    }
+
+    @Override
+    public Command createCommand(CommandMetadata metadata, StreamHandler streamHandler) {
+        return new SftpTransferCommand((SftpTransferCommandMetadata) metadata, streamHandler);
+    }
+}
@@ -0,0 +1,118 @@
+package com.helperlib.command.sftp;
+
+import com.helperlib.api.command.CommandType;
+import com.helperlib.command.ssh.SshCommandMetadata;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+
+/**
+ * Metadata for a file transfer over SFTP.
+ * The API has no dedicated command type for file transfers, so it is typed as TERMINAL in memory;
+ * it is saved as {@link #SERIALIZED_TYPE} so a reload never hands it to the terminal factory.
+ */
+public class SftpTransferCommandMetadata extends SshCommandMetadata {
+
+    /** Value of the "type" field in saved transfer metadata. */
+    public static final String SERIALIZED_TYPE = "SFTP_TRANSFER";
+
+    public static final int DEFAULT_PARALLEL_CHANNELS = 4;
+    public static final long DEFAULT_CHUNK_BYTES = 8L * 1024 * 1024;
+    public static final int DEFAULT_BULK_REQUESTS = 64;
+
+    // Transfer
+    private SftpDirection direction;
+    private String localPath;
+    private String remotePath;
+
+    // Optional tuning; set via setters
+    private int parallelChannels = DEFAULT_PARALLEL_CHANNELS; // SFTP channels per download
+    private long chunkBytes = DEFAULT_CHUNK_BYTES;           // size of each download range
+    private int bulkRequests = DEFAULT_BULK_REQUESTS;        // read requests in flight per channel
+    private boolean resume = true;                           // continue from a previous partial transfer
+    private boolean verifyChecksum = true;                   // compare SHA-256 of both ends
+    private String expectedSha256;                           // optional; checked instead of remote sha256sum
+
+    public SftpTransferCommandMetadata(
+            String name,
+            String description,
+            String host,
+            int port,
+            String username,
+            TunnelAuthType authType,
+            String password,
+            String privateKeyPath,
+            String passphrase,
+            boolean strictHostKeyChecking,
+            String knownHostsPath,
+            SftpDirection direction,
+            String localPath,
+            String remotePath,
+            int connectTimeoutMs,
+            int keepAliveIntervalSec
+    ) {
+        super(name, description, CommandType.TERMINAL,
+                host, port, username,
+                authType, password, privateKeyPath, passphrase,
+                strictHostKeyChecking, knownHostsPath,
+                connectTimeoutMs, keepAliveIntervalSec);
+        this.direction = direction;
+        this.localPath = localPath;
+        this.remotePath = remotePath;
+    }
+
+    // Getters and setters
+
+    public SftpDirection getDirection() {
+        return direction;
+    }
+    public void setDirection(SftpDirection direction) {
+        this.direction = direction;
+    }
+    public String getLocalPath() {
+        return localPath;
+    }
+    public void setLocalPath(String localPath) {
+        this.localPath = localPath;
+    }
+    public String getRemotePath() {
+        return remotePath;
+    }
+    public void setRemotePath(String remotePath) {
+        this.remotePath = remotePath;
+    }
+    public int getParallelChannels() {
+        return parallelChannels;
+    }
+    public void setParallelChannels(int parallelChannels) {
+        this.parallelChannels = parallelChannels;
+    }
+    public long getChunkBytes() {
+        return chunkBytes;
+    }
+    public void setChunkBytes(long chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+    public int getBulkRequests() {
+        return bulkRequests;
+    }
+    public void setBulkRequests(int bulkRequests) {
+        this.bulkRequests = bulkRequests;
+    }
+    public boolean isResume() {
+        return resume;
+    }
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+    public boolean isVerifyChecksum() {
+        return verifyChecksum;
+    }
+    public void setVerifyChecksum(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+    }
+    public String getExpectedSha256() {
+        return expectedSha256;
+    }
+    public void setExpectedSha256(String expectedSha256) {
+        this.expectedSha256 = expectedSha256;
+    }
+}
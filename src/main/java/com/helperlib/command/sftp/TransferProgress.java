@@ -0,0 +1,155 @@
+package com.helperlib.command.sftp;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.core.command.CommandExecutorService;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports transfer progress as text lines on the StreamHandler's "stdout" stream: one line per interval
+ * while bytes move, plus any messages written by the transfer.
+ */
+final class TransferProgress implements AutoCloseable {
+
+    private static final long REPORT_INTERVAL_MS = 500;
+    private static final double MIB = 1024.0 * 1024.0;
+
+    private final String label;
+    private final long totalBytes;
+    private final AtomicLong transferred = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long resumedBytes;
+
+    private final LineStream out = new LineStream();
+    private final CompletableFuture<Void> handlerDone;
+    private final Thread reporter;
+    private volatile boolean closed;
+
+    TransferProgress(StreamHandler streamHandler, String commandName, String label, long totalBytes) {
+        this.label = label;
+        this.totalBytes = totalBytes;
+        this.handlerDone = CompletableFuture
+                .supplyAsync(() -> streamHandler.handleStream(out, "stdout", commandName),
+                        CommandExecutorService.getVirtualThreadExecutor())
+                .thenCompose(f -> f);
+        this.reporter = Thread.ofVirtual().name("sftp-progress-" + commandName).start(this::reportLoop);
+    }
+
+    /**
+     * Counts bytes already present from an earlier, interrupted transfer.
+     */
+    void resumed(long bytes) {
+        resumedBytes = bytes;
+        transferred.addAndGet(bytes);
+    }
+
+    void add(long bytes) {
+        transferred.addAndGet(bytes);
+    }
+
+    long getTransferred() {
+        return transferred.get();
+    }
+
+    /**
+     * @return throughput of this run in MiB/s, excluding resumed bytes
+     */
+    double getThroughputMiBs() {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-6);
+        return (transferred.get() - resumedBytes) / MIB / seconds;
+    }
+
+    synchronized void message(String line) {
+        if (!closed) {
+            out.offer((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes a final progress line, ends the stream and waits for the handler to consume it.
+     */
+    @Override
+    public void close() {
+        reporter.interrupt();
+        message(progressLine());
+        synchronized (this) {
+            closed = true;
+            out.offer(LineStream.EOF);
+        }
+        handlerDone.join();
+    }
+
+    private void reportLoop() {
+        long last = -1;
+        while (!closed) {
+            try {
+                Thread.sleep(REPORT_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = transferred.get();
+            if (now != last) {
+                message(progressLine());
+                last = now;
+            }
+        }
+    }
+
+    private String progressLine() {
+        long done = transferred.get();
+        int percent = totalBytes > 0 ? (int) (done * 100 / totalBytes) : 100;
+        return String.format(Locale.ROOT, "%s %.1f MiB / %.1f MiB (%d%%) %.1f MiB/s",
+                label, done / MIB, totalBytes / MIB, percent, getThroughputMiBs());
+    }
+
+    /**
+     * Unbounded line queue exposed as an InputStream; progress lines are few and small.
+     */
+    private static final class LineStream extends InputStream {
+        static final byte[] EOF = new byte[0];
+
+        private final LinkedBlockingQueue<byte[]> lines = new LinkedBlockingQueue<>();
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean ended;
+
+        void offer(byte[] line) {
+            lines.add(line);
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                if (ended) {
+                    return -1;
+                }
+                try {
+                    current = lines.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+                position = 0;
+                ended = current == EOF;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
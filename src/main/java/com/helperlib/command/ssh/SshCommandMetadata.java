@@ -0,0 +1,137 @@
+package com.helperlib.command.ssh;
+
+import com.helperlib.api.command.CommandMetadata;
+import com.helperlib.api.command.CommandType;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+
+/**
+ * Base metadata for commands that run over an SSH connection: connection, auth and keepalive fields.
+ */
+public abstract class SshCommandMetadata extends CommandMetadata {
+
+    // SSH connection
+    private String host;
+    private int port; // default 22
+    private String username;
+
+    // Auth
+    private TunnelAuthType authType; // PASSWORD or PRIVATE_KEY
+    private String password;         // optional (PASSWORD)
+    private String privateKeyPath;   // optional (PRIVATE_KEY)
+    private String passphrase;       // optional (PRIVATE_KEY)
+
+    // Host key verification
+    private boolean strictHostKeyChecking; // default false
+    private String knownHostsPath;         // optional, used if provided
+
+    // Timeouts/keepalive
+    private int connectTimeoutMs;     // default 10000
+    private int keepAliveIntervalSec; // default 30
+
+    protected SshCommandMetadata(
+            String name,
+            String description,
+            CommandType type,
+            String host,
+            int port,
+            String username,
+            TunnelAuthType authType,
+            String password,
+            String privateKeyPath,
+            String passphrase,
+            boolean strictHostKeyChecking,
+            String knownHostsPath,
+            int connectTimeoutMs,
+            int keepAliveIntervalSec
+    ) {
+        super(name, description, type);
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.authType = authType;
+        this.password = password;
+        this.privateKeyPath = privateKeyPath;
+        this.passphrase = passphrase;
+        this.strictHostKeyChecking = strictHostKeyChecking;
+        this.knownHostsPath = knownHostsPath;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.keepAliveIntervalSec = keepAliveIntervalSec;
+    }
+
+    /**
+     * @return connection settings; commands with equal settings share pooled sessions
+     */
+    public SshConnectionSettings toConnectionSettings() {
+        return new SshConnectionSettings(host, port, username, authType, password, privateKeyPath, passphrase,
+                strictHostKeyChecking, knownHostsPath, connectTimeoutMs, keepAliveIntervalSec, 0);
+    }
+
+    // Getters and setters
+
+    public String getHost() {
+        return host;
+    }
+    public void setHost(String host) {
+        this.host = host;
+    }
+    public int getPort() {
+        return port;
+    }
+    public void setPort(int port) {
+        this.port = port;
+    }
+    public String getUsername() {
+        return username;
+    }
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    public TunnelAuthType getAuthType() {
+        return authType;
+    }
+    public void setAuthType(TunnelAuthType authType) {
+        this.authType = authType;
+    }
+    public String getPassword() {
+        return password;
+    }
+    public void setPassword(String password) {
+        this.password = password;
+    }
+    public String getPrivateKeyPath() {
+        return privateKeyPath;
+    }
+    public void setPrivateKeyPath(String privateKeyPath) {
+        this.privateKeyPath = privateKeyPath;
+    }
+    public String getPassphrase() {
+        return passphrase;
+    }
+    public void setPassphrase(String passphrase) {
+        this.passphrase = passphrase;
+    }
+    public boolean isStrictHostKeyChecking() {
+        return strictHostKeyChecking;
+    }
+    public void setStrictHostKeyChecking(boolean strictHostKeyChecking) {
+        this.strictHostKeyChecking = strictHostKeyChecking;
+    }
+    public String getKnownHostsPath() {
+        return knownHostsPath;
+    }
+    public void setKnownHostsPath(String knownHostsPath) {
+        this.knownHostsPath = knownHostsPath;
+    }
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+    public int getKeepAliveIntervalSec() {
+        return keepAliveIntervalSec;
+    }
+    public void setKeepAliveIntervalSec(int keepAliveIntervalSec) {
+        this.keepAliveIntervalSec = keepAliveIntervalSec;
+    }
+}
@@ -0,0 +1,56 @@
+package com.helperlib.command.ssh;
+
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+
+import java.util.Objects;
+
+/**
+ * Everything needed to open an SSH session; also the key under which {@link SshSessionPool} shares sessions.
+ *
+ * @param host                  SSH server host
+ * @param port                  SSH server port; values &lt;= 0 mean 22
+ * @param username              login user
+ * @param authType              PASSWORD or PRIVATE_KEY
+ * @param password              password for PASSWORD auth
+ * @param privateKeyPath        key file for PRIVATE_KEY auth
+ * @param passphrase            optional key passphrase
+ * @param strictHostKeyChecking verify the host key against known hosts
+ * @param knownHostsPath        optional known_hosts file
+ * @param connectTimeoutMs      connect timeout; values &lt;= 0 mean 10 s
+ * @param keepAliveIntervalSec  server-alive interval; 0 disables
+ * @param keepAliveCountMax     unanswered server-alive messages before the session is dropped; values &lt;= 0
+ *                              keep the JSch default (1)
+ */
+public record SshConnectionSettings(String host,
+                                    int port,
+                                    String username,
+                                    TunnelAuthType authType,
+                                    String password,
+                                    String privateKeyPath,
+                                    String passphrase,
+                                    boolean strictHostKeyChecking,
+                                    String knownHostsPath,
+                                    int connectTimeoutMs,
+                                    int keepAliveIntervalSec,
+                                    int keepAliveCountMax) {
+
+    public SshConnectionSettings {
+        Objects.requireNonNull(host, "host");
+        Objects.requireNonNull(username, "username");
+        port = port > 0 ? port : 22;
+        authType = authType != null ? authType : TunnelAuthType.PASSWORD;
+        connectTimeoutMs = Math.max(1000, connectTimeoutMs > 0 ? connectTimeoutMs : 10_000);
+    }
+
+    /**
+     * @return user@host:port, without secrets; for logging
+     */
+    public String describe() {
+        return username + "@" + host + ":" + port;
+    }
+
+    @Override
+    public String toString() {
+        return "SshConnectionSettings[" + describe() + ", " + authType + "]";
+    }
+}
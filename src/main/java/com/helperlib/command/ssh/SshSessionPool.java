@@ -0,0 +1,252 @@
+package com.helperlib.command.ssh;
+
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide pool of connected JSch sessions, shared by everything that talks to the same server
+ * with the same credentials (see {@link SshConnectionSettings}).
+ * Sessions are reference counted through {@link Lease}s; after the last lease is closed a session lingers
+ * for the idle timeout so that a burst of commands against one host pays for a single handshake.
+ * A session found disconnected is replaced transparently on the next acquire.
+ */
+public final class SshSessionPool {
+
+    private static final Object lock = new Object();
+    private static final Map<SshConnectionSettings, PooledSession> sessions = new HashMap<>();
+    private static Duration idleTimeout = Duration.ofSeconds(60);
+
+    private static final LongAdder handshakes = new LongAdder();
+
+    private SshSessionPool() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Returns a lease on a connected session for the settings, connecting only if no live session exists.
+     */
+    public static Lease acquire(SshConnectionSettings settings) throws JSchException {
+        Objects.requireNonNull(settings, "settings");
+        PooledSession pooled;
+        synchronized (lock) {
+            pooled = sessions.get(settings);
+            if (pooled == null || pooled.isBroken()) {
+                if (pooled != null) {
+                    pooled.retire();
+                }
+                pooled = new PooledSession(settings);
+                sessions.put(settings, pooled);
+            }
+            pooled.leases++;
+            pooled.idleGeneration++;
+        }
+
+        try {
+            pooled.ensureConnected();
+        } catch (JSchException | RuntimeException e) {
+            synchronized (lock) {
+                pooled.leases--;
+                sessions.remove(settings, pooled);
+            }
+            throw e;
+        }
+        return new Lease(pooled);
+    }
+
+    /**
+     * Sets how long an unused session stays connected; applies to sessions released afterwards.
+     */
+    public static void setIdleTimeout(Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout");
+        synchronized (lock) {
+            idleTimeout = timeout;
+        }
+    }
+
+    public static Duration getIdleTimeout() {
+        synchronized (lock) {
+            return idleTimeout;
+        }
+    }
+
+    /**
+     * @return number of SSH handshakes (new connections) performed since startup
+     */
+    public static long getHandshakeCount() {
+        return handshakes.sum();
+    }
+
+    /**
+     * @return number of pooled sessions, in use or lingering
+     */
+    public static int size() {
+        synchronized (lock) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Empties the pool. Idle sessions are disconnected now; sessions in use once their last lease is closed.
+     */
+    public static void closeAll() {
+        synchronized (lock) {
+            sessions.values().forEach(PooledSession::retire);
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Opens and connects a standalone JSch session that is not pooled.
+     */
+    public static Session connect(SshConnectionSettings s) throws JSchException {
+        JSch jsch = new JSch();
+
+        if (s.knownHostsPath() != null && !s.knownHostsPath().isBlank()) {
+            jsch.setKnownHosts(s.knownHostsPath());
+        }
+
+        if (s.authType() == TunnelAuthType.PRIVATE_KEY) {
+            if (s.privateKeyPath() == null || s.privateKeyPath().isBlank()) {
+                throw new IllegalArgumentException("privateKeyPath is required for PRIVATE_KEY auth");
+            }
+            if (s.passphrase() != null && !s.passphrase().isEmpty()) {
+                jsch.addIdentity(s.privateKeyPath(), s.passphrase());
+            } else {
+                jsch.addIdentity(s.privateKeyPath());
+            }
+        }
+
+        Session session = jsch.getSession(s.username(), s.host(), s.port());
+
+        if (s.authType() == TunnelAuthType.PASSWORD) {
+            if (s.password() == null) {
+                throw new IllegalArgumentException("password is required for PASSWORD auth");
+            }
+            session.setPassword(s.password());
+        }
+
+        Properties cfg = new Properties();
+        cfg.put("StrictHostKeyChecking", s.strictHostKeyChecking() ? "yes" : "no");
+        session.setConfig(cfg);
+
+        if (s.keepAliveIntervalSec() > 0) {
+            session.setServerAliveInterval(s.keepAliveIntervalSec() * 1000);
+        }
+        if (s.keepAliveCountMax() > 0) {
+            session.setServerAliveCountMax(s.keepAliveCountMax());
+        }
+
+        session.connect(s.connectTimeoutMs());
+        handshakes.increment();
+        return session;
+    }
+
+    /**
+     * A reference to a pooled session. Closing it releases the reference; the session itself stays
+     * connected for the idle timeout. Call {@link #invalidate()} when the session proved unusable.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final PooledSession pooled;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Lease(PooledSession pooled) {
+            this.pooled = pooled;
+        }
+
+        public Session getSession() {
+            return pooled.session;
+        }
+
+        /**
+         * Drops the session from the pool, so the next acquire reconnects. Other leases keep using it.
+         */
+        public void invalidate() {
+            synchronized (lock) {
+                sessions.remove(pooled.settings, pooled);
+                pooled.broken = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                pooled.release();
+            }
+        }
+    }
+
+    private static final class PooledSession {
+        final SshConnectionSettings settings;
+        // Guarded by 'lock'
+        int leases;
+        long idleGeneration;
+        boolean broken;
+        volatile Session session;
+
+        PooledSession(SshConnectionSettings settings) {
+            this.settings = settings;
+        }
+
+        // Connecting happens outside the pool lock; concurrent acquirers of the same settings wait here
+        synchronized void ensureConnected() throws JSchException {
+            if (session == null) {
+                session = connect(settings);
+            }
+        }
+
+        boolean isBroken() {
+            Session s = session;
+            return broken || (s != null && !s.isConnected());
+        }
+
+        void release() {
+            long generation;
+            Duration linger;
+            synchronized (lock) {
+                if (--leases > 0) {
+                    return;
+                }
+                if (broken || sessions.get(settings) != this) {
+                    retire();
+                    return;
+                }
+                generation = ++idleGeneration;
+                linger = idleTimeout;
+            }
+            Thread.ofVirtual().name("ssh-session-linger-" + settings.host()).start(() -> {
+                try {
+                    Thread.sleep(linger);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (lock) {
+                    // Re-acquired (or released again) in the meantime
+                    if (leases > 0 || idleGeneration != generation) {
+                        return;
+                    }
+                    sessions.remove(settings, this);
+                    retire();
+                }
+            });
+        }
+
+        void retire() {
+            Session s = session;
+            if (s != null && leases <= 0) {
+                s.disconnect();
+            } else {
+                broken = true;
+            }
+        }
+    }
+}
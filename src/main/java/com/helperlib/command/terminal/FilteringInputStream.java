@@ -0,0 +1,124 @@
+package com.helperlib.command.terminal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Yields only the lines a {@link TerminalOutputFilter} forwards, in a single pass over the source bytes.
+ * Memory is bounded by {@link #MAX_LINE_BYTES}: longer lines are cut at that length and the rest of the
+ * line is skipped.
+ */
+final class FilteringInputStream extends InputStream {
+
+    static final int MAX_LINE_BYTES = 1024 * 1024;
+
+    private final InputStream source;
+    private final TerminalOutputFilter filter;
+    private final byte[] readBuffer = new byte[8192];
+    private int readPosition;
+    private int readLimit;
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private boolean skippingRestOfLine;
+    private boolean sourceDone;
+
+    private byte[] pending = new byte[0];
+    private int pendingPosition;
+
+    FilteringInputStream(InputStream source, TerminalOutputFilter filter) {
+        this.source = source;
+        this.filter = filter;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return pending[pendingPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, pending.length - pendingPosition);
+        System.arraycopy(pending, pendingPosition, b, off, n);
+        pendingPosition += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Makes sure forwarded bytes are pending.
+     *
+     * @return false at end of stream
+     */
+    private boolean fill() throws IOException {
+        while (pendingPosition == pending.length) {
+            String completed = nextLine();
+            if (completed == null) {
+                return false;
+            }
+            String forwarded = filter.apply(completed);
+            if (forwarded != null) {
+                pending = (forwarded + "\n").getBytes(StandardCharsets.UTF_8);
+                pendingPosition = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the next line without terminator, or null at end of stream
+     */
+    private String nextLine() throws IOException {
+        while (true) {
+            if (readPosition == readLimit) {
+                if (sourceDone) {
+                    return null;
+                }
+                int n = source.read(readBuffer);
+                if (n == -1) {
+                    sourceDone = true;
+                    // Unterminated last line
+                    return line.size() > 0 || skippingRestOfLine ? takeLine() : null;
+                }
+                readPosition = 0;
+                readLimit = n;
+            }
+            while (readPosition < readLimit) {
+                byte b = readBuffer[readPosition++];
+                if (b == '\n') {
+                    return takeLine();
+                }
+                if (line.size() < MAX_LINE_BYTES) {
+                    line.write(b);
+                } else {
+                    skippingRestOfLine = true;
+                }
+            }
+        }
+    }
+
+    private String takeLine() {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        line.reset();
+        skippingRestOfLine = false;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+package com.helperlib.command.terminal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Periodically samples CPU, memory and I/O usage of a process tree while it runs.
+ * The kernel drops /proc/&lt;pid&gt; as soon as a process is reaped, so figures are the last values
+ * seen per pid; the final interval before exit is therefore not accounted for.
+ */
+final class ProcessResourceSampler {
+
+    private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(200);
+    private static final Path PROC = Path.of("/proc");
+    // USER_HZ; fixed at 100 on every mainstream Linux architecture
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private final Process process;
+    private final boolean procAvailable = Files.isDirectory(PROC.resolve("self"));
+
+    // Latest per-pid readings, so exited children keep contributing their last known usage
+    private final Map<Long, long[]> cpuTicksByPid = new HashMap<>();   // {utime, stime}
+    private final Map<Long, long[]> ioBytesByPid = new HashMap<>();    // {read_bytes, write_bytes}
+    private long peakRssBytes = -1;
+    private long cpuTotalMs = -1;
+
+    private final Thread samplerThread;
+
+    private ProcessResourceSampler(Process process) {
+        this.process = process;
+        this.samplerThread = Thread.ofVirtual()
+                .name("terminal-metrics-" + process.pid())
+                .start(this::sampleLoop);
+    }
+
+    static ProcessResourceSampler start(Process process) {
+        return new ProcessResourceSampler(process);
+    }
+
+    /**
+     * Stops sampling and combines the sampled figures with the given output byte counts.
+     */
+    TerminalProcessMetrics finish(long stdoutBytes, long stderrBytes) {
+        samplerThread.interrupt();
+        try {
+            samplerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            long userMs = -1;
+            long systemMs = -1;
+            long readBytes = -1;
+            long writeBytes = -1;
+
+            if (!cpuTicksByPid.isEmpty()) {
+                long userTicks = 0;
+                long systemTicks = 0;
+                for (long[] ticks : cpuTicksByPid.values()) {
+                    userTicks += ticks[0];
+                    systemTicks += ticks[1];
+                }
+                userMs = userTicks * 1000 / CLOCK_TICKS_PER_SECOND;
+                systemMs = systemTicks * 1000 / CLOCK_TICKS_PER_SECOND;
+            }
+            if (!ioBytesByPid.isEmpty()) {
+                readBytes = 0;
+                writeBytes = 0;
+                for (long[] io : ioBytesByPid.values()) {
+                    readBytes += io[0];
+                    writeBytes += io[1];
+                }
+            }
+
+            long totalMs = cpuTotalMs;
+            if (userMs >= 0 && userMs + systemMs > totalMs) {
+                totalMs = userMs + systemMs;
+            }
+
+            return new TerminalProcessMetrics(process.pid(), userMs, systemMs, totalMs,
+                    peakRssBytes, readBytes, writeBytes, stdoutBytes, stderrBytes);
+        }
+    }
+
+    private void sampleLoop() {
+        try {
+            while (process.isAlive()) {
+                sample();
+                Thread.sleep(SAMPLE_INTERVAL);
+            }
+        } catch (InterruptedException ignored) {
+            // finish() was called
+        }
+    }
+
+    private synchronized void sample() {
+        List<ProcessHandle> tree;
+        try (Stream<ProcessHandle> descendants = process.descendants()) {
+            tree = Stream.concat(Stream.of(process.toHandle()), descendants).toList();
+        }
+
+        process.info().totalCpuDuration()
+                .ifPresent(d -> cpuTotalMs = Math.max(cpuTotalMs, d.toMillis()));
+
+        if (!procAvailable) {
+            return;
+        }
+
+        long treeRssBytes = 0;
+        for (ProcessHandle handle : tree) {
+            long pid = handle.pid();
+            Path dir = PROC.resolve(Long.toString(pid));
+            try {
+                long[] ticks = readCpuTicks(dir);
+                if (ticks != null) {
+                    cpuTicksByPid.put(pid, ticks);
+                }
+                long[] memory = readMemoryKb(dir);
+                if (memory != null) {
+                    treeRssBytes += memory[0] * 1024;
+                    peakRssBytes = Math.max(peakRssBytes, memory[1] * 1024);
+                }
+                long[] io = readIoBytes(dir);
+                if (io != null) {
+                    ioBytesByPid.put(pid, io);
+                }
+            } catch (IOException | RuntimeException ignored) {
+                // Process exited between listing and reading, or the file is not readable
+            }
+        }
+        peakRssBytes = Math.max(peakRssBytes, treeRssBytes);
+    }
+
+    private static long[] readCpuTicks(Path dir) throws IOException {
+        String stat = Files.readString(dir.resolve("stat"));
+        // comm (field 2) may contain spaces and parentheses; fields after it are space separated
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        // fields[0] is state (field 3); utime and stime are fields 14 and 15
+        return new long[]{Long.parseLong(fields[11]), Long.parseLong(fields[12])};
+    }
+
+    /**
+     * @return {VmRSS, VmHWM} in kB, or null if not reported (e.g. zombie)
+     */
+    private static long[] readMemoryKb(Path dir) throws IOException {
+        long rss = -1;
+        long hwm = -1;
+        for (String line : Files.readAllLines(dir.resolve("status"))) {
+            if (line.startsWith("VmRSS:")) {
+                rss = parseKb(line);
+            } else if (line.startsWith("VmHWM:")) {
+                hwm = parseKb(line);
+            }
+        }
+        return rss < 0 && hwm < 0 ? null : new long[]{Math.max(rss, 0), Math.max(hwm, 0)};
+    }
+
+    private static long[] readIoBytes(Path dir) throws IOException {
+        Path io = dir.resolve("io");
+        if (!Files.isReadable(io)) {
+            return null;
+        }
+        long read = 0;
+        long write = 0;
+        for (String line : Files.readAllLines(io)) {
+            if (line.startsWith("read_bytes:")) {
+                read = Long.parseLong(line.substring("read_bytes:".length()).trim());
+            } else if (line.startsWith("write_bytes:")) {
+                write = Long.parseLong(line.substring("write_bytes:".length()).trim());
+            }
+        }
+        return new long[]{read, write};
+    }
+
+    private static long parseKb(String line) {
+        // e.g. "VmHWM:\t    1234 kB"
+        String value = line.substring(line.indexOf(':') + 1).trim();
+        int space = value.indexOf(' ');
+        return Long.parseLong(space > 0 ? value.substring(0, space) : value);
+    }
+}
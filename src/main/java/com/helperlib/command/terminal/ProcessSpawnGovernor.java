@@ -0,0 +1,301 @@
+package com.helperlib.command.terminal;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide limiter for terminal process spawns.
+ * Enforces a global cap on concurrently running processes plus optional per-command (metadata name) and
+ * per-group ("category/group") caps. Callers that cannot run immediately wait in a queue ordered by
+ * priority (higher first), then arrival (FIFO); whenever a slot frees up, the first waiter whose caps allow
+ * it is admitted. All limits can be changed at runtime and take effect immediately.
+ * Defaults are unlimited, so the governor is transparent until configured.
+ */
+public final class ProcessSpawnGovernor {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Upper bound for one wait slice, so cancellation of a queued execution is noticed promptly
+    private static final long CANCEL_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final TreeSet<Waiter> waiters = new TreeSet<>(
+            Comparator.comparingInt((Waiter w) -> -w.priority).thenComparingLong(w -> w.sequence));
+
+    private static int globalLimit = UNLIMITED;
+    private static final Map<String, Integer> commandLimits = new HashMap<>();
+    private static final Map<String, Integer> groupLimits = new HashMap<>();
+    private static Duration waitTimeout = Duration.ofMinutes(5);
+
+    private static int active;
+    private static final Map<String, Integer> activeByCommand = new HashMap<>();
+    private static final Map<String, Integer> activeByGroup = new HashMap<>();
+
+    private static long nextSequence;
+    private static long totalAdmitted;
+    private static long totalTimedOut;
+    private static long totalWaitNanos;
+    private static long maxWaitNanos;
+
+    private ProcessSpawnGovernor() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Waits for a process slot using the configured wait timeout.
+     *
+     * @see #acquire(String, String, int, Duration, BooleanSupplier)
+     */
+    public static Permit acquire(String commandKey, String groupKey, int priority)
+            throws InterruptedException, TimeoutException {
+        return acquire(commandKey, groupKey, priority, getWaitTimeout(), () -> false);
+    }
+
+    /**
+     * Waits until the global, command and group caps admit one more process.
+     *
+     * @param commandKey command identity for per-command caps (usually the metadata name)
+     * @param groupKey   "category/group" for per-group caps, or null
+     * @param priority   higher values are admitted first
+     * @param timeout    maximum time to wait in the queue
+     * @param cancelled  polled while waiting; returning true abandons the wait
+     * @return a permit that must be closed once the process has finished
+     * @throws TimeoutException      if no slot became available within the timeout
+     * @throws CancellationException if {@code cancelled} turned true while waiting
+     */
+    public static Permit acquire(String commandKey, String groupKey, int priority,
+                                 Duration timeout, BooleanSupplier cancelled)
+            throws InterruptedException, TimeoutException {
+        Objects.requireNonNull(timeout, "timeout");
+        Objects.requireNonNull(cancelled, "cancelled");
+
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(commandKey, groupKey, priority, nextSequence++, lock.newCondition());
+            waiters.add(waiter);
+            dispatch();
+
+            long remaining = timeout.toNanos();
+            try {
+                while (!waiter.admitted) {
+                    if (cancelled.getAsBoolean()) {
+                        waiters.remove(waiter);
+                        throw new CancellationException("Cancelled while waiting for a process slot");
+                    }
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        totalTimedOut++;
+                        throw new TimeoutException("Timed out after " + timeout.toMillis()
+                                + " ms waiting for a process slot for '" + commandKey + "'");
+                    }
+                    long slice = Math.min(remaining, CANCEL_CHECK_NANOS);
+                    remaining -= slice - waiter.condition.awaitNanos(slice);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.admitted) {
+                    releaseLocked(commandKey, groupKey);
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+
+            long waited = System.nanoTime() - start;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+            return new Permit(commandKey, groupKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static void setGlobalLimit(int limit) {
+        configure(() -> globalLimit = requirePositive(limit));
+    }
+
+    public static int getGlobalLimit() {
+        return read(() -> globalLimit);
+    }
+
+    /**
+     * Caps concurrent processes of one command; {@link #UNLIMITED} removes the cap.
+     */
+    public static void setCommandLimit(String commandKey, int limit) {
+        configure(() -> putLimit(commandLimits, commandKey, limit));
+    }
+
+    /**
+     * Caps concurrent processes of one "category/group"; {@link #UNLIMITED} removes the cap.
+     */
+    public static void setGroupLimit(String groupKey, int limit) {
+        configure(() -> putLimit(groupLimits, groupKey, limit));
+    }
+
+    public static void setWaitTimeout(Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout");
+        configure(() -> waitTimeout = timeout);
+    }
+
+    public static Duration getWaitTimeout() {
+        return read(() -> waitTimeout);
+    }
+
+    /**
+     * @return current gauges: running processes, queue depth and wait times
+     */
+    public static SpawnGovernorStatistics getStatistics() {
+        return read(() -> new SpawnGovernorStatistics(
+                active,
+                waiters.size(),
+                totalAdmitted,
+                totalTimedOut,
+                totalAdmitted == 0 ? 0 : totalWaitNanos / 1_000_000.0 / totalAdmitted,
+                maxWaitNanos / 1_000_000.0
+        ));
+    }
+
+    /**
+     * Builds the group key used for per-group caps from a command execution context.
+     */
+    public static String groupKey(Map<String, String> executionContext) {
+        if (executionContext == null) {
+            return null;
+        }
+        String category = executionContext.get("category");
+        String group = executionContext.get("group");
+        return category == null || group == null ? null : category + "/" + group;
+    }
+
+    // Admits waiters in queue order as long as their caps allow it. Caller holds the lock.
+    private static void dispatch() {
+        Iterator<Waiter> it = waiters.iterator();
+        while (it.hasNext() && active < globalLimit) {
+            Waiter w = it.next();
+            if (withinLimit(commandLimits, activeByCommand, w.commandKey)
+                    && withinLimit(groupLimits, activeByGroup, w.groupKey)) {
+                it.remove();
+                active++;
+                increment(activeByCommand, w.commandKey, 1);
+                increment(activeByGroup, w.groupKey, 1);
+                totalAdmitted++;
+                w.admitted = true;
+                w.condition.signal();
+            }
+        }
+    }
+
+    private static void releaseLocked(String commandKey, String groupKey) {
+        active--;
+        increment(activeByCommand, commandKey, -1);
+        increment(activeByGroup, groupKey, -1);
+        dispatch();
+    }
+
+    private static boolean withinLimit(Map<String, Integer> limits, Map<String, Integer> counts, String key) {
+        if (key == null) {
+            return true;
+        }
+        Integer limit = limits.get(key);
+        return limit == null || counts.getOrDefault(key, 0) < limit;
+    }
+
+    private static void increment(Map<String, Integer> counts, String key, int delta) {
+        if (key != null) {
+            counts.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+        }
+    }
+
+    private static void putLimit(Map<String, Integer> limits, String key, int limit) {
+        Objects.requireNonNull(key, "key");
+        if (requirePositive(limit) == UNLIMITED) {
+            limits.remove(key);
+        } else {
+            limits.put(key, limit);
+        }
+    }
+
+    private static int requirePositive(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return limit;
+    }
+
+    private static void configure(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+            // A raised limit may admit queued executions
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <T> T read(Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Slot held by one running process; closing it admits the next waiter.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final String commandKey;
+        private final String groupKey;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(String commandKey, String groupKey) {
+            this.commandKey = commandKey;
+            this.groupKey = groupKey;
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            lock.lock();
+            try {
+                releaseLocked(commandKey, groupKey);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        final String commandKey;
+        final String groupKey;
+        final int priority;
+        final long sequence;
+        final Condition condition;
+        boolean admitted;
+
+        Waiter(String commandKey, String groupKey, int priority, long sequence, Condition condition) {
+            this.commandKey = commandKey;
+            this.groupKey = groupKey;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+}
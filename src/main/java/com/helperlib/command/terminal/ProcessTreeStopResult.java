@@ -0,0 +1,20 @@
+package com.helperlib.command.terminal;
+
+/**
+ * Outcome of {@link TerminalProcessExecutor#stopProcessTree(Process, long)}.
+ *
+ * @param signalledProcesses processes sent a termination request (the root and its descendants)
+ * @param forciblyKilled     processes still alive after the grace period and killed forcibly
+ * @param elapsedMs          time from the termination request until the tree was down or killed
+ */
+public record ProcessTreeStopResult(int signalledProcesses,
+                                    int forciblyKilled,
+                                    long elapsedMs) {
+
+    /**
+     * @return true if every process exited within the grace period
+     */
+    public boolean graceful() {
+        return forciblyKilled == 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.helperlib.command.terminal;
+
+/**
+ * Snapshot of {@link ProcessSpawnGovernor} gauges.
+ *
+ * @param activeProcesses processes currently holding a slot
+ * @param queueDepth      executions waiting for a slot
+ * @param totalAdmitted   executions admitted since startup
+ * @param totalTimedOut   executions that gave up waiting
+ * @param averageWaitMs   average time from request to admission
+ * @param maxWaitMs       longest time from request to admission
+ */
+public record SpawnGovernorStatistics(int activeProcesses,
+                                      int queueDepth,
+                                      long totalAdmitted,
+                                      long totalTimedOut,
+                                      double averageWaitMs,
+                                      double maxWaitMs) {
+}
@@ -0,0 +1,62 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.command.logging.OutputSpool;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Copies everything read through it into an {@link OutputSpool}.
+ * A failing spool (e.g. disk full) is abandoned so the output keeps flowing to the StreamHandler.
+ * A full disk can also surface as an {@link InternalError} when a mapped segment page cannot be backed.
+ */
+final class SpoolingInputStream extends FilterInputStream {
+
+    private final OutputSpool spool;
+    private final String description;
+    private boolean spoolFailed;
+
+    SpoolingInputStream(InputStream in, OutputSpool spool, String description) {
+        super(in);
+        this.spool = spool;
+        this.description = description;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            spool(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            spool(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Read through, so skipped output still reaches the spool
+        byte[] discard = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        return Math.max(read(discard, 0, discard.length), 0);
+    }
+
+    private void spool(byte[] b, int off, int len) {
+        if (spoolFailed) {
+            return;
+        }
+        try {
+            spool.write(b, off, len);
+        } catch (IOException | RuntimeException | InternalError e) {
+            spoolFailed = true;
+            System.err.println("Output spool for " + description + " stopped: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.helperlib.command.terminal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Feeds a streamed stdin source into a running process on a virtual thread.
+ * Copies through a single fixed-size buffer, so memory stays bounded and a slow reader
+ * throttles the source. Closing process stdin after the source is drained signals EOF.
+ */
+final class StdinPump {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Supplier<InputStream> source;
+    private final Process process;
+    private final Thread thread;
+    private volatile InputStream input;
+
+    private StdinPump(Supplier<InputStream> source, Process process) {
+        this.source = source;
+        this.process = process;
+        this.thread = Thread.ofVirtual().name("terminal-stdin-" + process.pid()).start(this::pump);
+    }
+
+    /**
+     * @return a running pump, or null if the metadata has no streamed stdin source
+     */
+    static StdinPump start(TerminalCommandMetadata metadata, Process process) {
+        Supplier<InputStream> source = metadata.getStdinSupplier();
+        if (source == null && metadata.getStdinText() != null) {
+            byte[] text = metadata.getStdinText().getBytes(StandardCharsets.UTF_8);
+            source = () -> new ByteArrayInputStream(text);
+        }
+        return source == null ? null : new StdinPump(source, process);
+    }
+
+    /**
+     * Called once the process has exited; unblocks a pump still waiting on its source.
+     */
+    void stop() {
+        InputStream in = input;
+        if (thread.isAlive() && in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+        thread.interrupt();
+    }
+
+    private void pump() {
+        try (OutputStream stdin = process.getOutputStream()) {
+            InputStream in = source.get();
+            input = in;
+            try (in) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    stdin.write(buffer, 0, n);
+                }
+                stdin.flush();
+            }
+        } catch (IOException e) {
+            // The process stopped reading (exited or closed stdin); nothing left to feed
+            if (process.isAlive()) {
+                System.err.println("Feeding stdin failed: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            if (process.isAlive()) {
+                System.err.println("Opening stdin source failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -3,13 +3,25 @@ package com.helperlib.command.terminal;
 import com.helperlib.api.command.Command;
 import com.helperlib.api.command.CommandResult;
 import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.logging.OutputSpool;
 import com.helperlib.core.command.CommandExecutorService;
 
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TerminalCommand extends Command {
 
+    // Receives resource usage of every terminal command execution without its own listener
+    private static volatile TerminalMetricsListener globalMetricsListener;
+
     private final StreamHandler streamHandler;
+    private volatile TerminalMetricsListener metricsListener;
+
+    // In-flight executions, so cancel() can reach their process trees
+    private final Set<TerminalExecutionHandle> activeExecutions = ConcurrentHashMap.newKeySet();
+    private volatile TerminalExecutionHandle latestExecution;
 
     public TerminalCommand(TerminalCommandMetadata metadata, StreamHandler streamHandler) {
         super(metadata);
@@ -18,22 +30,112 @@ public class TerminalCommand extends Command {
 
     @Override
     public CompletableFuture<CommandResult> executeAsync() {
-        return CompletableFuture.supplyAsync(() -> {
+        TerminalMetricsListener listener = effectiveMetricsListener();
+        TerminalExecutionHandle handle = new TerminalExecutionHandle();
+        handle.setCollectResourceMetrics(listener != null);
+        activeExecutions.add(handle);
+        latestExecution = handle;
+
+        CompletableFuture<CommandResult> future = CompletableFuture.supplyAsync(() -> {
             long startTime = System.currentTimeMillis();
             TerminalCommandMetadata terminalMetadata = (TerminalCommandMetadata) metadata;
 
             try {
-                CommandResult result = TerminalProcessExecutor.executeProcess(terminalMetadata, streamHandler);
+                // Memoized commands may be answered from the cache without spawning
+                CommandResult result = TerminalResultCache.isCacheable(terminalMetadata)
+                        ? TerminalResultCache.getOrExecute(terminalMetadata, streamHandler, handle.cancellation(),
+                                handler -> spawn(terminalMetadata, handler, handle))
+                        : spawn(terminalMetadata, streamHandler, handle);
                 long executionTime = System.currentTimeMillis() - startTime;
 
                 // Return new result with actual execution time
-                return new CommandResult(result.success(), result.exitCode(), executionTime);
+                CommandResult timedResult = new CommandResult(result.success(), result.exitCode(), executionTime);
+                if (listener != null) {
+                    handle.getMetrics().ifPresent(m -> listener.onMetrics(terminalMetadata, timedResult, m));
+                }
+                return timedResult;
 
             } catch (Exception e) {
                 long executionTime = System.currentTimeMillis() - startTime;
+                if (handle.isCancelled()) {
+                    return new CommandResult(false, 130, executionTime);
+                }
                 System.err.println("Command execution failed: " + e.getMessage());
                 return new CommandResult(false, -1, executionTime);
+            } finally {
+                activeExecutions.remove(handle);
             }
         }, CommandExecutorService.getVirtualThreadExecutor());
+
+        // cancel() on the returned future must reach the child process, not just the future
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                handle.cancel();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Sets a listener receiving CPU, memory, I/O and output byte counts of each execution of this command.
+     * Enabling it turns on per-process resource sampling.
+     */
+    public void setMetricsListener(TerminalMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Sets a process-wide listener used by terminal commands that have no listener of their own,
+     * e.g. commands created through CommandRegistry. Pass null to disable.
+     */
+    public static void setGlobalMetricsListener(TerminalMetricsListener listener) {
+        globalMetricsListener = listener;
+    }
+
+    /**
+     * Cancels all in-flight executions of this command, killing their process trees.
+     * Futures returned by {@link #executeAsync()} then complete with exit code 130.
+     *
+     * @return true if at least one execution was cancelled
+     */
+    public boolean cancel() {
+        boolean cancelledAny = false;
+        for (TerminalExecutionHandle handle : activeExecutions) {
+            cancelledAny |= handle.cancel();
+        }
+        return cancelledAny;
+    }
+
+    /**
+     * Returns the output spool of the most recent execution, when {@code spoolDirectory} is configured.
+     * It can be read while the process is still running and stays readable after it finished.
+     *
+     * @param streamType "stdout" or "stderr"
+     */
+    public Optional<OutputSpool> getOutputSpool(String streamType) {
+        TerminalExecutionHandle latest = latestExecution;
+        return latest == null ? Optional.empty() : latest.getOutputSpool(streamType);
+    }
+
+    private static CommandResult spawn(TerminalCommandMetadata terminalMetadata,
+                                       StreamHandler handler,
+                                       TerminalExecutionHandle handle) throws Exception {
+        // Wait for a slot when spawn limits are configured; cancel() abandons the wait
+        ProcessSpawnGovernor.Permit permit = ProcessSpawnGovernor.acquire(
+                terminalMetadata.getName(),
+                ProcessSpawnGovernor.groupKey(terminalMetadata.getExecutionContext()),
+                terminalMetadata.getSpawnPriority(),
+                ProcessSpawnGovernor.getWaitTimeout(),
+                handle::isCancelled);
+        try {
+            return TerminalProcessExecutor.executeProcess(terminalMetadata, handler, handle);
+        } finally {
+            permit.close();
+        }
+    }
+
+    private TerminalMetricsListener effectiveMetricsListener() {
+        TerminalMetricsListener own = metricsListener;
+        return own != null ? own : globalMetricsListener;
     }
 }
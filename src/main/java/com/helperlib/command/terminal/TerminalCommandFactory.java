@@ -14,19 +14,34 @@ public class TerminalCommandFactory implements CommandFactory {
 
     @Override
     public CommandMetadata parseMetadata(JsonObject jsonObject) {
+        // Remote exec and SFTP entries carry SSH fields; never load them as commands that run locally
+        if (jsonObject.containsKey("host")) {
+            throw new IllegalArgumentException("Command '" + jsonObject.getString("name", "")
+                    + "' has SSH connection fields and is not a terminal command");
+        }
         return TerminalMetadataParser.parseFromJson(jsonObject, CommandType.TERMINAL);
     }
 
     @Override
     public JsonObject serializeMetadata(CommandMetadata metadata) {
-        return TerminalMetadataParser.serializeToJson((TerminalCommandMetadata) metadata);
+        return TerminalMetadataParser.serializeToJson(requireTerminal(metadata));
     }
 
     @Override
     public Command createCommand(CommandMetadata metadata, StreamHandler streamHandler) {
-        return new TerminalCommand((TerminalCommandMetadata) metadata, streamHandler);
+        return new TerminalCommand(requireTerminal(metadata), streamHandler);
     }
 
-}
-
+    /**
+     * Other metadata can be typed TERMINAL (the API has no remote or transfer type); refuse it rather than
+     * running it on the local host.
+     */
+    static TerminalCommandMetadata requireTerminal(CommandMetadata metadata) {
+        if (metadata instanceof TerminalCommandMetadata terminal) {
+            return terminal;
+        }
+        throw new IllegalArgumentException("Not terminal command metadata: "
+                + (metadata == null ? "null" : metadata.getClass().getName()));
+    }
 
+}
@@ -3,14 +3,36 @@ package com.helperlib.command.terminal;
 import com.helperlib.api.command.CommandMetadata;
 import com.helperlib.api.command.CommandType;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class TerminalCommandMetadata extends CommandMetadata {
+    public static final int DEFAULT_SPOOL_RETAINED_RUNS = 5;
+
     private String commandText;
     private Map<String, String> arguments;
     private String path;
     private String environmentPathVariable;
 
+    // Optional execution options (not part of the constructors; see copyExecutionOptionsFrom)
+    private boolean mergeErrorStream;    // stderr joins stdout through a single pump, preserving order
+    private String stderrRedirectPath;   // stderr written straight to this file by the OS
+    private String stdoutRedirectPath;   // stdout written straight to this file by the OS; the StreamHandler gets none
+    private int spawnPriority;           // queue order when ProcessSpawnGovernor limits are reached; higher first
+    private long cacheTtlMs;             // > 0 memoizes results in TerminalResultCache for this long
+    private List<String> cacheInvalidationPaths = List.of(); // a changed mtime on any of these drops the cached result
+    private String spoolDirectory;       // output additionally spooled to memory-mapped segment files under this directory
+    private long spoolSegmentBytes;      // spool segment rotation size; 0 uses OutputSpool.DEFAULT_SEGMENT_BYTES
+    private int spoolRetainedRuns;       // spools of this many latest runs are kept per command; 0 uses DEFAULT_SPOOL_RETAINED_RUNS
+    private String stdinFile;            // process stdin redirected from this file by the OS
+    private String stdinText;            // inline text written to process stdin
+    private transient Supplier<InputStream> stdinSupplier; // streamed stdin, e.g. TerminalOutputPipe; not serialized
+    private String outputFilterRegex;    // only stdout lines matching this are forwarded (see TerminalOutputFilter)
+    private List<String> outputFilterJsonFields = List.of(); // JSON-lines stdout reduced to these dotted-path fields
+    private Map<String, String> captureToParameters = Map.of(); // param -> regex group name or JSON path
+
     public TerminalCommandMetadata(String name, String description, String commandText, Map<String, String> arguments, String path, String environmentPathVariable) {
         super(name, description, CommandType.TERMINAL);
         this.commandText = commandText;
@@ -59,4 +81,150 @@ public class TerminalCommandMetadata extends CommandMetadata {
     public void setEnvironmentPathVariable(String environmentPathVariable) {
         this.environmentPathVariable = environmentPathVariable;
     }
-}
\ No newline at end of file
+
+    public boolean isMergeErrorStream() {
+        return mergeErrorStream;
+    }
+
+    public void setMergeErrorStream(boolean mergeErrorStream) {
+        this.mergeErrorStream = mergeErrorStream;
+    }
+
+    public String getStderrRedirectPath() {
+        return stderrRedirectPath;
+    }
+
+    public void setStderrRedirectPath(String stderrRedirectPath) {
+        this.stderrRedirectPath = stderrRedirectPath;
+    }
+
+    public String getStdoutRedirectPath() {
+        return stdoutRedirectPath;
+    }
+
+    public void setStdoutRedirectPath(String stdoutRedirectPath) {
+        this.stdoutRedirectPath = stdoutRedirectPath;
+    }
+
+    public int getSpawnPriority() {
+        return spawnPriority;
+    }
+
+    public void setSpawnPriority(int spawnPriority) {
+        this.spawnPriority = spawnPriority;
+    }
+
+    public long getCacheTtlMs() {
+        return cacheTtlMs;
+    }
+
+    public void setCacheTtlMs(long cacheTtlMs) {
+        this.cacheTtlMs = cacheTtlMs;
+    }
+
+    public List<String> getCacheInvalidationPaths() {
+        return cacheInvalidationPaths;
+    }
+
+    public void setCacheInvalidationPaths(List<String> cacheInvalidationPaths) {
+        this.cacheInvalidationPaths = cacheInvalidationPaths == null ? List.of() : List.copyOf(cacheInvalidationPaths);
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public long getSpoolSegmentBytes() {
+        return spoolSegmentBytes;
+    }
+
+    public void setSpoolSegmentBytes(long spoolSegmentBytes) {
+        this.spoolSegmentBytes = spoolSegmentBytes;
+    }
+
+    public int getSpoolRetainedRuns() {
+        return spoolRetainedRuns;
+    }
+
+    public void setSpoolRetainedRuns(int spoolRetainedRuns) {
+        this.spoolRetainedRuns = spoolRetainedRuns;
+    }
+
+    public String getStdinFile() {
+        return stdinFile;
+    }
+
+    public void setStdinFile(String stdinFile) {
+        this.stdinFile = stdinFile;
+    }
+
+    public String getStdinText() {
+        return stdinText;
+    }
+
+    public void setStdinText(String stdinText) {
+        this.stdinText = stdinText;
+    }
+
+    public Supplier<InputStream> getStdinSupplier() {
+        return stdinSupplier;
+    }
+
+    /**
+     * Sets a stream to feed into process stdin; called once per execution, from the stdin pump thread.
+     * Takes precedence over {@code stdinText}; {@code stdinFile} takes precedence over both.
+     */
+    public void setStdinSupplier(Supplier<InputStream> stdinSupplier) {
+        this.stdinSupplier = stdinSupplier;
+    }
+
+    public String getOutputFilterRegex() {
+        return outputFilterRegex;
+    }
+
+    public void setOutputFilterRegex(String outputFilterRegex) {
+        this.outputFilterRegex = outputFilterRegex;
+    }
+
+    public List<String> getOutputFilterJsonFields() {
+        return outputFilterJsonFields;
+    }
+
+    public void setOutputFilterJsonFields(List<String> outputFilterJsonFields) {
+        this.outputFilterJsonFields = outputFilterJsonFields == null ? List.of() : List.copyOf(outputFilterJsonFields);
+    }
+
+    public Map<String, String> getCaptureToParameters() {
+        return captureToParameters;
+    }
+
+    public void setCaptureToParameters(Map<String, String> captureToParameters) {
+        this.captureToParameters = captureToParameters == null ? Map.of() : Map.copyOf(captureToParameters);
+    }
+
+    /**
+     * Copies the optional execution options (everything not taken by the constructors) from another
+     * metadata instance. Used when metadata is re-created, e.g. by templating policies.
+     */
+    public void copyExecutionOptionsFrom(TerminalCommandMetadata source) {
+        this.mergeErrorStream = source.mergeErrorStream;
+        this.stderrRedirectPath = source.stderrRedirectPath;
+        this.stdoutRedirectPath = source.stdoutRedirectPath;
+        this.spawnPriority = source.spawnPriority;
+        this.cacheTtlMs = source.cacheTtlMs;
+        this.cacheInvalidationPaths = source.cacheInvalidationPaths;
+        this.spoolDirectory = source.spoolDirectory;
+        this.spoolSegmentBytes = source.spoolSegmentBytes;
+        this.spoolRetainedRuns = source.spoolRetainedRuns;
+        this.stdinFile = source.stdinFile;
+        this.stdinText = source.stdinText;
+        this.stdinSupplier = source.stdinSupplier;
+        this.outputFilterRegex = source.outputFilterRegex;
+        this.outputFilterJsonFields = source.outputFilterJsonFields;
+        this.captureToParameters = source.captureToParameters;
+    }
+}
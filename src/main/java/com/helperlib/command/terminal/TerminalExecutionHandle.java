@@ -0,0 +1,115 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.command.logging.OutputSpool;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-execution handle for a terminal process.
+ * The executor attaches the spawned process; {@link #cancel()} may be called from any thread,
+ * before or after the process has started, and tears down the whole process tree.
+ */
+public final class TerminalExecutionHandle {
+
+    private final AtomicReference<Process> process = new AtomicReference<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final CompletableFuture<Process> started = new CompletableFuture<>();
+    private final CompletableFuture<Void> cancellation = new CompletableFuture<>();
+
+    private volatile boolean collectResourceMetrics;
+    private volatile TerminalProcessMetrics metrics;
+    private final Map<String, OutputSpool> outputSpools = new ConcurrentHashMap<>();
+
+    /**
+     * Called by the executor right after the process has been spawned.
+     */
+    void attach(Process p) {
+        process.set(p);
+        started.complete(p);
+
+        // cancel() may have raced with process start
+        if (cancelled.get()) {
+            TerminalProcessExecutor.destroyProcessTree(p);
+        }
+    }
+
+    /**
+     * Requests cancellation: kills the attached process and all of its descendants.
+     * Closing the child's pipes lets the stream pump tasks reach EOF and finish.
+     *
+     * @return true if this call cancelled the execution, false if it was already cancelled
+     */
+    public boolean cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        cancellation.complete(null);
+        Process p = process.get();
+        if (p != null) {
+            TerminalProcessExecutor.destroyProcessTree(p);
+        }
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return completes when {@link #cancel()} is called, so waits other than the process can be abandoned
+     */
+    public CompletableFuture<Void> cancellation() {
+        return cancellation;
+    }
+
+    public Optional<Process> getProcess() {
+        return Optional.ofNullable(process.get());
+    }
+
+    /**
+     * @return completes with the process once it has been spawned; never completes if spawning fails
+     */
+    public CompletableFuture<Process> processStarted() {
+        return started;
+    }
+
+    /**
+     * Enables sampling of CPU, memory and I/O usage; output byte counts are always collected.
+     * Must be set before the execution starts.
+     */
+    public void setCollectResourceMetrics(boolean collectResourceMetrics) {
+        this.collectResourceMetrics = collectResourceMetrics;
+    }
+
+    public boolean isCollectResourceMetrics() {
+        return collectResourceMetrics;
+    }
+
+    /**
+     * @return metrics of the finished execution, empty while running or if the process never started
+     */
+    public Optional<TerminalProcessMetrics> getMetrics() {
+        return Optional.ofNullable(metrics);
+    }
+
+    void setMetrics(TerminalProcessMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param streamType "stdout" or "stderr"
+     * @return the spool receiving that stream, present once the process has started with spooling enabled
+     */
+    public Optional<OutputSpool> getOutputSpool(String streamType) {
+        return Optional.ofNullable(outputSpools.get(streamType));
+    }
+
+    void setOutputSpool(String streamType, OutputSpool spool) {
+        outputSpools.put(streamType, spool);
+    }
+}
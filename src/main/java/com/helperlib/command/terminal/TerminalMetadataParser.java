@@ -2,8 +2,12 @@ package com.helperlib.command.terminal;
 
 import com.helperlib.api.command.CommandType;
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
 
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -29,8 +33,32 @@ public class TerminalMetadataParser {
         String path = jsonObject.getString("path", "");
         String environmentPathVariable = jsonObject.getString("environmentPathVariable", "");
 
-        return new TerminalCommandMetadata(name, description, commandType, commandText,
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(name, description, commandType, commandText,
                 arguments, path, environmentPathVariable);
+
+        // Optional execution options
+        metadata.setMergeErrorStream(jsonObject.getBoolean("mergeErrorStream", false));
+        metadata.setStderrRedirectPath(jsonObject.getString("stderrRedirectPath", ""));
+        metadata.setStdoutRedirectPath(jsonObject.getString("stdoutRedirectPath", ""));
+        metadata.setSpawnPriority(jsonObject.getInt("spawnPriority", 0));
+        if (jsonObject.containsKey("cacheTtlMs")) {
+            metadata.setCacheTtlMs(jsonObject.getJsonNumber("cacheTtlMs").longValue());
+        }
+        metadata.setCacheInvalidationPaths(parseStringList(jsonObject.getJsonArray("cacheInvalidationPaths")));
+        metadata.setSpoolDirectory(jsonObject.getString("spoolDirectory", ""));
+        if (jsonObject.containsKey("spoolSegmentBytes")) {
+            metadata.setSpoolSegmentBytes(jsonObject.getJsonNumber("spoolSegmentBytes").longValue());
+        }
+        metadata.setSpoolRetainedRuns(jsonObject.getInt("spoolRetainedRuns", 0));
+        metadata.setStdinFile(jsonObject.getString("stdinFile", ""));
+        if (jsonObject.containsKey("stdinText")) {
+            metadata.setStdinText(jsonObject.getString("stdinText"));
+        }
+        metadata.setOutputFilterRegex(jsonObject.getString("outputFilterRegex", ""));
+        metadata.setOutputFilterJsonFields(parseStringList(jsonObject.getJsonArray("outputFilterJsonFields")));
+        metadata.setCaptureToParameters(parseStringMap(jsonObject.getJsonObject("captureToParameters")));
+
+        return metadata;
     }
 
     /**
@@ -40,15 +68,60 @@ public class TerminalMetadataParser {
      * @return JsonObject containing all metadata fields
      */
     public static JsonObject serializeToJson(TerminalCommandMetadata metadata) {
-        return Json.createObjectBuilder()
+        JsonObjectBuilder builder = Json.createObjectBuilder()
                 .add("name", metadata.getName())
                 .add("description", metadata.getDescription())
                 .add("type", metadata.getType().toString())
                 .add("commandText", metadata.getCommandText())
                 .add("arguments", serializeArguments(metadata.getArguments()))
                 .add("path", metadata.getPath())
-                .add("environmentPathVariable", metadata.getEnvironmentPathVariable())
-                .build();
+                .add("environmentPathVariable", metadata.getEnvironmentPathVariable());
+
+        // Optional execution options are only written when set
+        if (metadata.isMergeErrorStream()) {
+            builder.add("mergeErrorStream", true);
+        }
+        if (isSet(metadata.getStderrRedirectPath())) {
+            builder.add("stderrRedirectPath", metadata.getStderrRedirectPath());
+        }
+        if (isSet(metadata.getStdoutRedirectPath())) {
+            builder.add("stdoutRedirectPath", metadata.getStdoutRedirectPath());
+        }
+        if (metadata.getSpawnPriority() != 0) {
+            builder.add("spawnPriority", metadata.getSpawnPriority());
+        }
+        if (metadata.getCacheTtlMs() > 0) {
+            builder.add("cacheTtlMs", metadata.getCacheTtlMs());
+        }
+        if (!metadata.getCacheInvalidationPaths().isEmpty()) {
+            builder.add("cacheInvalidationPaths", Json.createArrayBuilder(metadata.getCacheInvalidationPaths()));
+        }
+        if (isSet(metadata.getSpoolDirectory())) {
+            builder.add("spoolDirectory", metadata.getSpoolDirectory());
+        }
+        if (metadata.getSpoolSegmentBytes() > 0) {
+            builder.add("spoolSegmentBytes", metadata.getSpoolSegmentBytes());
+        }
+        if (metadata.getSpoolRetainedRuns() > 0) {
+            builder.add("spoolRetainedRuns", metadata.getSpoolRetainedRuns());
+        }
+        if (isSet(metadata.getStdinFile())) {
+            builder.add("stdinFile", metadata.getStdinFile());
+        }
+        if (metadata.getStdinText() != null) {
+            builder.add("stdinText", metadata.getStdinText());
+        }
+        if (isSet(metadata.getOutputFilterRegex())) {
+            builder.add("outputFilterRegex", metadata.getOutputFilterRegex());
+        }
+        if (!metadata.getOutputFilterJsonFields().isEmpty()) {
+            builder.add("outputFilterJsonFields", Json.createArrayBuilder(metadata.getOutputFilterJsonFields()));
+        }
+        if (!metadata.getCaptureToParameters().isEmpty()) {
+            builder.add("captureToParameters", serializeArguments(metadata.getCaptureToParameters()));
+        }
+
+        return builder.build();
     }
 
     /**
@@ -76,4 +149,26 @@ public class TerminalMetadataParser {
         arguments.forEach(argumentsBuilder::add);
         return argumentsBuilder.build();
     }
+
+    private static List<String> parseStringList(JsonArray array) {
+        if (array == null) {
+            return List.of();
+        }
+        return array.getValuesAs(JsonString.class).stream()
+                .map(JsonString::getString)
+                .toList();
+    }
+
+    private static Map<String, String> parseStringMap(JsonObject object) {
+        if (object == null) {
+            return Map.of();
+        }
+        return object.entrySet().stream()
+                .filter(entry -> entry.getValue() instanceof JsonString)
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> ((JsonString) entry.getValue()).getString()));
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
 }
\ No newline at end of file
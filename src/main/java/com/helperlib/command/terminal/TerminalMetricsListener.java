@@ -0,0 +1,13 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.api.command.CommandResult;
+
+/**
+ * Callback receiving the resource usage of a finished terminal command execution.
+ * Invoked on the executing virtual thread, so implementations should return quickly.
+ */
+@FunctionalInterface
+public interface TerminalMetricsListener {
+
+    void onMetrics(TerminalCommandMetadata metadata, CommandResult result, TerminalProcessMetrics metrics);
+}
@@ -0,0 +1,162 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.core.command.CommandRegistry;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming filter applied to terminal stdout, line by line, in place of piping through grep/jq.
+ * <ul>
+ *   <li>{@code outputFilterRegex}: only lines in which the regex finds a match are forwarded.</li>
+ *   <li>{@code outputFilterJsonFields}: lines are parsed as JSON objects and only the listed dotted-path
+ *       fields are forwarded, tab separated; lines that are not JSON objects or carry none of the fields
+ *       are dropped.</li>
+ *   <li>{@code captureToParameters}: parameter name to either a named group of the regex or a dotted JSON
+ *       path. Values are taken from forwarded lines, the last non-blank value wins, and they are saved to
+ *       the group parameters after a successful run, like REST's captureToParameters.</li>
+ * </ul>
+ * The regex applies first, to the raw line. Patterns and paths are compiled once per execution.
+ */
+public final class TerminalOutputFilter {
+
+    private final Pattern regex;
+    private final List<String[]> jsonFields;
+    private final Map<String, String> regexCaptures = new LinkedHashMap<>();   // param -> group name
+    private final Map<String, String[]> jsonCaptures = new LinkedHashMap<>();  // param -> path
+    private final Map<String, String> captured = new ConcurrentHashMap<>();
+
+    private TerminalOutputFilter(TerminalCommandMetadata metadata) {
+        String pattern = metadata.getOutputFilterRegex();
+        this.regex = pattern == null || pattern.isEmpty() ? null : Pattern.compile(pattern);
+        this.jsonFields = new ArrayList<>();
+        for (String field : metadata.getOutputFilterJsonFields()) {
+            jsonFields.add(field.split("\\."));
+        }
+
+        Set<String> groupNames = regex == null ? Set.of() : regex.namedGroups().keySet();
+        metadata.getCaptureToParameters().forEach((param, source) -> {
+            if (param == null || param.isBlank() || source == null || source.isBlank()) {
+                return;
+            }
+            if (groupNames.contains(source)) {
+                regexCaptures.put(param, source);
+            } else {
+                jsonCaptures.put(param, source.split("\\."));
+            }
+        });
+    }
+
+    /**
+     * @return a filter for the metadata, or null if no filtering or capturing is configured
+     */
+    public static TerminalOutputFilter fromMetadata(TerminalCommandMetadata metadata) {
+        boolean configured = (metadata.getOutputFilterRegex() != null && !metadata.getOutputFilterRegex().isEmpty())
+                || !metadata.getOutputFilterJsonFields().isEmpty()
+                || !metadata.getCaptureToParameters().isEmpty();
+        return configured ? new TerminalOutputFilter(metadata) : null;
+    }
+
+    /**
+     * Filters one line (without terminator).
+     *
+     * @return the text to forward, or null to drop the line
+     */
+    public String apply(String line) {
+        if (regex != null) {
+            Matcher matcher = regex.matcher(line);
+            if (!matcher.find()) {
+                return null;
+            }
+            regexCaptures.forEach((param, group) -> record(param, matcher.group(group)));
+        }
+
+        if (jsonFields.isEmpty() && jsonCaptures.isEmpty()) {
+            return line;
+        }
+        JsonObject json = parseJsonObject(line);
+        if (json != null) {
+            jsonCaptures.forEach((param, path) -> record(param, extract(json, path)));
+        }
+        if (jsonFields.isEmpty()) {
+            return line;
+        }
+        if (json == null) {
+            return null;
+        }
+
+        List<String> values = new ArrayList<>(jsonFields.size());
+        boolean any = false;
+        for (String[] path : jsonFields) {
+            String value = extract(json, path);
+            any |= value != null;
+            values.add(value == null ? "" : value);
+        }
+        return any ? String.join("\t", values) : null;
+    }
+
+    /**
+     * @return values captured so far, by parameter name
+     */
+    public Map<String, String> getCapturedParameters() {
+        return Map.copyOf(captured);
+    }
+
+    /**
+     * Saves captured values to the group parameters of the execution context's category/group.
+     * Does nothing when executed directly (no context) or nothing was captured.
+     */
+    void saveCapturedParameters(Map<String, String> executionContext) {
+        String category = executionContext != null ? executionContext.get("category") : null;
+        String group = executionContext != null ? executionContext.get("group") : null;
+        if (category == null || group == null || captured.isEmpty()) {
+            return;
+        }
+        CommandRegistry.saveGroupParametersToConfig(category, group, new HashMap<>(captured));
+    }
+
+    private void record(String param, String value) {
+        if (value != null && !value.isBlank()) {
+            captured.put(param, value);
+        }
+    }
+
+    private static JsonObject parseJsonObject(String line) {
+        String trimmed = line.strip();
+        if (!trimmed.startsWith("{")) {
+            return null;
+        }
+        try (JsonReader reader = Json.createReader(new StringReader(trimmed))) {
+            return reader.readObject();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String extract(JsonObject root, String[] path) {
+        JsonValue current = root;
+        for (String part : path) {
+            if (!(current instanceof JsonObject object) || !object.containsKey(part)) {
+                return null;
+            }
+            current = object.get(part);
+        }
+        if (current == null || current == JsonValue.NULL) {
+            return null;
+        }
+        return current instanceof JsonString string ? string.getString() : current.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.core.command.CommandExecutorService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * StreamHandler that hands one command's stdout to another command's stdin, replacing a shell pipe.
+ * Use it as the upstream command's handler and {@link #openStdin()} as the downstream stdin supplier:
+ * <pre>
+ * TerminalOutputPipe pipe = new TerminalOutputPipe();
+ * downstreamMetadata.setStdinSupplier(pipe::openStdin);
+ * new TerminalCommand(upstreamMetadata, pipe).executeAsync();
+ * new TerminalCommand(downstreamMetadata, handler).executeAsync();
+ * </pre>
+ * Data is passed through without extra buffering, so the upstream command is throttled by the
+ * downstream reader. Other streams (stderr) are drained and discarded. A pipe carries one execution.
+ */
+public class TerminalOutputPipe implements StreamHandler {
+
+    private final CompletableFuture<InputStream> stdout = new CompletableFuture<>();
+
+    @Override
+    public CompletableFuture<Void> handleStream(InputStream inputStream, String streamType, String commandName) {
+        if (!"stdout".equals(streamType)) {
+            return drain(inputStream);
+        }
+        // Completes once the downstream has read to EOF or closed its end
+        CompletableFuture<Void> consumed = new CompletableFuture<>();
+        InputStream tracked = new FilterInputStream(inputStream) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    consumed.complete(null);
+                }
+            }
+        };
+        if (!stdout.complete(tracked)) {
+            // Nobody will read this one; drain it so the upstream process is not blocked
+            return drain(inputStream).thenRun(() -> {
+                throw new IllegalStateException("Pipe already carries an execution");
+            });
+        }
+        return consumed;
+    }
+
+    private static CompletableFuture<Void> drain(InputStream inputStream) {
+        return CompletableFuture.runAsync(() -> {
+            try (inputStream) {
+                inputStream.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException ignored) {
+            }
+        }, CommandExecutorService.getVirtualThreadExecutor());
+    }
+
+    /**
+     * Blocks until the upstream command's stdout is available and returns it.
+     */
+    public InputStream openStdin() {
+        try {
+            return stdout.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for upstream output", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Upstream output unavailable", e.getCause());
+        }
+    }
+}
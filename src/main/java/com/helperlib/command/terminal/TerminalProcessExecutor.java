@@ -3,12 +3,23 @@ package com.helperlib.command.terminal;
 import com.helperlib.api.command.CommandResult;
 import com.helperlib.api.command.logging.StreamHandler;
 import com.helperlib.command.clipboard.ClipboardService;
+import com.helperlib.command.logging.OutputSpool;
 import com.helperlib.core.command.CommandExecutorService;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * Utility class for executing terminal processes with consistent configuration and stream handling.
@@ -16,9 +27,35 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public class TerminalProcessExecutor {
 
+    private static final long STOP_POLL_INTERVAL_MS = 10;
+    // Spool run directories still being written, never pruned
+    private static final Set<Path> openSpoolRuns = ConcurrentHashMap.newKeySet();
+
     public static CommandResult executeProcess(TerminalCommandMetadata metadata,
                                                StreamHandler streamHandler,
                                                AtomicReference<Process> processRef) throws Exception {
+        return execute(metadata, streamHandler, processRef, null);
+    }
+
+    /**
+     * Executes the process and attaches it to the given handle so that it can be cancelled.
+     * A cancelled execution reports exit code 130.
+     */
+    public static CommandResult executeProcess(TerminalCommandMetadata metadata,
+                                               StreamHandler streamHandler,
+                                               TerminalExecutionHandle handle) throws Exception {
+        return execute(metadata, streamHandler, null, handle);
+    }
+
+    private static CommandResult execute(TerminalCommandMetadata metadata,
+                                         StreamHandler streamHandler,
+                                         AtomicReference<Process> processRef,
+                                         TerminalExecutionHandle handle) throws Exception {
+        // Nothing to spawn if the caller already gave up
+        if (handle != null && handle.isCancelled()) {
+            return new CommandResult(false, 130, 0);
+        }
+
         ProcessBuilder processBuilder = new ProcessBuilder(buildPlatformCommand(metadata.getCommandText()));
 
         // Add arguments to environment
@@ -37,30 +74,108 @@ public class TerminalProcessExecutor {
             processBuilder.directory(new File(metadata.getPath()));
         }
 
+        // stderr either joins stdout (one pump, original interleaving) or goes straight to a file
+        boolean mergeErrorStream = metadata.isMergeErrorStream();
+        boolean redirectErrorToFile = !mergeErrorStream
+                && metadata.getStderrRedirectPath() != null && !metadata.getStderrRedirectPath().isBlank();
+        if (mergeErrorStream) {
+            processBuilder.redirectErrorStream(true);
+        } else if (redirectErrorToFile) {
+            processBuilder.redirectError(ProcessBuilder.Redirect.to(new File(metadata.getStderrRedirectPath())));
+        }
+
+        // stdout (with a merged stderr) may go straight to a file too; the pump then sees an empty stream
+        if (metadata.getStdoutRedirectPath() != null && !metadata.getStdoutRedirectPath().isBlank()) {
+            processBuilder.redirectOutput(ProcessBuilder.Redirect.to(new File(metadata.getStdoutRedirectPath())));
+        }
+
+        // stdin: a file is wired up by the OS; text and streams go through a pump after start
+        boolean stdinFromFile = metadata.getStdinFile() != null && !metadata.getStdinFile().isBlank();
+        if (stdinFromFile) {
+            processBuilder.redirectInput(ProcessBuilder.Redirect.from(new File(metadata.getStdinFile())));
+        }
+
         Process process = processBuilder.start();
 
         // Store process reference if provided (for cancellation support)
         if (processRef != null) {
             processRef.set(process);
         }
+        if (handle != null) {
+            handle.attach(process);
+        }
+
+        // Count output bytes for metrics; resource sampling only when requested
+        CountingInputStream stdout = new CountingInputStream(process.getInputStream());
+        CountingInputStream stderr = new CountingInputStream(process.getErrorStream());
+        ProcessResourceSampler sampler = handle != null && handle.isCollectResourceMetrics()
+                ? ProcessResourceSampler.start(process)
+                : null;
+
+        // Optionally keep a disk copy of the output for random-access reads
+        InputStream stdoutSource = stdout;
+        InputStream stderrSource = stderr;
+        List<OutputSpool> spools = List.of();
+        if (metadata.getSpoolDirectory() != null && !metadata.getSpoolDirectory().isBlank()) {
+            spools = openSpools(metadata, process, handle, !mergeErrorStream && !redirectErrorToFile);
+            if (!spools.isEmpty()) {
+                stdoutSource = new SpoolingInputStream(stdout, spools.get(0), metadata.getName() + " stdout");
+            }
+            if (spools.size() > 1) {
+                stderrSource = new SpoolingInputStream(stderr, spools.get(1), metadata.getName() + " stderr");
+            }
+        }
+        // Filter stage after the spool, so the spool keeps the raw output
+        TerminalOutputFilter outputFilter = TerminalOutputFilter.fromMetadata(metadata);
+        if (outputFilter != null) {
+            stdoutSource = new FilteringInputStream(stdoutSource, outputFilter);
+        }
+        final InputStream stdoutStream = stdoutSource;
+        final InputStream stderrStream = stderrSource;
 
         // Capture single-line output for clipboard
         final AtomicReference<String> singleLineOutput = new AtomicReference<>();
         var vexec = CommandExecutorService.getVirtualThreadExecutor();
 
+        StdinPump stdinPump = stdinFromFile ? null : StdinPump.start(metadata, process);
+
         CompletableFuture<Void> outputHandler = CompletableFuture.runAsync(() ->
-                processOutputStream(process.getInputStream(), streamHandler, metadata, singleLineOutput), vexec);
+                processOutputStream(stdoutStream, streamHandler, metadata, singleLineOutput), vexec);
 
-        // Handle stderr stream aligned to virtual executor
-        CompletableFuture<Void> errorHandler = CompletableFuture
-                .supplyAsync(() -> streamHandler.handleStream(process.getErrorStream(), "stderr", metadata.getName()), vexec)
+        // Handle stderr stream aligned to virtual executor; no pump needed when it is merged or redirected
+        CompletableFuture<Void> errorHandler = mergeErrorStream || redirectErrorToFile
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture
+                .supplyAsync(() -> streamHandler.handleStream(stderrStream, "stderr", metadata.getName()), vexec)
                 .thenCompose(f -> f);
 
-        // Wait for process completion
-        int exitCode = process.waitFor();
+        int exitCode;
+        try {
+            // Wait for process completion
+            exitCode = process.waitFor();
+
+            // Wait for stream readers to finish
+            CompletableFuture.allOf(outputHandler, errorHandler).join();
+        } finally {
+            if (stdinPump != null) {
+                stdinPump.stop();
+            }
+            closeSpools(spools, handle == null);
+            // Byte counts are final once the pumps have drained the pipes
+            if (handle != null) {
+                handle.setMetrics(sampler != null
+                        ? sampler.finish(stdout.getCount(), stderr.getCount())
+                        : TerminalProcessMetrics.outputOnly(process.pid(), stdout.getCount(), stderr.getCount()));
+            }
+        }
+
+        if (handle != null && handle.isCancelled()) {
+            return new CommandResult(false, 130, 0);
+        }
 
-        // Wait for stream readers to finish
-        CompletableFuture.allOf(outputHandler, errorHandler).join();
+        if (exitCode == 0 && outputFilter != null) {
+            outputFilter.saveCapturedParameters(metadata.getExecutionContext());
+        }
 
         // Copy to clipboard if output was exactly one line
         if (exitCode == 0 && singleLineOutput.get() != null) {
@@ -75,6 +190,104 @@ public class TerminalProcessExecutor {
     }
 
 
+    /**
+     * Creates the stdout (and, if pumped, stderr) spools under
+     * {@code <spoolDirectory>/<command name>/<pid>-<random>/} and deletes the command's older run
+     * directories beyond {@code spoolRetainedRuns}. Spooling is skipped if the directory cannot be created,
+     * since the output still reaches the StreamHandler.
+     */
+    private static List<OutputSpool> openSpools(TerminalCommandMetadata metadata,
+                                                Process process,
+                                                TerminalExecutionHandle handle,
+                                                boolean includeStderr) {
+        long segmentBytes = metadata.getSpoolSegmentBytes() > 0
+                ? metadata.getSpoolSegmentBytes()
+                : OutputSpool.DEFAULT_SEGMENT_BYTES;
+        try {
+            Path commandDirectory = Files.createDirectories(Path.of(metadata.getSpoolDirectory())
+                    .resolve(metadata.getName().replaceAll("[^a-zA-Z0-9.-]", "_")));
+            Path runDirectory = Files.createTempDirectory(commandDirectory, process.pid() + "-");
+
+            List<OutputSpool> spools = new ArrayList<>();
+            spools.add(new OutputSpool(runDirectory.resolve("stdout"), segmentBytes, OutputSpool.DEFAULT_INDEX_INTERVAL));
+            if (includeStderr) {
+                spools.add(new OutputSpool(runDirectory.resolve("stderr"), segmentBytes, OutputSpool.DEFAULT_INDEX_INTERVAL));
+            }
+            // A run directory left behind by a failed start is pruned like any finished run
+            openSpoolRuns.add(runDirectory);
+            pruneSpoolRuns(commandDirectory, metadata.getSpoolRetainedRuns() > 0
+                    ? metadata.getSpoolRetainedRuns()
+                    : TerminalCommandMetadata.DEFAULT_SPOOL_RETAINED_RUNS);
+            if (handle != null) {
+                handle.setOutputSpool("stdout", spools.get(0));
+                if (includeStderr) {
+                    handle.setOutputSpool("stderr", spools.get(1));
+                }
+            }
+            return spools;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Output spooling disabled for " + metadata.getName() + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Closes the run's spools; spools that were never exposed through a handle are deleted right away.
+     */
+    private static void closeSpools(List<OutputSpool> spools, boolean delete) throws IOException {
+        for (OutputSpool spool : spools) {
+            if (delete) {
+                spool.delete();
+            } else {
+                spool.close();
+            }
+        }
+        if (!spools.isEmpty()) {
+            Path runDirectory = spools.get(0).getDirectory().getParent();
+            if (delete) {
+                Files.deleteIfExists(runDirectory);
+            }
+            openSpoolRuns.remove(runDirectory);
+        }
+    }
+
+    /**
+     * Deletes the oldest finished run directories of one command until {@code retained} remain, counting
+     * runs still in progress (which are never deleted).
+     */
+    private static void pruneSpoolRuns(Path commandDirectory, int retained) {
+        List<Path> runs;
+        try (Stream<Path> entries = Files.list(commandDirectory)) {
+            runs = entries.filter(Files::isDirectory)
+                    .sorted(Comparator.comparing(TerminalProcessExecutor::lastModified).reversed())
+                    .toList();
+        } catch (IOException e) {
+            return;
+        }
+        int kept = 0;
+        for (Path run : runs) {
+            if (openSpoolRuns.contains(run) || kept < retained) {
+                kept++;
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(run)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Could not delete old output spool " + run + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
     /**
      * Processes the output stream, capturing output for clipboard if it's exactly one line
      * and forwarding all output to the stream handler.
@@ -84,17 +297,22 @@ public class TerminalProcessExecutor {
                                             TerminalCommandMetadata metadata,
                                             AtomicReference<String> firstLineRef) {
         final String newline = System.lineSeparator();
+        // Not a resource: it is closed explicitly to signal EOF; on failure closing pis ends the handler
+        PipedOutputStream pos = new PipedOutputStream();
         try (
                 BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                PipedOutputStream pos = new PipedOutputStream();
                 PipedInputStream pis = new PipedInputStream(pos, 8192)
         ) {
             // Start handler immediately so consumer can read while we write
             CompletableFuture<Void> handlerFuture = streamHandler.handleStream(pis, "stdout", metadata.getName());
 
+            // Forward the first line right away; only the clipboard decision waits for a second one
             String line1 = reader.readLine();
             String line2 = null;
             if (line1 != null) {
+                pos.write(line1.getBytes());
+                pos.write(newline.getBytes());
+                pos.flush();
                 line2 = reader.readLine();
             }
 
@@ -103,11 +321,6 @@ public class TerminalProcessExecutor {
                 firstLineRef.set(line1);
             }
 
-            // Write what we have, then continue streaming
-            if (line1 != null) {
-                pos.write(line1.getBytes());
-                pos.write(newline.getBytes());
-            }
             if (line2 != null) {
                 pos.write(line2.getBytes());
                 pos.write(newline.getBytes());
@@ -130,7 +343,78 @@ public class TerminalProcessExecutor {
 
     public static CommandResult executeProcess(TerminalCommandMetadata metadata,
                                                StreamHandler streamHandler) throws Exception {
-        return executeProcess(metadata, streamHandler, null);
+        return execute(metadata, streamHandler, null, null);
+    }
+
+    /**
+     * Forcibly kills the process and every descendant it spawned (e.g. children of /bin/sh -c).
+     * Descendants are snapshotted first, since they get re-parented once the root dies;
+     * the root goes first so a shell cannot run its next statement after a child is killed.
+     */
+    public static void destroyProcessTree(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Stops the process and its descendants gracefully: requests termination (SIGTERM on POSIX) for the whole
+     * tree, waits up to {@code gracePeriodMs} for it to exit, then forcibly kills whatever is left, including
+     * children the survivors spawned meanwhile. Descendants are snapshotted before signalling, as for
+     * {@link #destroyProcessTree(Process)}.
+     */
+    public static ProcessTreeStopResult stopProcessTree(Process process, long gracePeriodMs) {
+        return stopProcessTree(process.toHandle(), gracePeriodMs);
+    }
+
+    /**
+     * As {@link #stopProcessTree(Process, long)}, for a process this JVM did not spawn.
+     */
+    public static ProcessTreeStopResult stopProcessTree(ProcessHandle process, long gracePeriodMs) {
+        long start = System.nanoTime();
+        List<ProcessHandle> tree = new ArrayList<>();
+        tree.add(process);
+        process.descendants().forEach(tree::add);
+        tree.forEach(ProcessHandle::destroy);
+
+        // Poll rather than onExit(): for grandchildren the JDK falls back to coarse polling of its own
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, gracePeriodMs));
+        try {
+            while (tree.stream().anyMatch(TerminalProcessExecutor::isRunning) && System.nanoTime() - deadline < 0) {
+                Thread.sleep(STOP_POLL_INTERVAL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Set<ProcessHandle> survivors = new LinkedHashSet<>();
+        for (ProcessHandle handle : tree) {
+            if (isRunning(handle)) {
+                survivors.add(handle);
+                handle.descendants().forEach(survivors::add);
+            }
+        }
+        survivors.forEach(ProcessHandle::destroyForcibly);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new ProcessTreeStopResult(tree.size(), survivors.size(), elapsedMs);
+    }
+
+    /**
+     * Alive and not a zombie. Orphaned children stay zombies until init reaps them, which isAlive() still
+     * reports as alive; /proc tells them apart on Linux.
+     */
+    private static boolean isRunning(ProcessHandle handle) {
+        if (!handle.isAlive()) {
+            return false;
+        }
+        try {
+            String stat = Files.readString(Path.of("/proc", Long.toString(handle.pid()), "stat"));
+            int commandEnd = stat.lastIndexOf(')');
+            return commandEnd < 0 || commandEnd + 2 >= stat.length() || stat.charAt(commandEnd + 2) != 'Z';
+        } catch (IOException | RuntimeException e) {
+            return handle.isAlive();
+        }
     }
 
     public static List<String> buildPlatformCommand(String rawCommand) {
@@ -0,0 +1,34 @@
+package com.helperlib.command.terminal;
+
+/**
+ * Resource usage of one terminal process execution, aggregated over the process tree.
+ * CPU, memory and I/O figures are sampled while the process runs; values that the platform
+ * cannot provide are reported as -1 (e.g. the /proc based fields outside Linux).
+ *
+ * @param pid          pid of the spawned process
+ * @param cpuUserMs    user-mode CPU time (from /proc/&lt;pid&gt;/stat)
+ * @param cpuSystemMs  kernel-mode CPU time (from /proc/&lt;pid&gt;/stat)
+ * @param cpuTotalMs   total CPU time (from ProcessHandle.Info, or user + system when larger)
+ * @param peakRssBytes peak resident set size observed
+ * @param ioReadBytes  bytes read from storage (from /proc/&lt;pid&gt;/io)
+ * @param ioWriteBytes bytes written to storage (from /proc/&lt;pid&gt;/io)
+ * @param stdoutBytes  bytes the process produced on stdout
+ * @param stderrBytes  bytes the process produced on stderr
+ */
+public record TerminalProcessMetrics(long pid,
+                                     long cpuUserMs,
+                                     long cpuSystemMs,
+                                     long cpuTotalMs,
+                                     long peakRssBytes,
+                                     long ioReadBytes,
+                                     long ioWriteBytes,
+                                     long stdoutBytes,
+                                     long stderrBytes) {
+
+    /**
+     * Metrics for an execution where only the output byte counts were collected.
+     */
+    public static TerminalProcessMetrics outputOnly(long pid, long stdoutBytes, long stderrBytes) {
+        return new TerminalProcessMetrics(pid, -1, -1, -1, -1, -1, -1, stdoutBytes, stderrBytes);
+    }
+}
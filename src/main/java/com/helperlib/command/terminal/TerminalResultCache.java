@@ -0,0 +1,348 @@
+package com.helperlib.command.terminal;
+
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.clipboard.ClipboardService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Opt-in memoization of terminal command results, for idempotent lookups such as {@code git rev-parse}.
+ * Enabled per command by {@link TerminalCommandMetadata#setCacheTtlMs(long)}. Entries are keyed by the
+ * rendered command text, arguments, working directory, PATH override, stdin, stream and filter options,
+ * and stay valid until the TTL expires or the modification time of one of the command's invalidation
+ * paths changes.
+ * Concurrent identical calls share one execution (single-flight). A hit replays the captured stdout/stderr
+ * to the StreamHandler and returns the stored exit code without spawning a process.
+ * Commands with a {@code stdinSupplier} are not cached, since their input cannot be keyed, nor are commands
+ * with {@code captureToParameters}, whose runs must keep updating the group parameters (see {@link #isCacheable}).
+ * Executions that were cancelled or failed to run (exit codes 130 and -1), and output larger than
+ * {@link #MAX_CAPTURED_BYTES} per stream, are never cached.
+ */
+public final class TerminalResultCache {
+
+    public static final int MAX_CAPTURED_BYTES = 1024 * 1024;
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<CacheKey, CacheEntry> entries = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+    private static final Map<CacheKey, CompletableFuture<CacheEntry>> inFlight = new ConcurrentHashMap<>();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder sharedExecutions = new LongAdder();
+
+    private TerminalResultCache() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Runs a process for this command and returns its result.
+     */
+    @FunctionalInterface
+    public interface ProcessRunner {
+        CommandResult run(StreamHandler streamHandler) throws Exception;
+    }
+
+    /**
+     * @return true if the command opted in with a TTL and its results can be replayed without side effects
+     */
+    public static boolean isCacheable(TerminalCommandMetadata metadata) {
+        return metadata.getCacheTtlMs() > 0
+                && metadata.getStdinSupplier() == null
+                && metadata.getCaptureToParameters().isEmpty();
+    }
+
+    /**
+     * Returns the cached result for the metadata, or runs it through {@code runner} and caches the outcome.
+     * Callers waiting on an identical in-flight execution get its result replayed once it completes.
+     *
+     * @param cancellation completing it abandons a wait on another caller's execution with a
+     *                     {@link CancellationException}; that execution keeps running
+     */
+    public static CommandResult getOrExecute(TerminalCommandMetadata metadata,
+                                             StreamHandler streamHandler,
+                                             CompletableFuture<?> cancellation,
+                                             ProcessRunner runner) throws Exception {
+        CacheKey key = CacheKey.of(metadata);
+        while (true) {
+            CacheEntry cached = entries.get(key);
+            if (cached != null && cached.isFresh()) {
+                hits.increment();
+                return replay(cached, streamHandler, metadata.getName());
+            }
+
+            CompletableFuture<CacheEntry> flight = new CompletableFuture<>();
+            CompletableFuture<CacheEntry> leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                // Identical call already running; reuse its output, or run ourselves if it was not cacheable.
+                // Wait through a future of our own, so cancelling this caller leaves the leader untouched
+                CompletableFuture<CacheEntry> wait = leader.thenApply(Function.identity());
+                cancellation.whenComplete((v, error) -> wait.cancel(false));
+                CacheEntry shared = wait.get();
+                if (shared != null) {
+                    sharedExecutions.increment();
+                    return replay(shared, streamHandler, metadata.getName());
+                }
+                continue;
+            }
+
+            misses.increment();
+            CacheEntry entry = null;
+            try {
+                // Snapshot before running, so changes made while the command runs invalidate the entry
+                Map<Path, Long> watched = snapshotModificationTimes(metadata);
+                // toNanos saturates instead of overflowing; isFresh compares wrap-safely, so a huge TTL stays valid
+                long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(metadata.getCacheTtlMs());
+
+                CapturingStreamHandler capture = new CapturingStreamHandler(streamHandler);
+                CommandResult result = runner.run(capture);
+
+                if (result.exitCode() != -1 && result.exitCode() != 130 && !capture.isOverflowed()) {
+                    entry = new CacheEntry(result.exitCode(), capture.captured("stdout"),
+                            capture.captured("stderr"), expiresAt, watched);
+                    entries.put(key, entry);
+                }
+                return result;
+            } finally {
+                inFlight.remove(key, flight);
+                flight.complete(entry);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached result of one command configuration.
+     */
+    public static void invalidate(TerminalCommandMetadata metadata) {
+        entries.remove(CacheKey.of(metadata));
+    }
+
+    public static void invalidateAll() {
+        entries.clear();
+    }
+
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return calls answered by waiting on an identical in-flight execution
+     */
+    public static long getSharedExecutionCount() {
+        return sharedExecutions.sum();
+    }
+
+    private static CommandResult replay(CacheEntry entry, StreamHandler streamHandler, String commandName) {
+        CompletableFuture<Void> out = streamHandler.handleStream(
+                new ByteArrayInputStream(entry.stdout), "stdout", commandName);
+        CompletableFuture<Void> err = entry.stderr == null
+                ? CompletableFuture.completedFuture(null)
+                : streamHandler.handleStream(new ByteArrayInputStream(entry.stderr), "stderr", commandName);
+        CompletableFuture.allOf(out, err).join();
+
+        // Same clipboard behaviour as a real run: a single line of successful output is copied
+        if (entry.exitCode == 0) {
+            String[] lines = new String(entry.stdout, StandardCharsets.UTF_8).split("\\R");
+            if (lines.length == 1 && !lines[0].isBlank()) {
+                ClipboardService.copyToClipboardSilent(lines[0].trim());
+            }
+        }
+        return new CommandResult(entry.exitCode == 0, entry.exitCode, 0);
+    }
+
+    private static Map<Path, Long> snapshotModificationTimes(TerminalCommandMetadata metadata) {
+        List<String> paths = metadata.getCacheInvalidationPaths();
+        boolean hasStdinFile = metadata.getStdinFile() != null && !metadata.getStdinFile().isBlank();
+        if (paths.isEmpty() && !hasStdinFile) {
+            return Map.of();
+        }
+        Map<Path, Long> times = new LinkedHashMap<>();
+        // The stdin file is an input of the command, so editing it invalidates as well
+        if (hasStdinFile) {
+            Path stdin = Path.of(metadata.getStdinFile());
+            times.put(stdin, modificationTime(stdin));
+        }
+        for (String p : paths) {
+            Path path = Path.of(p);
+            // Relative paths are relative to the command's working directory
+            if (!path.isAbsolute() && metadata.getPath() != null && !metadata.getPath().isEmpty()) {
+                path = Path.of(metadata.getPath()).resolve(path);
+            }
+            times.put(path, modificationTime(path));
+        }
+        return times;
+    }
+
+    private static long modificationTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1; // missing; appearing later invalidates too
+        }
+    }
+
+    private record CacheKey(String commandText,
+                            Map<String, String> arguments,
+                            String path,
+                            String environmentPathVariable,
+                            boolean mergeErrorStream,
+                            String stderrRedirectPath,
+                            String stdoutRedirectPath,
+                            String stdinFile,
+                            String stdinText,
+                            String outputFilterRegex,
+                            List<String> outputFilterJsonFields) {
+
+        static CacheKey of(TerminalCommandMetadata m) {
+            return new CacheKey(
+                    m.getCommandText(),
+                    m.getArguments() == null ? Map.of() : new TreeMap<>(m.getArguments()),
+                    Objects.toString(m.getPath(), ""),
+                    Objects.toString(m.getEnvironmentPathVariable(), ""),
+                    m.isMergeErrorStream(),
+                    Objects.toString(m.getStderrRedirectPath(), ""),
+                    Objects.toString(m.getStdoutRedirectPath(), ""),
+                    Objects.toString(m.getStdinFile(), ""),
+                    m.getStdinText(),
+                    Objects.toString(m.getOutputFilterRegex(), ""),
+                    m.getOutputFilterJsonFields());
+        }
+    }
+
+    private static final class CacheEntry {
+        final int exitCode;
+        final byte[] stdout;
+        final byte[] stderr;   // null if stderr was merged or redirected
+        final long expiresAtNanos;
+        final Map<Path, Long> watchedModificationTimes;
+
+        CacheEntry(int exitCode, byte[] stdout, byte[] stderr, long expiresAtNanos,
+                   Map<Path, Long> watchedModificationTimes) {
+            this.exitCode = exitCode;
+            this.stdout = stdout == null ? new byte[0] : stdout;
+            this.stderr = stderr;
+            this.expiresAtNanos = expiresAtNanos;
+            this.watchedModificationTimes = watchedModificationTimes;
+        }
+
+        boolean isFresh() {
+            if (System.nanoTime() - expiresAtNanos >= 0) {
+                return false;
+            }
+            for (Map.Entry<Path, Long> watched : watchedModificationTimes.entrySet()) {
+                if (modificationTime(watched.getKey()) != watched.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Forwards streams to the real handler while keeping a copy of everything the handler reads.
+     */
+    private static final class CapturingStreamHandler implements StreamHandler {
+        private final StreamHandler delegate;
+        private final Map<String, ByteArrayOutputStream> buffers = new ConcurrentHashMap<>();
+        private final List<TeeInputStream> streams = Collections.synchronizedList(new ArrayList<>());
+
+        CapturingStreamHandler(StreamHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<Void> handleStream(InputStream inputStream, String streamType, String commandName) {
+            ByteArrayOutputStream buffer = buffers.computeIfAbsent(streamType, t -> new ByteArrayOutputStream());
+            TeeInputStream tee = new TeeInputStream(inputStream, buffer);
+            streams.add(tee);
+            return delegate.handleStream(tee, streamType, commandName);
+        }
+
+        boolean isOverflowed() {
+            synchronized (streams) {
+                return streams.stream().anyMatch(s -> s.overflowed);
+            }
+        }
+
+        byte[] captured(String streamType) {
+            ByteArrayOutputStream buffer = buffers.get(streamType);
+            return buffer == null ? null : buffer.toByteArray();
+        }
+    }
+
+    private static final class TeeInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream copy;
+        volatile boolean overflowed;
+
+        TeeInputStream(InputStream in, ByteArrayOutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                record(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                record(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Read through, so skipped output is captured as well
+            byte[] discard = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+            int read = read(discard, 0, discard.length);
+            return Math.max(read, 0);
+        }
+
+        private void record(byte[] b, int off, int len) {
+            synchronized (copy) {
+                if (copy.size() + len > MAX_CAPTURED_BYTES) {
+                    overflowed = true;
+                } else if (!overflowed) {
+                    copy.write(b, off, len);
+                }
+            }
+        }
+    }
+}
@@ -24,7 +24,7 @@ public final class TerminalTemplatingPolicy implements TemplatingPolicy {
         Objects.requireNonNull(metadata, "metadata");
         Objects.requireNonNull(engine, "engine");
 
-        TerminalCommandMetadata m = (TerminalCommandMetadata) metadata;
+        TerminalCommandMetadata m = TerminalCommandFactory.requireTerminal(metadata);
         return engine.extractPlaceholderNames(m.getCommandText());
     }
 
@@ -33,11 +33,11 @@ public final class TerminalTemplatingPolicy implements TemplatingPolicy {
         Objects.requireNonNull(metadata, "metadata");
         Objects.requireNonNull(engine, "engine");
 
-        TerminalCommandMetadata m = (TerminalCommandMetadata) metadata;
+        TerminalCommandMetadata m = TerminalCommandFactory.requireTerminal(metadata);
 
         String renderedCmd = engine.render(m.getCommandText(), parameters);
 
-        return new TerminalCommandMetadata(
+        TerminalCommandMetadata rendered = new TerminalCommandMetadata(
                 m.getName(),
                 m.getDescription(),
                 m.getType(), // keep type (TERMINAL)
@@ -46,5 +46,11 @@ public final class TerminalTemplatingPolicy implements TemplatingPolicy {
                 m.getPath(),
                 m.getEnvironmentPathVariable()
         );
+
+        // Preserve non-templated execution options and runtime execution context
+        rendered.copyExecutionOptionsFrom(m);
+        rendered.setExecutionContext(m.getExecutionContext());
+
+        return rendered;
     }
 }
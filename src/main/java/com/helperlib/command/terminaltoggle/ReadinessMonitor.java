@@ -0,0 +1,203 @@
+package com.helperlib.command.terminaltoggle;
+
+import com.helperlib.api.command.logging.StreamHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Backs a toggle execution's ready future with the metadata's readiness probe.
+ * The future completes once the probe passes, and fails with a TimeoutException after
+ * {@code readinessTimeoutMs}, or with an IllegalStateException if the process exits before it is ready
+ * and no supervised restart follows.
+ */
+final class ReadinessMonitor {
+
+    private static final int MAX_SCANNED_LINE_BYTES = 64 * 1024;
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    private final ReadinessProbeType type;
+    private final long intervalMs;
+    // Parsed from readinessTarget for the configured probe type; null for the others
+    private final Pattern outputPattern;
+    private final InetSocketAddress tcpTarget;
+    private final HttpRequest httpRequest;
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    ReadinessMonitor(TerminalToggleCommandMetadata metadata) {
+        this.type = metadata.getReadinessProbe();
+        this.intervalMs = Math.max(10, metadata.getReadinessIntervalMs());
+        String target = metadata.getReadinessTarget();
+        Pattern pattern = null;
+        InetSocketAddress address = null;
+        HttpRequest request = null;
+        try {
+            if (type != ReadinessProbeType.NONE && target == null) {
+                throw new IllegalArgumentException("not set");
+            }
+            switch (type) {
+                case OUTPUT_REGEX -> pattern = Pattern.compile(target);
+                case TCP -> address = SocketActivationListener.address(target);
+                case HTTP -> request = HttpRequest.newBuilder(URI.create(target))
+                        .timeout(Duration.ofMillis(Math.max(intervalMs, 1_000)))
+                        .GET()
+                        .build();
+                case NONE -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            // A malformed target can never pass; fail now instead of at the timeout
+            ready.completeExceptionally(new IllegalArgumentException(
+                    "Invalid " + type + " readiness target '" + target + "': " + e.getMessage(), e));
+        }
+        this.outputPattern = pattern;
+        this.tcpTarget = address;
+        this.httpRequest = request;
+        if (type != ReadinessProbeType.NONE && metadata.getReadinessTimeoutMs() > 0) {
+            ready.orTimeout(metadata.getReadinessTimeoutMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    CompletableFuture<Void> readyFuture() {
+        return ready;
+    }
+
+    /**
+     * @return the handler to give the process; scans output lines when probing by regex
+     */
+    StreamHandler wrap(StreamHandler delegate) {
+        if (outputPattern == null) {
+            return delegate;
+        }
+        return (inputStream, streamType, commandName) ->
+                delegate.handleStream(new ScanningInputStream(inputStream), streamType, commandName);
+    }
+
+    /**
+     * Starts probing a freshly spawned process.
+     *
+     * @param willRestart whether an exit with the given code is followed by a supervised restart
+     */
+    void onProcessStarted(Process process, IntPredicate willRestart) {
+        if (ready.isDone()) {
+            return;
+        }
+        process.onExit().thenAccept(p -> {
+            if (!willRestart.test(p.exitValue())) {
+                ready.completeExceptionally(new IllegalStateException(
+                        "Process exited with code " + p.exitValue() + " before it was ready"));
+            }
+        });
+        switch (type) {
+            case NONE -> ready.complete(null);
+            case TCP, HTTP -> Thread.ofVirtual().name("readiness-probe").start(() -> poll(process));
+            case OUTPUT_REGEX -> {
+                // Completed by the scanning streams
+            }
+        }
+    }
+
+    /**
+     * The execution ended without the probe passing (e.g. spawning failed).
+     */
+    void onExecutionEnded() {
+        ready.completeExceptionally(new IllegalStateException("Execution ended before it was ready"));
+    }
+
+    private void poll(Process process) {
+        while (!ready.isDone() && process.isAlive()) {
+            if (type == ReadinessProbeType.TCP ? tcpAccepts() : httpSucceeds()) {
+                ready.complete(null);
+                return;
+            }
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean tcpAccepts() {
+        try (Socket socket = new Socket()) {
+            socket.connect(tcpTarget, (int) Math.max(intervalMs, 100));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean httpSucceeds() {
+        try {
+            int status = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Passes bytes through unchanged and matches complete lines until the probe has passed.
+     */
+    private final class ScanningInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        ScanningInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                scan(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                scan(b, off, n);
+            }
+            return n;
+        }
+
+        private void scan(byte[] b, int off, int len) {
+            if (ready.isDone()) {
+                return;
+            }
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    if (outputPattern.matcher(line.toString(StandardCharsets.UTF_8)).find()) {
+                        ready.complete(null);
+                        return;
+                    }
+                    line.reset();
+                } else if (line.size() < MAX_SCANNED_LINE_BYTES) {
+                    line.write(b[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.helperlib.command.terminaltoggle;
+
+/**
+ * How a toggle command decides that its main process is ready, i.e. actually serving.
+ * The probe target is interpreted per type.
+ */
+public enum ReadinessProbeType {
+    /** Ready as soon as the process has been spawned. */
+    NONE,
+    /** Target {@code host:port} (or just {@code port} for localhost) accepts TCP connections. */
+    TCP,
+    /** Target URL answers a GET with a 2xx status. */
+    HTTP,
+    /** Target regex finds a match in a line of stdout or stderr. */
+    OUTPUT_REGEX
+}
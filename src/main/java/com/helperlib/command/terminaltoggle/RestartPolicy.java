@@ -0,0 +1,18 @@
+package com.helperlib.command.terminaltoggle;
+
+/**
+ * When a supervised toggle command's main process is restarted after it exits.
+ */
+public enum RestartPolicy {
+    NEVER,
+    ON_FAILURE,
+    ALWAYS;
+
+    boolean shouldRestart(int exitCode) {
+        return switch (this) {
+            case NEVER -> false;
+            case ON_FAILURE -> exitCode != 0;
+            case ALWAYS -> true;
+        };
+    }
+}
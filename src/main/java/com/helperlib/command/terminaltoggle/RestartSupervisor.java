@@ -0,0 +1,95 @@
+package com.helperlib.command.terminaltoggle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restart decisions for one supervised execution of a toggle command.
+ * Delays grow exponentially with consecutive short-lived runs, with jitter so that many commands failing
+ * together do not restart in lockstep; a run that stays up for a whole restart window resets the backoff.
+ * More than {@code maxRestartsInWindow} restarts within {@code restartWindowMs} is a crash loop and ends
+ * supervision. A stop request wins over any pending restart.
+ */
+final class RestartSupervisor {
+
+    /**
+     * @param restart  whether to start the process again
+     * @param delayMs  backoff before restarting
+     * @param message  what to report, or null
+     */
+    record Decision(boolean restart, long delayMs, String message) {
+    }
+
+    private final String commandName;
+    private final RestartPolicy policy;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxRestartsInWindow;
+    private final long windowMs;
+
+    private final Deque<Long> restartTimes = new ArrayDeque<>();
+    private final CountDownLatch stopRequested = new CountDownLatch(1);
+    private int consecutiveShortRuns;
+
+    RestartSupervisor(TerminalToggleCommandMetadata metadata) {
+        this.commandName = metadata.getName();
+        this.policy = metadata.getRestartPolicy();
+        this.initialBackoffMs = Math.max(1, metadata.getRestartInitialBackoffMs());
+        this.maxBackoffMs = Math.max(initialBackoffMs, metadata.getRestartMaxBackoffMs());
+        this.maxRestartsInWindow = metadata.getMaxRestartsInWindow();
+        this.windowMs = Math.max(1, metadata.getRestartWindowMs());
+    }
+
+    /**
+     * @return true if a process exiting with this code would be restarted, crash loops aside
+     */
+    boolean wouldRestart(int exitCode) {
+        return !isStopRequested() && policy.shouldRestart(exitCode);
+    }
+
+    synchronized Decision onExit(int exitCode, long uptimeMs) {
+        if (!wouldRestart(exitCode)) {
+            return new Decision(false, 0, null);
+        }
+
+        long now = System.currentTimeMillis();
+        while (!restartTimes.isEmpty() && now - restartTimes.peekFirst() > windowMs) {
+            restartTimes.removeFirst();
+        }
+        if (maxRestartsInWindow > 0 && restartTimes.size() >= maxRestartsInWindow) {
+            return new Decision(false, 0, String.format(
+                    "Crash loop detected for %s: %d restarts within %d ms, last exit code %d; giving up",
+                    commandName, restartTimes.size(), windowMs, exitCode));
+        }
+        restartTimes.addLast(now);
+
+        consecutiveShortRuns = uptimeMs >= windowMs ? 0 : consecutiveShortRuns + 1;
+        long base = initialBackoffMs << Math.min(Math.max(consecutiveShortRuns - 1, 0), 30);
+        base = Math.min(maxBackoffMs, base);
+        // Equal jitter: at least half the delay, up to all of it
+        long delay = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        return new Decision(true, delay, String.format(
+                "%s exited with code %d after %d ms; restart %d in %d ms",
+                commandName, exitCode, uptimeMs, restartTimes.size(), delay));
+    }
+
+    /**
+     * Waits out the backoff.
+     *
+     * @return false if a stop was requested meanwhile
+     */
+    boolean awaitRestart(long delayMs) throws InterruptedException {
+        return !stopRequested.await(delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    void requestStop() {
+        stopRequested.countDown();
+    }
+
+    boolean isStopRequested() {
+        return stopRequested.getCount() == 0;
+    }
+}
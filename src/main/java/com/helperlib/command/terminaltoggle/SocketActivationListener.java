@@ -0,0 +1,248 @@
+package com.helperlib.command.terminaltoggle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Listens on a toggle's {@code activationAddress} and starts its process on the first connection.
+ * Each connection waits until the process is ready and the backend address accepts, then is proxied byte for
+ * byte in both directions. Once no connection has been open for {@code activationIdleTimeoutMs}, the process
+ * is stopped; the listener stays open and the next connection starts it again.
+ */
+final class SocketActivationListener {
+
+    private final InetSocketAddress listenAddress;
+    private final InetSocketAddress backendAddress;
+    private final long idleTimeoutMs;
+    private final long connectTimeoutMs;
+    private final long connectIntervalMs;
+    private final Supplier<CompletableFuture<Void>> startBackend;
+    private final Runnable stopBackend;
+    private final Consumer<String> events;
+
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    // Bumped by every connection, so an idle stop scheduled before it is dropped
+    private final AtomicLong activity = new AtomicLong();
+    // Held across the idle check and the stop, and while a connection registers and starts the backend,
+    // so a connection either cancels the stop or arrives after it and starts a fresh process
+    private final Object lifecycle = new Object();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param startBackend starts the process unless it is running and returns its ready future
+     * @param stopBackend  stops the process after the idle timeout; returns once it is gone
+     * @param events       activation events for the command's StreamHandler
+     */
+    SocketActivationListener(TerminalToggleCommandMetadata metadata,
+                             Supplier<CompletableFuture<Void>> startBackend,
+                             Runnable stopBackend,
+                             Consumer<String> events) {
+        if (metadata.getActivationBackendAddress() == null || metadata.getActivationBackendAddress().isBlank()) {
+            throw new IllegalArgumentException("Socket activation of " + metadata.getName()
+                    + " requires an activationBackendAddress");
+        }
+        this.listenAddress = address(metadata.getActivationAddress());
+        this.backendAddress = address(metadata.getActivationBackendAddress());
+        this.idleTimeoutMs = metadata.getActivationIdleTimeoutMs();
+        this.connectTimeoutMs = metadata.getReadinessTimeoutMs() > 0
+                ? metadata.getReadinessTimeoutMs()
+                : TerminalToggleCommandMetadata.DEFAULT_READINESS_TIMEOUT_MS;
+        this.connectIntervalMs = Math.max(10, metadata.getReadinessIntervalMs());
+        this.startBackend = startBackend;
+        this.stopBackend = stopBackend;
+        this.events = events;
+    }
+
+    /**
+     * Parses {@code port} or {@code host:port}; the host defaults to the loopback address.
+     */
+    static InetSocketAddress address(String value) {
+        int colon = value.lastIndexOf(':');
+        String host = colon < 0 ? "127.0.0.1" : value.substring(0, colon).strip();
+        int port = Integer.parseInt(value.substring(colon + 1).strip());
+        return new InetSocketAddress(host, port);
+    }
+
+    /**
+     * Binds the listening socket and starts accepting.
+     */
+    void open() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        try {
+            socket.setReuseAddress(true);
+            socket.bind(listenAddress);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        serverSocket = socket;
+        Thread.ofVirtual().name("socket-activation-accept").start(this::acceptLoop);
+    }
+
+    int getLocalPort() {
+        ServerSocket socket = serverSocket;
+        return socket == null ? -1 : socket.getLocalPort();
+    }
+
+    int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Completes once the listener is closed.
+     */
+    CompletableFuture<Void> closedFuture() {
+        return closed;
+    }
+
+    /**
+     * Stops listening and drops every proxied connection. Does not stop the process.
+     */
+    void close() {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            closeQuietly(socket);
+        }
+        sockets.forEach(SocketActivationListener::closeQuietly);
+        closed.complete(null);
+    }
+
+    private void acceptLoop() {
+        ServerSocket socket = serverSocket;
+        while (!closed.isDone()) {
+            try {
+                Socket client = socket.accept();
+                Thread.ofVirtual().name("socket-activation-connection").start(() -> serve(client));
+            } catch (IOException e) {
+                if (!closed.isDone()) {
+                    events.accept("Socket activation stopped accepting: " + e.getMessage());
+                    close();
+                }
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        CompletableFuture<Void> ready;
+        synchronized (lifecycle) {
+            openConnections.incrementAndGet();
+            activity.incrementAndGet();
+            ready = closed.isDone() ? null : startBackend.get();
+        }
+        sockets.add(client);
+        Socket backend = null;
+        try {
+            if (ready == null) {
+                return;
+            }
+            try {
+                ready.get(connectTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IOException("Backend was not ready within " + connectTimeoutMs + " ms", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Backend failed to start: " + e.getCause().getMessage(), e.getCause());
+            }
+            backend = connectBackend();
+            sockets.add(backend);
+            Socket server = backend;
+            Thread upstream = Thread.ofVirtual().name("socket-activation-upstream")
+                    .start(() -> pipe(client, server));
+            pipe(server, client);
+            upstream.join();
+        } catch (Exception e) {
+            if (!closed.isDone()) {
+                events.accept("Dropped a connection to " + listenAddress + ": " + e.getMessage());
+            }
+        } finally {
+            closeQuietly(client);
+            sockets.remove(client);
+            if (backend != null) {
+                closeQuietly(backend);
+                sockets.remove(backend);
+            }
+            if (openConnections.decrementAndGet() == 0) {
+                scheduleIdleStop();
+            }
+        }
+    }
+
+    /**
+     * The process may be ready (e.g. spawned) before it accepts connections, so retry until the timeout.
+     */
+    private Socket connectBackend() throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMs);
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(backendAddress, (int) Math.max(connectIntervalMs, 100));
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (closed.isDone() || System.nanoTime() - deadline >= 0) {
+                    throw new IOException("Backend " + backendAddress + " did not accept: " + e.getMessage(), e);
+                }
+            }
+            Thread.sleep(connectIntervalMs);
+        }
+    }
+
+    private void scheduleIdleStop() {
+        if (idleTimeoutMs <= 0 || closed.isDone()) {
+            return;
+        }
+        long scheduledAt = activity.get();
+        Executor delayed = CompletableFuture.delayedExecutor(idleTimeoutMs, TimeUnit.MILLISECONDS);
+        delayed.execute(() -> {
+            synchronized (lifecycle) {
+                if (!closed.isDone() && openConnections.get() == 0 && activity.get() == scheduledAt) {
+                    events.accept("No connections for " + idleTimeoutMs + " ms, stopping");
+                    stopBackend.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies until end of stream, then half-closes the destination so the other direction can finish.
+     */
+    private static void pipe(Socket from, Socket to) {
+        try {
+            // Not closed here: closing a socket stream closes the socket and with it the other direction
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            in.transferTo(out);
+            out.flush();
+            to.shutdownOutput();
+        } catch (IOException e) {
+            // Either side went away; closing both ends the other direction too
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Already closed
+        }
+    }
+}
@@ -2,23 +2,48 @@ package com.helperlib.command.terminaltoggle;
 
 import com.helperlib.api.command.Command;
 import com.helperlib.api.command.CommandResult;
-import com.helperlib.api.command.ToggleCommand;
 import com.helperlib.api.command.logging.StreamHandler;
 import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.terminal.TerminalExecutionHandle;
+import com.helperlib.command.logging.LogTail;
+import com.helperlib.command.terminal.ProcessTreeStopResult;
 import com.helperlib.command.terminal.TerminalProcessExecutor;
+import com.helperlib.command.toggle.CommandIdentity;
+import com.helperlib.command.toggle.ObservableToggleCommand;
+import com.helperlib.command.toggle.ToggleState;
+import com.helperlib.command.toggle.ToggleStateListener;
+import com.helperlib.command.toggle.ToggleStateTracker;
 import com.helperlib.core.command.CommandExecutorService;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class TerminalToggleCommand extends Command implements ToggleCommand {
+public class TerminalToggleCommand extends Command implements ObservableToggleCommand {
+    // How long an idle stop waits, beyond the stop grace period, for the execution to wind down
+    private static final long IDLE_STOP_EXIT_MARGIN_MS = 2_000;
+
     private final StreamHandler streamHandler;
+    private final LogTail logTail; // null if disabled
 
-    // State for the main/start command
+    // State for the main/start command; the tracker follows the process via onExit.
+    // With a restart policy, one execution spans every supervised restart of the process.
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
-    private final AtomicReference<Process> currentProcess = new AtomicReference<>();
+    private final AtomicReference<TerminalExecutionHandle> currentHandle = new AtomicReference<>();
+    private final AtomicReference<RestartSupervisor> currentSupervisor = new AtomicReference<>();
+    private final ToggleStateTracker stateTracker;
+    private final AtomicReference<ReadinessMonitor> currentReadiness = new AtomicReference<>();
+    // A process recorded by an earlier JVM and still running; see ToggleProcessStateStore
+    private final AtomicReference<ProcessHandle> adoptedProcess = new AtomicReference<>();
     private final AtomicReference<CompletableFuture<CommandResult>> currentExecution = new AtomicReference<>();
+    // Open while socket activation is on; the process then runs on demand between idle stops
+    private final AtomicReference<SocketActivationListener> currentActivation = new AtomicReference<>();
 
     // State for the toggle command
     private final AtomicBoolean isToggling = new AtomicBoolean(false);
@@ -27,40 +52,115 @@ public class TerminalToggleCommand extends Command implements ToggleCommand {
 
     public TerminalToggleCommand(TerminalToggleCommandMetadata metadata, StreamHandler streamHandler) {
         super(metadata);
-        this.streamHandler = streamHandler;
+        this.logTail = metadata.getLogTailBytes() > 0 && metadata.getLogTailLines() > 0
+                ? new LogTail(metadata.getLogTailBytes(), metadata.getLogTailLines())
+                : null;
+        this.streamHandler = logTail == null ? streamHandler : logTail.tee(streamHandler);
+        this.stateTracker = new ToggleStateTracker(metadata.getName());
+    }
+
+    /**
+     * Adopts the process an earlier JVM recorded for this command (see {@link ToggleProcessStateStore}) if it
+     * is still running, this command is idle and no other command in this JVM runs or has adopted it.
+     * Only commands whose output goes to files can be reattached ({@link ToggleProcessStateStore#isReattachable}).
+     * Called by {@link TerminalToggleCommandFactory} once the command is registered, so registry listeners
+     * see the resulting RUNNING state.
+     *
+     * @return true if a process was adopted
+     */
+    public synchronized boolean reattach() {
+        if (getState() != ToggleState.STOPPED || isRunning.get() || isAdoptedProcessAlive()
+                || currentActivation.get() != null
+                || !ToggleProcessStateStore.isReattachable((TerminalToggleCommandMetadata) metadata)) {
+            return false;
+        }
+        Optional<ProcessHandle> process = ToggleProcessStateStore.claim(
+                ((TerminalToggleCommandMetadata) metadata).getCommandIdentity());
+        process.ifPresent(this::adopt);
+        return process.isPresent();
     }
 
     @Override
     public CompletableFuture<CommandResult> executeAsync() {
-        // Prevent multiple simultaneous main/start executions
-        if (isRunning.get()) {
+        // Prevent multiple simultaneous main/start executions, including a reattached process
+        if (isRunning.get() || isAdoptedProcessAlive() || currentActivation.get() != null) {
             return CompletableFuture.completedFuture(new CommandResult(false, -1, 0));
         }
 
+        TerminalToggleCommandMetadata terminalMetadata = (TerminalToggleCommandMetadata) metadata;
+        if (terminalMetadata.isSocketActivated()) {
+            return listen(terminalMetadata);
+        }
+        return startProcess(terminalMetadata, false);
+    }
+
+    /**
+     * Runs the main process, with supervised restarts, until it exits or is stopped.
+     *
+     * @param onDemand started by socket activation; abandoned if activation was stopped in the meantime
+     */
+    private CompletableFuture<CommandResult> startProcess(TerminalToggleCommandMetadata terminalMetadata,
+                                                          boolean onDemand) {
+        // Installed before the async start, so getReadyFuture() right after executeAsync() sees this execution
+        ReadinessMonitor readiness = new ReadinessMonitor(terminalMetadata);
+        ReadinessMonitor previousReadiness = currentReadiness.getAndSet(readiness);
+
         CompletableFuture<CommandResult> executionFuture = CompletableFuture.supplyAsync(() -> {
             long startTime = System.currentTimeMillis();
 
             if (!isRunning.compareAndSet(false, true)) {
+                currentReadiness.compareAndSet(readiness, previousReadiness);
                 return new CommandResult(false, -1, 0);
             }
+            // Pairs with toggleAsync clearing the activation before it checks isRunning
+            if (onDemand && currentActivation.get() == null) {
+                isRunning.set(false);
+                readiness.onExecutionEnded();
+                return new CommandResult(false, 130, 0);
+            }
 
-            TerminalToggleCommandMetadata terminalMetadata = (TerminalToggleCommandMetadata) metadata;
+            RestartSupervisor supervisor = new RestartSupervisor(terminalMetadata);
+            currentSupervisor.set(supervisor);
+            CommandIdentity identity = terminalMetadata.getCommandIdentity();
+            StreamHandler processStreamHandler = readiness.wrap(streamHandler);
 
             try {
                 System.out.println("Started toggleable terminal command: " + terminalMetadata.getName());
 
-                CommandResult result = TerminalProcessExecutor.executeProcess(
-                        terminalMetadata, streamHandler, currentProcess);
+                while (true) {
+                    TerminalExecutionHandle handle = new TerminalExecutionHandle();
+                    currentHandle.set(handle);
+                    stateTracker.transition(ToggleState.STARTING);
+                    handle.processStarted().thenAccept(process -> {
+                        onProcessStarted(handle, process, supervisor);
+                        ToggleProcessStateStore.record(identity, terminalMetadata, process.toHandle());
+                        readiness.onProcessStarted(process, supervisor::wouldRestart);
+                    });
 
-                long executionTime = System.currentTimeMillis() - startTime;
+                    long runStart = System.currentTimeMillis();
+                    CommandResult result = TerminalProcessExecutor.executeProcess(
+                            terminalMetadata, processStreamHandler, handle);
 
-                if (result.success()) {
-                    System.out.println("Terminal toggle command (main/start) completed successfully");
-                } else {
-                    System.out.println("Terminal toggle command (main/start) failed with exit code: " + result.exitCode());
-                }
+                    // Supervised restart, unless the policy, a crash loop or a stop request says otherwise
+                    RestartSupervisor.Decision decision = supervisor.onExit(
+                            result.exitCode(), System.currentTimeMillis() - runStart);
+                    if (decision.message() != null) {
+                        reportSupervisorEvent(terminalMetadata, decision.message());
+                    }
+                    if (decision.restart() && supervisor.awaitRestart(decision.delayMs())) {
+                        continue;
+                    }
 
-                return new CommandResult(result.success(), result.exitCode(), executionTime);
+                    long executionTime = System.currentTimeMillis() - startTime;
+
+                    if (result.success()) {
+                        System.out.println("Terminal toggle command (main/start) completed successfully");
+                    } else {
+                        System.out.println("Terminal toggle command (main/start) failed with exit code: " + result.exitCode());
+                    }
+
+                    return new CommandResult(result.success(), result.exitCode(), executionTime);
+                }
             } catch (InterruptedException e) {
                 long executionTime = System.currentTimeMillis() - startTime;
                 System.out.println("Terminal toggle command (main/start) was interrupted: " + e.getMessage());
@@ -70,8 +170,12 @@ public class TerminalToggleCommand extends Command implements ToggleCommand {
                 System.err.println("Terminal toggle command (main/start) execution failed: " + e.getMessage());
                 return new CommandResult(false, -1, executionTime);
             } finally {
+                ToggleProcessStateStore.clear(identity);
+                readiness.onExecutionEnded();
+                currentSupervisor.set(null);
+                currentHandle.set(null);
                 isRunning.set(false);
-                currentProcess.set(null);
+                stateTracker.transition(idleState());
             }
         }, CommandExecutorService.getVirtualThreadExecutor());
 
@@ -79,8 +183,100 @@ public class TerminalToggleCommand extends Command implements ToggleCommand {
         return executionFuture;
     }
 
+    /**
+     * Socket activation: binds the listener and returns a future that completes once a toggle closed it and
+     * the process it started, if any, has ended.
+     */
+    private CompletableFuture<CommandResult> listen(TerminalToggleCommandMetadata terminalMetadata) {
+        long startTime = System.currentTimeMillis();
+        SocketActivationListener activation;
+        try {
+            activation = new SocketActivationListener(terminalMetadata,
+                    () -> startOnDemand(terminalMetadata),
+                    () -> stopForIdle(terminalMetadata),
+                    message -> reportEvent(terminalMetadata, "activation", message));
+            activation.open();
+        } catch (Exception e) {
+            System.err.println("Socket activation of " + terminalMetadata.getName() + " failed: " + e.getMessage());
+            return CompletableFuture.completedFuture(new CommandResult(false, -1, System.currentTimeMillis() - startTime));
+        }
+        if (!currentActivation.compareAndSet(null, activation)) {
+            activation.close();
+            return CompletableFuture.completedFuture(new CommandResult(false, -1, 0));
+        }
+        stateTracker.transition(ToggleState.LISTENING);
+        System.out.println("Listening for " + terminalMetadata.getName() + " on " + terminalMetadata.getActivationAddress());
+
+        CompletableFuture<CommandResult> listening = activation.closedFuture()
+                .thenCompose(v -> {
+                    CompletableFuture<CommandResult> process = currentExecution.get();
+                    return process == null ? CompletableFuture.completedFuture(null) : process;
+                })
+                .handle((result, error) -> new CommandResult(true, 0, System.currentTimeMillis() - startTime));
+        return listening;
+    }
+
+    /**
+     * Starts the process for an incoming connection unless it is already running.
+     *
+     * @return the ready future of the running execution, i.e. of the readiness probe a start just installed
+     */
+    private synchronized CompletableFuture<Void> startOnDemand(TerminalToggleCommandMetadata terminalMetadata) {
+        CompletableFuture<CommandResult> execution = currentExecution.get();
+        if (execution == null || execution.isDone()) {
+            if (currentActivation.get() == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Socket activation was stopped"));
+            }
+            reportEvent(terminalMetadata, "activation", "Starting " + terminalMetadata.getName() + " for a connection");
+            startProcess(terminalMetadata, true);
+        }
+        // Not getReadyFuture(): while listening it reports ready without waiting for the process
+        return executionReadyFuture();
+    }
+
+    /**
+     * Idle stop for socket activation. Returns once the execution has ended (bounded by the grace period),
+     * so a connection accepted right after starts a fresh process instead of waiting on the one going away.
+     */
+    private void stopForIdle(TerminalToggleCommandMetadata terminalMetadata) {
+        stopProcess().join();
+        CompletableFuture<CommandResult> execution = currentExecution.get();
+        if (execution == null) {
+            return;
+        }
+        try {
+            execution.get(terminalMetadata.getStopGracePeriodMs() + IDLE_STOP_EXIT_MARGIN_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Gone or going; startOnDemand starts a new process once this one is done
+        }
+    }
+
+    /**
+     * @return the state once the process is gone: LISTENING while socket activation is on
+     */
+    private ToggleState idleState() {
+        return currentActivation.get() != null ? ToggleState.LISTENING : ToggleState.STOPPED;
+    }
+
+    /**
+     * Stops the process; with socket activation, also stops listening.
+     */
     @Override
     public CompletableFuture<CommandResult> toggleAsync() {
+        SocketActivationListener activation = currentActivation.getAndSet(null);
+        if (activation != null) {
+            activation.close();
+            if (!isRunning.get()) {
+                stateTracker.transition(ToggleState.LISTENING, ToggleState.STOPPED);
+                return CompletableFuture.completedFuture(new CommandResult(true, 0, 0));
+            }
+        }
+        return stopProcess();
+    }
+
+    private CompletableFuture<CommandResult> stopProcess() {
         // Prevent multiple simultaneous toggles, but allow toggling while the main command may be running
         if (isToggling.get()) {
             return CompletableFuture.completedFuture(new CommandResult(false, -1, 0));
@@ -93,12 +289,21 @@ public class TerminalToggleCommand extends Command implements ToggleCommand {
                 return new CommandResult(false, -1, 0);
             }
 
+            // An explicit toggle wins over a pending or future supervised restart
+            RestartSupervisor supervisor = currentSupervisor.get();
+            if (supervisor != null) {
+                supervisor.requestStop();
+            }
+
             TerminalToggleCommandMetadata meta = (TerminalToggleCommandMetadata) metadata;
             String toggleCmd = meta.getToggleCommandText();
 
             if (toggleCmd == null || toggleCmd.isBlank()) {
-                isToggling.set(false);
-                return new CommandResult(false, -1, 0);
+                try {
+                    return stopMainProcess(meta, supervisor != null, startTime);
+                } finally {
+                    isToggling.set(false);
+                }
             }
 
             // Build a temporary metadata for the toggle command execution
@@ -145,9 +350,151 @@ public class TerminalToggleCommand extends Command implements ToggleCommand {
         return toggleFuture;
     }
 
+    /**
+     * True while the process runs, or while socket activation is listening for connections.
+     */
     @Override
     public boolean isRunning() {
-        Process p = currentProcess.get();
-        return isRunning.get() && p != null && p.isAlive();
+        if (isAdoptedProcessAlive() || currentActivation.get() != null) {
+            return true;
+        }
+        TerminalExecutionHandle handle = currentHandle.get();
+        return isRunning.get() && handle != null && handle.getProcess().map(Process::isAlive).orElse(false);
+    }
+
+    /**
+     * Completes once the latest execution's readiness probe passes; with no probe, once the process is spawned.
+     * Fails with a TimeoutException after {@code readinessTimeoutMs}, or with an IllegalStateException if the
+     * process exits first and is not restarted. Each {@link #executeAsync()} starts a new future.
+     */
+    @Override
+    public CompletableFuture<Void> getReadyFuture() {
+        if (isAdoptedProcessAlive() || (currentActivation.get() != null && !isRunning.get())) {
+            // Listening counts as ready: connections are accepted and wait for the process
+            return CompletableFuture.completedFuture(null);
+        }
+        return executionReadyFuture();
+    }
+
+    private CompletableFuture<Void> executionReadyFuture() {
+        ReadinessMonitor readiness = currentReadiness.get();
+        return readiness == null
+                ? CompletableFuture.failedFuture(new IllegalStateException("Command has not been started"))
+                : readiness.readyFuture().copy();
+    }
+
+    /**
+     * @return recent output lines of all executions (stdout, stderr and supervisor/stop events), if enabled
+     */
+    public Optional<LogTail> getLogTail() {
+        return Optional.ofNullable(logTail);
+    }
+
+    @Override
+    public ToggleState getState() {
+        return stateTracker.get();
+    }
+
+    @Override
+    public void addStateListener(ToggleStateListener listener) {
+        stateTracker.addListener(listener);
+    }
+
+    @Override
+    public void removeStateListener(ToggleStateListener listener) {
+        stateTracker.removeListener(listener);
+    }
+
+    /**
+     * RUNNING once spawned; STOPPED as soon as the process exits, without waiting for its output to drain.
+     */
+    private void onProcessStarted(TerminalExecutionHandle handle, Process process, RestartSupervisor supervisor) {
+        stateTracker.transition(ToggleState.STARTING, ToggleState.RUNNING);
+        process.onExit().thenRun(() -> {
+            // Ignore a late exit event once a newer execution owns the state,
+            // and never overwrite the STOPPED the execution itself publishes
+            if (currentHandle.get() == handle) {
+                boolean restart = supervisor.wouldRestart(process.exitValue());
+                ToggleState next = restart ? ToggleState.RESTARTING : idleState();
+                if (!stateTracker.transition(ToggleState.RUNNING, next)) {
+                    stateTracker.transition(ToggleState.STOPPING, idleState());
+                }
+            }
+        });
+    }
+
+    /**
+     * Built-in stop when no toggle command is configured: SIGTERM to the process tree, forced kill after
+     * {@code stopGracePeriodMs}. Reported on the StreamHandler as a "stop" stream.
+     */
+    private CommandResult stopMainProcess(TerminalToggleCommandMetadata meta, boolean executing, long startTime) {
+        ProcessHandle adopted = adoptedProcess.get();
+        if (adopted != null && adopted.isAlive()) {
+            stateTracker.transition(ToggleState.RUNNING, ToggleState.STOPPING);
+            reportStop(meta, TerminalProcessExecutor.stopProcessTree(adopted, meta.getStopGracePeriodMs()));
+            return new CommandResult(true, 0, System.currentTimeMillis() - startTime);
+        }
+
+        TerminalExecutionHandle handle = currentHandle.get();
+        if (handle != null && handle.getProcess().isEmpty()) {
+            // Not spawned yet; the handle kills it as soon as it is attached
+            handle.cancel();
+        }
+        Process process = handle == null ? null : handle.getProcess().filter(Process::isAlive).orElse(null);
+        if (process == null) {
+            // Nothing to signal; cancelling a pending supervised restart was the whole stop
+            return new CommandResult(executing, executing ? 0 : -1, System.currentTimeMillis() - startTime);
+        }
+
+        stateTracker.transition(ToggleState.RUNNING, ToggleState.STOPPING);
+        reportStop(meta, TerminalProcessExecutor.stopProcessTree(process, meta.getStopGracePeriodMs()));
+        return new CommandResult(true, 0, System.currentTimeMillis() - startTime);
+    }
+
+    private void reportStop(TerminalToggleCommandMetadata meta, ProcessTreeStopResult stop) {
+        reportEvent(meta, "stop", stop.graceful()
+                ? String.format("Stopped %s: %d process(es) exited within %d ms",
+                        meta.getName(), stop.signalledProcesses(), stop.elapsedMs())
+                : String.format("Stopped %s: %d of %d process(es) killed after the %d ms grace period (%d ms)",
+                        meta.getName(), stop.forciblyKilled(), stop.signalledProcesses(),
+                        meta.getStopGracePeriodMs(), stop.elapsedMs()));
+    }
+
+    /**
+     * Takes over a process recorded by an earlier JVM: RUNNING until it exits, then STOPPED and forgotten.
+     * Its output cannot be read, and it is not supervised.
+     */
+    private void adopt(ProcessHandle process) {
+        adoptedProcess.set(process);
+        stateTracker.transition(ToggleState.RUNNING);
+        System.out.println("Reattached toggleable terminal command " + metadata.getName() + " to pid " + process.pid());
+        CommandIdentity identity = ((TerminalToggleCommandMetadata) metadata).getCommandIdentity();
+        process.onExit().thenRun(() -> {
+            if (adoptedProcess.compareAndSet(process, null)) {
+                ToggleProcessStateStore.clear(identity);
+                if (!stateTracker.transition(ToggleState.RUNNING, ToggleState.STOPPED)) {
+                    stateTracker.transition(ToggleState.STOPPING, ToggleState.STOPPED);
+                }
+            }
+        });
+    }
+
+    private boolean isAdoptedProcessAlive() {
+        ProcessHandle process = adoptedProcess.get();
+        return process != null && process.isAlive();
+    }
+
+    /**
+     * Restart events go to the StreamHandler as their own "supervisor" stream.
+     */
+    private void reportSupervisorEvent(TerminalToggleCommandMetadata meta, String message) {
+        reportEvent(meta, "supervisor", message);
+    }
+
+    private void reportEvent(TerminalToggleCommandMetadata meta, String streamType, String message) {
+        System.out.println(message);
+        streamHandler.handleStream(
+                new ByteArrayInputStream((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)),
+                streamType, meta.getName()).join();
     }
 }
\ No newline at end of file
@@ -4,7 +4,9 @@ import com.helperlib.api.command.Command;
 import com.helperlib.api.command.CommandFactory;
 import com.helperlib.api.command.CommandMetadata;
 import com.helperlib.api.command.CommandType;
+import com.helperlib.api.command.ToggleCommand;
 import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.logging.LogTail;
 import com.helperlib.command.terminal.TerminalCommandMetadata;
 import com.helperlib.command.terminal.TerminalMetadataParser;
 import jakarta.json.Json;
@@ -27,7 +29,7 @@ public class TerminalToggleCommandFactory implements CommandFactory {
                 : "";
 
         // Return the enriched toggle metadata
-        return new TerminalToggleCommandMetadata(
+        TerminalToggleCommandMetadata toggleMetadata = new TerminalToggleCommandMetadata(
                 base.getName(),
                 base.getDescription(),
                 base.getType(),
@@ -37,6 +39,61 @@ public class TerminalToggleCommandFactory implements CommandFactory {
                 base.getPath(),
                 base.getEnvironmentPathVariable()
         );
+        toggleMetadata.copyExecutionOptionsFrom(base);
+
+        if (jsonObject.containsKey("stopGracePeriodMs")) {
+            toggleMetadata.setStopGracePeriodMs(jsonObject.getJsonNumber("stopGracePeriodMs").longValue());
+        }
+
+        if (jsonObject.containsKey("logTailBytes")) {
+            toggleMetadata.setLogTailBytes(jsonObject.getInt("logTailBytes"));
+        }
+        if (jsonObject.containsKey("logTailLines")) {
+            toggleMetadata.setLogTailLines(jsonObject.getInt("logTailLines"));
+        }
+
+        // Optional supervision
+        if (jsonObject.containsKey("restartPolicy")) {
+            toggleMetadata.setRestartPolicy(RestartPolicy.valueOf(jsonObject.getString("restartPolicy")));
+        }
+        if (jsonObject.containsKey("restartInitialBackoffMs")) {
+            toggleMetadata.setRestartInitialBackoffMs(jsonObject.getJsonNumber("restartInitialBackoffMs").longValue());
+        }
+        if (jsonObject.containsKey("restartMaxBackoffMs")) {
+            toggleMetadata.setRestartMaxBackoffMs(jsonObject.getJsonNumber("restartMaxBackoffMs").longValue());
+        }
+        if (jsonObject.containsKey("maxRestartsInWindow")) {
+            toggleMetadata.setMaxRestartsInWindow(jsonObject.getInt("maxRestartsInWindow"));
+        }
+        if (jsonObject.containsKey("restartWindowMs")) {
+            toggleMetadata.setRestartWindowMs(jsonObject.getJsonNumber("restartWindowMs").longValue());
+        }
+
+        // Optional readiness probe
+        if (jsonObject.containsKey("readinessProbe")) {
+            toggleMetadata.setReadinessProbe(ReadinessProbeType.valueOf(jsonObject.getString("readinessProbe")));
+        }
+        if (jsonObject.containsKey("readinessTarget")) {
+            toggleMetadata.setReadinessTarget(jsonObject.getString("readinessTarget"));
+        }
+        if (jsonObject.containsKey("readinessTimeoutMs")) {
+            toggleMetadata.setReadinessTimeoutMs(jsonObject.getJsonNumber("readinessTimeoutMs").longValue());
+        }
+        if (jsonObject.containsKey("readinessIntervalMs")) {
+            toggleMetadata.setReadinessIntervalMs(jsonObject.getJsonNumber("readinessIntervalMs").longValue());
+        }
+
+        // Optional socket activation
+        if (jsonObject.containsKey("activationAddress")) {
+            toggleMetadata.setActivationAddress(jsonObject.getString("activationAddress"));
+        }
+        if (jsonObject.containsKey("activationBackendAddress")) {
+            toggleMetadata.setActivationBackendAddress(jsonObject.getString("activationBackendAddress"));
+        }
+        if (jsonObject.containsKey("activationIdleTimeoutMs")) {
+            toggleMetadata.setActivationIdleTimeoutMs(jsonObject.getJsonNumber("activationIdleTimeoutMs").longValue());
+        }
+        return toggleMetadata;
     }
 
     @Override
@@ -54,6 +111,44 @@ public class TerminalToggleCommandFactory implements CommandFactory {
             } else {
                 builder.add("toggleCommandText", "");
             }
+
+            if (toggleMeta.getStopGracePeriodMs() != TerminalToggleCommandMetadata.DEFAULT_STOP_GRACE_PERIOD_MS) {
+                builder.add("stopGracePeriodMs", toggleMeta.getStopGracePeriodMs());
+            }
+
+            if (toggleMeta.getLogTailBytes() != LogTail.DEFAULT_MAX_BYTES
+                    || toggleMeta.getLogTailLines() != LogTail.DEFAULT_MAX_LINES) {
+                builder.add("logTailBytes", toggleMeta.getLogTailBytes());
+                builder.add("logTailLines", toggleMeta.getLogTailLines());
+            }
+
+            // Supervision settings only when supervision is enabled
+            if (toggleMeta.getRestartPolicy() != RestartPolicy.NEVER) {
+                builder.add("restartPolicy", toggleMeta.getRestartPolicy().name());
+                builder.add("restartInitialBackoffMs", toggleMeta.getRestartInitialBackoffMs());
+                builder.add("restartMaxBackoffMs", toggleMeta.getRestartMaxBackoffMs());
+                builder.add("maxRestartsInWindow", toggleMeta.getMaxRestartsInWindow());
+                builder.add("restartWindowMs", toggleMeta.getRestartWindowMs());
+            }
+
+            // Readiness settings only when a probe is configured
+            if (toggleMeta.getReadinessProbe() != ReadinessProbeType.NONE) {
+                builder.add("readinessProbe", toggleMeta.getReadinessProbe().name());
+                if (toggleMeta.getReadinessTarget() != null) {
+                    builder.add("readinessTarget", toggleMeta.getReadinessTarget());
+                }
+                builder.add("readinessTimeoutMs", toggleMeta.getReadinessTimeoutMs());
+                builder.add("readinessIntervalMs", toggleMeta.getReadinessIntervalMs());
+            }
+
+            // Socket activation settings only when activation is configured
+            if (toggleMeta.isSocketActivated()) {
+                builder.add("activationAddress", toggleMeta.getActivationAddress());
+                if (toggleMeta.getActivationBackendAddress() != null) {
+                    builder.add("activationBackendAddress", toggleMeta.getActivationBackendAddress());
+                }
+                builder.add("activationIdleTimeoutMs", toggleMeta.getActivationIdleTimeoutMs());
+            }
         } else {
             builder.add("toggleCommandText", "");
         }
@@ -79,25 +174,16 @@ public class TerminalToggleCommandFactory implements CommandFactory {
                     base.getPath(),
                     base.getEnvironmentPathVariable()
             );
+            toggleMetadata.copyExecutionOptionsFrom(base);
+            toggleMetadata.setExecutionContext(base.getExecutionContext());
         }
 
-        String commandId = generateCommandId(toggleMetadata);
-
-        return (Command) ToggleCommandRegistry.getOrCreateCommand(commandId,
+        ToggleCommand command = ToggleCommandRegistry.getOrCreateCommand(toggleMetadata.getCommandIdentity(),
                 () -> new TerminalToggleCommand(toggleMetadata, streamHandler));
-    }
-
-    private String generateCommandId(CommandMetadata metadata) {
-        TerminalCommandMetadata terminalMetadata = (TerminalCommandMetadata) metadata;
-
-        // Use name + command text + path for uniqueness
-        String name = String.valueOf(terminalMetadata.getName());
-        String commandText = String.valueOf(terminalMetadata.getCommandText());
-        String path = String.valueOf(terminalMetadata.getPath());
-
-        return String.format("%s-%s-%s",
-                name,
-                commandText.hashCode(),
-                path.hashCode());
+        // After registration, so the registry's state listener sees an adopted process
+        if (command instanceof TerminalToggleCommand terminalToggle) {
+            terminalToggle.reattach();
+        }
+        return (Command) command;
     }
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.helperlib.command.terminaltoggle;
 
 import com.helperlib.api.command.CommandType;
+import com.helperlib.command.logging.LogTail;
 import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.toggle.CommandIdentity;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -11,7 +14,43 @@ import java.util.Map;
  * toggle/stop action.
  */
 public class TerminalToggleCommandMetadata extends TerminalCommandMetadata {
+    public static final long DEFAULT_RESTART_INITIAL_BACKOFF_MS = 1_000;
+    public static final long DEFAULT_RESTART_MAX_BACKOFF_MS = 30_000;
+    public static final int DEFAULT_MAX_RESTARTS_IN_WINDOW = 5;
+    public static final long DEFAULT_RESTART_WINDOW_MS = 60_000;
+    public static final long DEFAULT_READINESS_TIMEOUT_MS = 60_000;
+    public static final long DEFAULT_READINESS_INTERVAL_MS = 250;
+    public static final long DEFAULT_STOP_GRACE_PERIOD_MS = 5_000;
+    public static final long DEFAULT_ACTIVATION_IDLE_TIMEOUT_MS = 300_000;
+
     private String toggleCommandText;
+    // Built-in stop used when toggleCommandText is blank: SIGTERM the tree, force-kill after the grace period
+    private long stopGracePeriodMs = DEFAULT_STOP_GRACE_PERIOD_MS;
+    // In-memory tail of recent output (TerminalToggleCommand.getLogTail); logTailBytes <= 0 disables it
+    private int logTailBytes = LogTail.DEFAULT_MAX_BYTES;
+    private int logTailLines = LogTail.DEFAULT_MAX_LINES;
+
+    // Optional supervision of the main process (see copySupervisionFrom)
+    private RestartPolicy restartPolicy = RestartPolicy.NEVER;
+    private long restartInitialBackoffMs = DEFAULT_RESTART_INITIAL_BACKOFF_MS;
+    private long restartMaxBackoffMs = DEFAULT_RESTART_MAX_BACKOFF_MS;
+    private int maxRestartsInWindow = DEFAULT_MAX_RESTARTS_IN_WINDOW; // more within restartWindowMs is a crash loop; <= 0 unlimited
+    private long restartWindowMs = DEFAULT_RESTART_WINDOW_MS;         // also the uptime that resets the backoff
+
+    // Optional readiness probe backing TerminalToggleCommand.getReadyFuture()
+    private ReadinessProbeType readinessProbe = ReadinessProbeType.NONE;
+    private String readinessTarget;                                      // host:port, URL or regex, per probe type
+    private long readinessTimeoutMs = DEFAULT_READINESS_TIMEOUT_MS;      // <= 0 waits indefinitely
+    private long readinessIntervalMs = DEFAULT_READINESS_INTERVAL_MS;    // between TCP/HTTP attempts
+
+    // Optional socket activation: listen on activationAddress, start the process on the first connection and
+    // proxy to activationBackendAddress (both port or host:port); stop after activationIdleTimeoutMs without connections
+    private String activationAddress;
+    private String activationBackendAddress;
+    private long activationIdleTimeoutMs = DEFAULT_ACTIVATION_IDLE_TIMEOUT_MS; // <= 0 never stops
+
+    // Registry identity over the fields that decide which process runs; reset by their setters
+    private volatile CommandIdentity commandIdentity;
 
     public TerminalToggleCommandMetadata(
             String name,
@@ -46,5 +85,256 @@ public class TerminalToggleCommandMetadata extends TerminalCommandMetadata {
 
     public void setToggleCommandText(String toggleCommandText) {
         this.toggleCommandText = toggleCommandText;
+        this.commandIdentity = null;
+    }
+
+    public long getStopGracePeriodMs() {
+        return stopGracePeriodMs;
+    }
+
+    public void setStopGracePeriodMs(long stopGracePeriodMs) {
+        this.stopGracePeriodMs = stopGracePeriodMs;
+    }
+
+    public int getLogTailBytes() {
+        return logTailBytes;
+    }
+
+    public void setLogTailBytes(int logTailBytes) {
+        this.logTailBytes = logTailBytes;
+    }
+
+    public int getLogTailLines() {
+        return logTailLines;
+    }
+
+    public void setLogTailLines(int logTailLines) {
+        this.logTailLines = logTailLines;
+    }
+
+    @Override
+    public void setCommandText(String commandText) {
+        super.setCommandText(commandText);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setArguments(Map<String, String> arguments) {
+        super.setArguments(arguments);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setPath(String path) {
+        super.setPath(path);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setEnvironmentPathVariable(String environmentPathVariable) {
+        super.setEnvironmentPathVariable(environmentPathVariable);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setMergeErrorStream(boolean mergeErrorStream) {
+        super.setMergeErrorStream(mergeErrorStream);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setStderrRedirectPath(String stderrRedirectPath) {
+        super.setStderrRedirectPath(stderrRedirectPath);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setStdoutRedirectPath(String stdoutRedirectPath) {
+        super.setStdoutRedirectPath(stdoutRedirectPath);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setStdinFile(String stdinFile) {
+        super.setStdinFile(stdinFile);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setStdinText(String stdinText) {
+        super.setStdinText(stdinText);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setOutputFilterRegex(String outputFilterRegex) {
+        super.setOutputFilterRegex(outputFilterRegex);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void setOutputFilterJsonFields(List<String> outputFilterJsonFields) {
+        super.setOutputFilterJsonFields(outputFilterJsonFields);
+        this.commandIdentity = null;
+    }
+
+    @Override
+    public void copyExecutionOptionsFrom(TerminalCommandMetadata source) {
+        super.copyExecutionOptionsFrom(source);
+        this.commandIdentity = null;
+    }
+
+    /**
+     * Identity over name, type, command and toggle text, arguments, working directory, PATH override, stdin,
+     * stdout, stderr and output filter options, used to find the running command again. Computed on first use; mutating the arguments map in place
+     * afterwards is not seen, use setArguments instead.
+     */
+    public CommandIdentity getCommandIdentity() {
+        CommandIdentity identity = commandIdentity;
+        if (identity == null) {
+            identity = CommandIdentity.builder()
+                    .add(getType())
+                    .add(getName())
+                    .add(getCommandText())
+                    .add(toggleCommandText)
+                    .add(getArguments())
+                    .add(getPath())
+                    .add(getEnvironmentPathVariable())
+                    .add(getStdinFile())
+                    .add(getStdinText())
+                    .add(isMergeErrorStream())
+                    .add(getStderrRedirectPath())
+                    .add(getStdoutRedirectPath())
+                    .add(getOutputFilterRegex())
+                    .add(getOutputFilterJsonFields())
+                    .build();
+            commandIdentity = identity;
+        }
+        return identity;
+    }
+
+    public RestartPolicy getRestartPolicy() {
+        return restartPolicy;
+    }
+
+    public void setRestartPolicy(RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy == null ? RestartPolicy.NEVER : restartPolicy;
+    }
+
+    public long getRestartInitialBackoffMs() {
+        return restartInitialBackoffMs;
+    }
+
+    public void setRestartInitialBackoffMs(long restartInitialBackoffMs) {
+        this.restartInitialBackoffMs = restartInitialBackoffMs;
+    }
+
+    public long getRestartMaxBackoffMs() {
+        return restartMaxBackoffMs;
+    }
+
+    public void setRestartMaxBackoffMs(long restartMaxBackoffMs) {
+        this.restartMaxBackoffMs = restartMaxBackoffMs;
+    }
+
+    public int getMaxRestartsInWindow() {
+        return maxRestartsInWindow;
+    }
+
+    public void setMaxRestartsInWindow(int maxRestartsInWindow) {
+        this.maxRestartsInWindow = maxRestartsInWindow;
+    }
+
+    public long getRestartWindowMs() {
+        return restartWindowMs;
+    }
+
+    public void setRestartWindowMs(long restartWindowMs) {
+        this.restartWindowMs = restartWindowMs;
+    }
+
+    public ReadinessProbeType getReadinessProbe() {
+        return readinessProbe;
+    }
+
+    public void setReadinessProbe(ReadinessProbeType readinessProbe) {
+        this.readinessProbe = readinessProbe == null ? ReadinessProbeType.NONE : readinessProbe;
+    }
+
+    public String getReadinessTarget() {
+        return readinessTarget;
+    }
+
+    public void setReadinessTarget(String readinessTarget) {
+        this.readinessTarget = readinessTarget;
+    }
+
+    public long getReadinessTimeoutMs() {
+        return readinessTimeoutMs;
+    }
+
+    public void setReadinessTimeoutMs(long readinessTimeoutMs) {
+        this.readinessTimeoutMs = readinessTimeoutMs;
+    }
+
+    public long getReadinessIntervalMs() {
+        return readinessIntervalMs;
+    }
+
+    public void setReadinessIntervalMs(long readinessIntervalMs) {
+        this.readinessIntervalMs = readinessIntervalMs;
+    }
+
+    public String getActivationAddress() {
+        return activationAddress;
+    }
+
+    public void setActivationAddress(String activationAddress) {
+        this.activationAddress = activationAddress;
+    }
+
+    public String getActivationBackendAddress() {
+        return activationBackendAddress;
+    }
+
+    public void setActivationBackendAddress(String activationBackendAddress) {
+        this.activationBackendAddress = activationBackendAddress;
+    }
+
+    public long getActivationIdleTimeoutMs() {
+        return activationIdleTimeoutMs;
+    }
+
+    public void setActivationIdleTimeoutMs(long activationIdleTimeoutMs) {
+        this.activationIdleTimeoutMs = activationIdleTimeoutMs;
+    }
+
+    /**
+     * @return true if the process is started on demand by a listening socket
+     */
+    public boolean isSocketActivated() {
+        return activationAddress != null && !activationAddress.isBlank();
+    }
+
+    /**
+     * Copies the stop, log tail, supervision, readiness and socket activation settings, e.g. when the metadata is re-created for
+     * templating.
+     */
+    public void copySupervisionFrom(TerminalToggleCommandMetadata source) {
+        this.stopGracePeriodMs = source.stopGracePeriodMs;
+        this.logTailBytes = source.logTailBytes;
+        this.logTailLines = source.logTailLines;
+        this.restartPolicy = source.restartPolicy;
+        this.restartInitialBackoffMs = source.restartInitialBackoffMs;
+        this.restartMaxBackoffMs = source.restartMaxBackoffMs;
+        this.maxRestartsInWindow = source.maxRestartsInWindow;
+        this.restartWindowMs = source.restartWindowMs;
+        this.readinessProbe = source.readinessProbe;
+        this.readinessTarget = source.readinessTarget;
+        this.readinessTimeoutMs = source.readinessTimeoutMs;
+        this.readinessIntervalMs = source.readinessIntervalMs;
+        this.activationAddress = source.activationAddress;
+        this.activationBackendAddress = source.activationBackendAddress;
+        this.activationIdleTimeoutMs = source.activationIdleTimeoutMs;
     }
 }
@@ -43,7 +43,7 @@ public final class TerminalToggleTemplatingPolicy implements TemplatingPolicy {
         String renderedCmd = engine.render(m.getCommandText(), parameters);
         String renderedToggle = engine.render(m.getToggleCommandText(), parameters);
 
-        return new TerminalToggleCommandMetadata(
+        TerminalToggleCommandMetadata rendered = new TerminalToggleCommandMetadata(
                 m.getName(),
                 m.getDescription(),
                 m.getType(), // keep type (TERMINAL_TOGGLE)
@@ -53,5 +53,12 @@ public final class TerminalToggleTemplatingPolicy implements TemplatingPolicy {
                 m.getPath(),
                 m.getEnvironmentPathVariable()
         );
+
+        // Preserve non-templated execution options and runtime execution context
+        rendered.copyExecutionOptionsFrom(m);
+        rendered.copySupervisionFrom(m);
+        rendered.setExecutionContext(m.getExecutionContext());
+
+        return rendered;
     }
 }
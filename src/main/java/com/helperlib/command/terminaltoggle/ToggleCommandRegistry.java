@@ -1,41 +1,46 @@
 package com.helperlib.command.terminaltoggle;
 
 import com.helperlib.api.command.ToggleCommand;
+import com.helperlib.command.toggle.CommandIdentity;
+import com.helperlib.command.toggle.ToggleRegistry;
+import com.helperlib.command.toggle.ToggleRegistryStatistics;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+/**
+ * Process-wide {@link ToggleRegistry} for terminal toggle commands, keyed by {@link TerminalToggleCommandMetadata#getCommandIdentity()}.
+ */
 public class ToggleCommandRegistry {
-    private static final Map<String, ToggleCommand> activeCommands = new ConcurrentHashMap<>();
-    private static final ScheduledExecutorService cleanupService =
-            Executors.newScheduledThreadPool(1);
-
-    static {
-        // Periodic cleanup of completed commands
-        cleanupService.scheduleAtFixedRate(
-                ToggleCommandRegistry::cleanupCompletedCommands,
-                30, 30, TimeUnit.SECONDS);
+    private static final ToggleRegistry<CommandIdentity, ToggleCommand> registry = new ToggleRegistry<>();
+
+    public static ToggleCommand getOrCreateCommand(CommandIdentity identity,
+                                                   Supplier<ToggleCommand> commandSupplier) {
+        return registry.getOrCreate(identity, commandSupplier);
     }
 
+    /**
+     * Keys by a caller-chosen string id, digested into an identity.
+     */
     public static ToggleCommand getOrCreateCommand(String commandId,
                                                    Supplier<ToggleCommand> commandSupplier) {
+        return getOrCreateCommand(CommandIdentity.of(commandId), commandSupplier);
+    }
 
-        ToggleCommand existing = activeCommands.get(commandId);
-        if (existing != null && existing.isRunning()) {
-            return existing;
-        }
+    /**
+     * @return the registered command, or null; does not create one
+     */
+    public static ToggleCommand getCommand(CommandIdentity identity) {
+        return registry.get(identity);
+    }
 
-        ToggleCommand newCommand = commandSupplier.get();
-        activeCommands.put(commandId, newCommand);
-        return newCommand;
+    public static ToggleRegistryStatistics getStatistics() {
+        return registry.getStatistics();
     }
 
-    private static void cleanupCompletedCommands() {
-        activeCommands.entrySet().removeIf(entry -> !entry.getValue().isRunning());
+    /**
+     * Stops housekeeping and forgets all entries, e.g. on application exit. Commands are not stopped.
+     */
+    public static void shutdown() {
+        registry.shutdown();
     }
 }
-
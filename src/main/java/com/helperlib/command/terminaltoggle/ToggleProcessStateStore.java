@@ -0,0 +1,179 @@
+package com.helperlib.command.terminaltoggle;
+
+import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.toggle.CommandIdentity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persists the main process of running terminal toggles, one {@code <identity>.state} file each, so that a
+ * restarted application can reattach to processes that outlived it instead of showing them as stopped.
+ * A record holds the pid, the process start instant and the command identity; it is only trusted if a live
+ * process with that pid started at the same instant, which rules out a reused pid.
+ * Disabled until {@link #setDirectory(Path)} is called.
+ * Only toggles whose output goes straight to files are recorded (see {@link #isReattachable}): a process
+ * writing into pipes read by the old JVM would die of a broken pipe once that JVM exits.
+ */
+public final class ToggleProcessStateStore {
+
+    private static final long START_INSTANT_TOLERANCE_MS = 1_000;
+
+    private static volatile Path directory;
+    // Identities whose process a command in this JVM runs or has adopted; their records are not claimed again
+    private static final Set<CommandIdentity> owned = ConcurrentHashMap.newKeySet();
+
+    private ToggleProcessStateStore() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * @param stateDirectory where state files are kept, created if missing; null disables persistence
+     */
+    public static void setDirectory(Path stateDirectory) {
+        directory = stateDirectory;
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return true if the command's stdout goes to {@code stdoutRedirectPath} and its stderr either follows it
+     * ({@code mergeErrorStream}) or goes to {@code stderrRedirectPath}, so its process can outlive this JVM
+     */
+    public static boolean isReattachable(TerminalCommandMetadata metadata) {
+        return isSet(metadata.getStdoutRedirectPath())
+                && (metadata.isMergeErrorStream() || isSet(metadata.getStderrRedirectPath()));
+    }
+
+    /**
+     * Records the process now running for the command; a command that is not reattachable is only marked as
+     * owned by this JVM.
+     */
+    static void record(CommandIdentity identity, TerminalCommandMetadata metadata, ProcessHandle process) {
+        owned.add(identity);
+        Path dir = directory;
+        if (dir == null) {
+            return;
+        }
+        String name = metadata.getName();
+        if (!isReattachable(metadata)) {
+            System.err.println("Not recording " + name + " for reattach: its output is piped to this JVM;"
+                    + " set stdoutRedirectPath and stderrRedirectPath (or mergeErrorStream)");
+            return;
+        }
+        Properties state = new Properties();
+        state.setProperty("identity", identity.toString());
+        state.setProperty("name", String.valueOf(name));
+        state.setProperty("pid", Long.toString(process.pid()));
+        state.setProperty("startedAt", Long.toString(
+                process.info().startInstant().map(Instant::toEpochMilli).orElse(-1L)));
+        try {
+            Files.createDirectories(dir);
+            Path target = stateFile(dir, identity);
+            Path temp = Files.createTempFile(dir, identity.toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                state.store(writer, "Running terminal toggle process");
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not record toggle process state for " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forgets the command's process, e.g. once it has exited.
+     */
+    static void clear(CommandIdentity identity) {
+        owned.remove(identity);
+        Path dir = directory;
+        if (dir == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(stateFile(dir, identity));
+        } catch (IOException e) {
+            System.err.println("Could not remove toggle process state " + identity + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the recorded process if it is still the same live process; stale records are removed
+     */
+    static Optional<ProcessHandle> find(CommandIdentity identity) {
+        Path dir = directory;
+        if (dir == null) {
+            return Optional.empty();
+        }
+        Path file = stateFile(dir, identity);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Optional<ProcessHandle> process = Optional.empty();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            Properties state = new Properties();
+            state.load(reader);
+            if (identity.toString().equals(state.getProperty("identity"))) {
+                long pid = Long.parseLong(state.getProperty("pid"));
+                long startedAt = Long.parseLong(state.getProperty("startedAt", "-1"));
+                process = ProcessHandle.of(pid)
+                        .filter(ProcessHandle::isAlive)
+                        .filter(p -> sameStart(p, startedAt));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable toggle process state " + file + ": " + e.getMessage());
+        }
+        if (process.isEmpty()) {
+            clear(identity);
+        }
+        return process;
+    }
+
+    /**
+     * Like {@link #find}, for adopting the process: a record is handed out only if no command in this JVM
+     * runs or has already adopted the process, so a second instance with the same identity does not take it
+     * over. The claim is released by {@link #clear}.
+     */
+    static Optional<ProcessHandle> claim(CommandIdentity identity) {
+        if (directory == null || !owned.add(identity)) {
+            return Optional.empty();
+        }
+        Optional<ProcessHandle> process = find(identity);
+        if (process.isEmpty()) {
+            owned.remove(identity);
+        }
+        return process;
+    }
+
+    private static boolean sameStart(ProcessHandle process, long startedAt) {
+        Optional<Instant> start = process.info().startInstant();
+        if (startedAt < 0 || start.isEmpty()) {
+            // Start time unknown on this platform; the pid alone has to do
+            return true;
+        }
+        return Math.abs(start.get().toEpochMilli() - startedAt) <= START_INSTANT_TOLERANCE_MS;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static Path stateFile(Path dir, CommandIdentity identity) {
+        return dir.resolve(identity + ".state");
+    }
+}
@@ -0,0 +1,107 @@
+package com.helperlib.command.toggle;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stable 128-bit identity of a command configuration: the first half of a SHA-256 digest over its fields.
+ * Fields are length-prefixed and nulls are encoded distinctly, so different field values never produce the
+ * same input; equal identities for distinct configurations would need a 128-bit digest collision.
+ * Cheap to hash and compare, so it serves directly as a registry key.
+ */
+public record CommandIdentity(long high, long low) {
+
+    /**
+     * Identity of a plain string id, for callers that key by their own ids.
+     */
+    public static CommandIdentity of(String id) {
+        return builder().add(id).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    /**
+     * Feeds fields into the digest in order; add them in the same order for the same kind of command.
+     */
+    public static final class Builder {
+        private final MessageDigest digest;
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+
+        private Builder() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        public Builder add(String value) {
+            if (value == null) {
+                return addLong(-1);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            addLong(bytes.length);
+            digest.update(bytes);
+            return this;
+        }
+
+        public Builder add(long value) {
+            return addLong(value);
+        }
+
+        public Builder add(boolean value) {
+            return addLong(value ? 1 : 0);
+        }
+
+        /**
+         * Adds the entries in key order, so equal maps give equal identities regardless of iteration order.
+         */
+        public Builder add(Map<String, String> values) {
+            if (values == null) {
+                return addLong(-1);
+            }
+            addLong(values.size());
+            new TreeMap<>(values).forEach((key, value) -> add(key).add(value));
+            return this;
+        }
+
+        /**
+         * Adds the elements in list order.
+         */
+        public Builder add(List<String> values) {
+            if (values == null) {
+                return addLong(-1);
+            }
+            addLong(values.size());
+            values.forEach(this::add);
+            return this;
+        }
+
+        public Builder add(Enum<?> value) {
+            return add(value == null ? null : value.name());
+        }
+
+        public CommandIdentity build() {
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new CommandIdentity(hash.getLong(), hash.getLong());
+        }
+
+        private Builder addLong(long value) {
+            scratch.clear();
+            digest.update(scratch.putLong(value).flip());
+            return this;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.helperlib.command.toggle;
+
+import com.helperlib.api.command.ToggleCommand;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A toggle command that publishes state changes as they happen.
+ */
+public interface ObservableToggleCommand extends ToggleCommand {
+
+    ToggleState getState();
+
+    void addStateListener(ToggleStateListener listener);
+
+    void removeStateListener(ToggleStateListener listener);
+
+    /**
+     * Completes once the command is RUNNING, or fails if it stops before getting there. Call it after
+     * starting the command; implementations with a real readiness check override this.
+     */
+    default CompletableFuture<Void> getReadyFuture() {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        ToggleStateListener listener = (name, previous, current) -> {
+            if (current == ToggleState.RUNNING) {
+                ready.complete(null);
+            } else if (current == ToggleState.STOPPED) {
+                ready.completeExceptionally(new IllegalStateException(name + " stopped before it was ready"));
+            }
+        };
+        addStateListener(listener);
+        if (getState() == ToggleState.RUNNING) {
+            ready.complete(null);
+        }
+        ready.whenComplete((v, e) -> removeStateListener(listener));
+        return ready;
+    }
+}
@@ -0,0 +1,248 @@
+package com.helperlib.command.toggle;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.ToggleCommand;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts and stops a group of toggle commands (terminal toggles, tunnels) in parallel.
+ * Commands may depend on others by id: a command starts as soon as all of its dependencies are ready, so
+ * independent chains do not wait for each other; if a dependency fails, its dependents are skipped.
+ * Readiness is {@link ObservableToggleCommand#getReadyFuture()} (e.g. a terminal toggle's readiness probe),
+ * or just the start for other toggle commands. {@link #stopAll(long)} toggles every running command at once
+ * and waits for all of them to stop within one deadline.
+ */
+public final class ToggleGroupController {
+
+    public static final long DEFAULT_READY_TIMEOUT_MS = 60_000;
+
+    private final Map<String, Item> items = new LinkedHashMap<>();
+    private long readyTimeoutMs = DEFAULT_READY_TIMEOUT_MS;
+
+    /**
+     * @param command   a command implementing {@link ToggleCommand}
+     * @param dependsOn ids of commands that must be ready before this one starts
+     */
+    public ToggleGroupController add(String id, Command command, String... dependsOn) {
+        if (!(command instanceof ToggleCommand toggle)) {
+            throw new IllegalArgumentException(id + " is not a toggle command");
+        }
+        if (items.putIfAbsent(id, new Item(id, command, toggle, List.of(dependsOn))) != null) {
+            throw new IllegalArgumentException("Duplicate id: " + id);
+        }
+        return this;
+    }
+
+    /**
+     * Per command, from its start until it must be ready.
+     */
+    public void setReadyTimeoutMs(long readyTimeoutMs) {
+        this.readyTimeoutMs = readyTimeoutMs;
+    }
+
+    public long getReadyTimeoutMs() {
+        return readyTimeoutMs;
+    }
+
+    /**
+     * Starts every command once its dependencies are ready and waits for all of them to be ready.
+     *
+     * @throws IllegalArgumentException for an unknown dependency or a dependency cycle
+     */
+    public CompletableFuture<ToggleGroupReport> startAll() {
+        Map<String, Integer> waves = computeWaves();
+        List<Item> order = new ArrayList<>(items.values());
+        order.sort((a, b) -> Integer.compare(waves.get(a.id), waves.get(b.id)));
+
+        long operationStart = System.nanoTime();
+        Map<String, CompletableFuture<ToggleGroupItemResult>> results = new HashMap<>();
+        for (Item item : order) {
+            int wave = waves.get(item.id);
+            // Captured here: the continuation runs on completing threads while this loop still fills results
+            List<CompletableFuture<ToggleGroupItemResult>> dependencies = item.dependsOn.stream()
+                    .map(results::get)
+                    .toList();
+            results.put(item.id, CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenCompose(v -> {
+                        for (CompletableFuture<ToggleGroupItemResult> dependency : dependencies) {
+                            ToggleGroupItemResult result = dependency.join();
+                            if (!result.succeeded()) {
+                                return CompletableFuture.completedFuture(new ToggleGroupItemResult(item.id,
+                                        ToggleGroupItemStatus.SKIPPED, wave, elapsedMs(operationStart), 0,
+                                        "Dependency " + result.id() + " failed"));
+                            }
+                        }
+                        return start(item, wave, operationStart);
+                    }));
+        }
+        return collect(results, operationStart);
+    }
+
+    /**
+     * Toggles every running command concurrently and waits until each has stopped, all within
+     * {@code deadlineMs}.
+     */
+    public CompletableFuture<ToggleGroupReport> stopAll(long deadlineMs) {
+        Map<String, Integer> waves = computeWaves();
+        long operationStart = System.nanoTime();
+        Map<String, CompletableFuture<ToggleGroupItemResult>> results = new HashMap<>();
+        for (Item item : items.values()) {
+            results.put(item.id, stop(item, waves.get(item.id), operationStart, deadlineMs));
+        }
+        return collect(results, operationStart);
+    }
+
+    private CompletableFuture<ToggleGroupItemResult> start(Item item, int wave, long operationStart) {
+        long offsetMs = elapsedMs(operationStart);
+        long itemStart = System.nanoTime();
+        boolean alreadyRunning = item.toggle.isRunning();
+
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (!alreadyRunning) {
+            item.command.executeAsync().whenComplete((result, error) -> ready.completeExceptionally(
+                    new IllegalStateException(error != null
+                            ? "Failed to start: " + error.getMessage()
+                            : "Exited with code " + result.exitCode() + " before it was ready")));
+        }
+        readyFuture(item.toggle).whenComplete((v, error) -> {
+            if (error == null) {
+                ready.complete(null);
+            } else {
+                ready.completeExceptionally(error);
+            }
+        });
+
+        ToggleGroupItemStatus success = alreadyRunning
+                ? ToggleGroupItemStatus.ALREADY_RUNNING
+                : ToggleGroupItemStatus.READY;
+        return ready.orTimeout(readyTimeoutMs, TimeUnit.MILLISECONDS).handle((v, error) ->
+                outcome(item, wave, offsetMs, itemStart, success, error));
+    }
+
+    private CompletableFuture<ToggleGroupItemResult> stop(Item item, int wave, long operationStart, long deadlineMs) {
+        long itemStart = System.nanoTime();
+        if (!ToggleRegistry.isActive(item.toggle)) {
+            return CompletableFuture.completedFuture(new ToggleGroupItemResult(item.id,
+                    ToggleGroupItemStatus.NOT_RUNNING, wave, 0, 0, null));
+        }
+        CompletableFuture<ToggleGroupItemStatus> stopped = item.toggle.toggleAsync().thenCompose(result -> {
+            if (result.success()) {
+                return stoppedFuture(item.toggle).thenApply(v -> ToggleGroupItemStatus.STOPPED);
+            }
+            // The toggle fails when the command exited on its own meanwhile, or another caller is stopping it
+            if (!ToggleRegistry.isActive(item.toggle)) {
+                return CompletableFuture.completedFuture(ToggleGroupItemStatus.NOT_RUNNING);
+            }
+            if (item.toggle instanceof ObservableToggleCommand observable
+                    && observable.getState() == ToggleState.STOPPING) {
+                return stoppedFuture(item.toggle).thenApply(v -> ToggleGroupItemStatus.STOPPED);
+            }
+            throw new IllegalStateException("Toggle failed with exit code " + result.exitCode());
+        });
+        long remainingMs = Math.max(0, deadlineMs - elapsedMs(operationStart));
+        return stopped.orTimeout(remainingMs, TimeUnit.MILLISECONDS).handle((status, error) ->
+                outcome(item, wave, elapsedMs(operationStart), itemStart, status, error));
+    }
+
+    private static ToggleGroupItemResult outcome(Item item, int wave, long offsetMs, long itemStart,
+                                                 ToggleGroupItemStatus success, Throwable error) {
+        long durationMs = elapsedMs(itemStart);
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return new ToggleGroupItemResult(item.id, success, wave, offsetMs, durationMs, null);
+        }
+        ToggleGroupItemStatus status = cause instanceof TimeoutException
+                ? ToggleGroupItemStatus.TIMED_OUT
+                : ToggleGroupItemStatus.FAILED;
+        return new ToggleGroupItemResult(item.id, status, wave, offsetMs, durationMs, String.valueOf(cause.getMessage()));
+    }
+
+    private CompletableFuture<ToggleGroupReport> collect(Map<String, CompletableFuture<ToggleGroupItemResult>> results,
+                                                         long operationStart) {
+        return CompletableFuture.allOf(results.values().toArray(CompletableFuture[]::new)).thenApply(v -> {
+            List<ToggleGroupItemResult> ordered = new ArrayList<>(items.size());
+            for (String id : items.keySet()) {
+                ordered.add(results.get(id).join());
+            }
+            return new ToggleGroupReport(List.copyOf(ordered), elapsedMs(operationStart));
+        });
+    }
+
+    private static CompletableFuture<Void> readyFuture(ToggleCommand toggle) {
+        return toggle instanceof ObservableToggleCommand observable
+                ? observable.getReadyFuture()
+                : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Completes when the command reports STOPPED; commands without state events count as stopped once
+     * their toggle completed.
+     */
+    private static CompletableFuture<Void> stoppedFuture(ToggleCommand toggle) {
+        if (!(toggle instanceof ObservableToggleCommand observable)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> stopped = new CompletableFuture<>();
+        ToggleStateListener listener = (name, previous, current) -> {
+            if (current == ToggleState.STOPPED) {
+                stopped.complete(null);
+            }
+        };
+        observable.addStateListener(listener);
+        if (observable.getState() == ToggleState.STOPPED) {
+            stopped.complete(null);
+        }
+        stopped.whenComplete((v, e) -> observable.removeStateListener(listener));
+        return stopped;
+    }
+
+    /**
+     * @return dependency depth per id
+     */
+    private Map<String, Integer> computeWaves() {
+        Map<String, Integer> waves = new HashMap<>();
+        for (String id : items.keySet()) {
+            waveOf(id, waves, new ArrayList<>());
+        }
+        return waves;
+    }
+
+    private int waveOf(String id, Map<String, Integer> waves, List<String> path) {
+        Integer known = waves.get(id);
+        if (known != null) {
+            return known;
+        }
+        Item item = items.get(id);
+        if (item == null) {
+            throw new IllegalArgumentException(path.getLast() + " depends on unknown id " + id);
+        }
+        if (path.contains(id)) {
+            throw new IllegalArgumentException("Dependency cycle: " + String.join(" -> ", path) + " -> " + id);
+        }
+        path.add(id);
+        int wave = 0;
+        for (String dependency : item.dependsOn) {
+            wave = Math.max(wave, waveOf(dependency, waves, path) + 1);
+        }
+        path.removeLast();
+        waves.put(id, wave);
+        return wave;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private record Item(String id, Command command, ToggleCommand toggle, List<String> dependsOn) {
+    }
+}
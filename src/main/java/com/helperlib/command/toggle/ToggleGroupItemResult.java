@@ -0,0 +1,24 @@
+package com.helperlib.command.toggle;
+
+/**
+ * Timing and outcome of one command in a {@link ToggleGroupController} operation.
+ *
+ * @param id         the id the command was added under
+ * @param status     what happened
+ * @param wave       dependency depth: 0 for commands without dependencies, else one more than the deepest one
+ * @param offsetMs   when the command was started or stopped, relative to the start of the operation
+ * @param durationMs time from start to ready, or from toggle to stopped
+ * @param message    failure details, or null
+ */
+public record ToggleGroupItemResult(String id,
+                                    ToggleGroupItemStatus status,
+                                    int wave,
+                                    long offsetMs,
+                                    long durationMs,
+                                    String message) {
+
+    public boolean succeeded() {
+        return status == ToggleGroupItemStatus.READY || status == ToggleGroupItemStatus.ALREADY_RUNNING
+                || status == ToggleGroupItemStatus.STOPPED || status == ToggleGroupItemStatus.NOT_RUNNING;
+    }
+}
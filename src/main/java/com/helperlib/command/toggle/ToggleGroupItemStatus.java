@@ -0,0 +1,21 @@
+package com.helperlib.command.toggle;
+
+/**
+ * Outcome of one command in a {@link ToggleGroupController} start or stop.
+ */
+public enum ToggleGroupItemStatus {
+    /** Started and passed its readiness check. */
+    READY,
+    /** Was already running; only readiness was awaited. */
+    ALREADY_RUNNING,
+    /** Stopped within the deadline. */
+    STOPPED,
+    /** Was not running, nothing to stop. */
+    NOT_RUNNING,
+    /** Did not start, failed readiness, or its toggle failed. */
+    FAILED,
+    /** Not started because a dependency failed. */
+    SKIPPED,
+    /** Not ready, or not stopped, before the timeout. */
+    TIMED_OUT
+}
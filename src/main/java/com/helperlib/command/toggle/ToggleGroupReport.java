@@ -0,0 +1,13 @@
+package com.helperlib.command.toggle;
+
+import java.util.List;
+
+/**
+ * Combined outcome of a {@link ToggleGroupController} start or stop, with items in the order they were added.
+ */
+public record ToggleGroupReport(List<ToggleGroupItemResult> items, long wallClockMs) {
+
+    public boolean allSucceeded() {
+        return items.stream().allMatch(ToggleGroupItemResult::succeeded);
+    }
+}
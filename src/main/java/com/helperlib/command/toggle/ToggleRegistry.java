@@ -0,0 +1,235 @@
+package com.helperlib.command.toggle;
+
+import com.helperlib.api.command.ToggleCommand;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps one live toggle command per key, typically a {@link CommandIdentity}, so that start and stop reach
+ * the same instance.
+ * Creation is atomic per id: concurrent callers for the same id get the same command, which is reused while
+ * it is active or not started yet. Lookups of a reusable command are a single map read and do not allocate.
+ * Observable commands are evicted as soon as they report STOPPED; commands without state events are swept
+ * periodically on a daemon thread shared by all registries. Beyond {@code capacity}, stopped entries are
+ * evicted least recently used first; active commands are never evicted, since they could no longer be
+ * toggled.
+ */
+public final class ToggleRegistry<K, C extends ToggleCommand> {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final long SWEEP_INTERVAL_SECONDS = 30;
+
+    private final int capacity;
+    private final Map<K, Entry<C>> entries = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> sweep;
+    private volatile boolean shutdown;
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ToggleRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ToggleRegistry(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.sweep = Sweeper.scheduler.scheduleWithFixedDelay(
+                this::sweepStoppedCommands, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the command registered under {@code commandId} if it is active or not started yet, or registers
+     * a new one from the supplier. The supplier runs while the id is locked, so it should be cheap.
+     */
+    public C getOrCreate(K commandId, Supplier<? extends C> commandSupplier) {
+        Entry<C> existing = entries.get(commandId);
+        if (existing != null && existing.isReusable()) {
+            existing.touch();
+            reused.increment();
+            return existing.command;
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Toggle registry is shut down");
+        }
+
+        Entry<C> entry = entries.compute(commandId, (id, current) -> {
+            if (current != null && current.isReusable()) {
+                current.touch();
+                reused.increment();
+                return current;
+            }
+            if (current != null) {
+                evicted.increment();
+            }
+            // Listen before anyone can start the command, so no transition is missed
+            Entry<C> fresh = new Entry<>(commandSupplier.get());
+            evictOnStop(id, fresh);
+            created.increment();
+            return fresh;
+        });
+        trimToCapacity();
+        return entry.command;
+    }
+
+    /**
+     * @return the registered command, active or not, or null
+     */
+    public C get(K commandId) {
+        Entry<C> entry = entries.get(commandId);
+        if (entry == null) {
+            return null;
+        }
+        entry.touch();
+        return entry.command;
+    }
+
+    /**
+     * Unregisters the command without stopping it.
+     */
+    public boolean remove(K commandId) {
+        if (entries.remove(commandId) != null) {
+            evicted.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public ToggleRegistryStatistics getStatistics() {
+        int active = 0;
+        for (Entry<C> entry : entries.values()) {
+            if (isActive(entry.command)) {
+                active++;
+            }
+        }
+        return new ToggleRegistryStatistics(entries.size(), active, created.sum(), reused.sum(), evicted.sum());
+    }
+
+    /**
+     * Cancels the periodic sweep and forgets all entries. Registered commands keep running; stop them first
+     * if they should not outlive the registry. Later {@link #getOrCreate} calls for new ids fail.
+     */
+    public void shutdown() {
+        shutdown = true;
+        sweep.cancel(false);
+        entries.clear();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Running, or between supervised restarts; commands without state events fall back to isRunning().
+     */
+    public static boolean isActive(ToggleCommand command) {
+        if (command instanceof ObservableToggleCommand observable) {
+            return observable.getState() != ToggleState.STOPPED;
+        }
+        return command.isRunning();
+    }
+
+    /**
+     * Drops the entry as soon as the command reports STOPPED, and restores it if the same instance is
+     * started again.
+     */
+    private void evictOnStop(K commandId, Entry<C> entry) {
+        if (entry.command instanceof ObservableToggleCommand observable) {
+            observable.addStateListener((name, previous, current) -> {
+                if (current == ToggleState.STOPPED) {
+                    if (entries.remove(commandId, entry)) {
+                        evicted.increment();
+                    }
+                } else if (current == ToggleState.STARTING) {
+                    entry.started = true;
+                    if (!shutdown) {
+                        entry.touch();
+                        entries.putIfAbsent(commandId, entry);
+                    }
+                }
+            });
+        }
+    }
+
+    private void sweepStoppedCommands() {
+        long idleLimit = System.nanoTime() - TimeUnit.SECONDS.toNanos(SWEEP_INTERVAL_SECONDS);
+        entries.forEach((id, entry) -> {
+            // Never-started entries get one sweep interval since their last lookup
+            boolean stale = !entry.isReusable() || entry.lastAccessNanos - idleLimit < 0;
+            if (stale && !isActive(entry.command) && entries.remove(id, entry)) {
+                evicted.increment();
+            }
+        });
+    }
+
+    private void trimToCapacity() {
+        int excess = entries.size() - capacity;
+        if (excess <= 0) {
+            return;
+        }
+        entries.entrySet().stream()
+                .filter(e -> !isActive(e.getValue().command))
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastAccessNanos))
+                .limit(excess)
+                .forEach(e -> {
+                    if (entries.remove(e.getKey(), e.getValue())) {
+                        evicted.increment();
+                    }
+                });
+    }
+
+    private static final class Entry<C extends ToggleCommand> {
+        final C command;
+        volatile long lastAccessNanos = System.nanoTime();
+        volatile boolean started;
+
+        Entry(C command) {
+            this.command = command;
+        }
+
+        void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+
+        /**
+         * Active, or created and not started yet; a command that has run and stopped is replaced.
+         */
+        boolean isReusable() {
+            if (isActive(command)) {
+                started = true;
+                return true;
+            }
+            return !started;
+        }
+    }
+
+    /**
+     * One daemon thread for all registries, created on first use, so housekeeping never keeps the JVM alive.
+     */
+    private static final class Sweeper {
+        static final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("toggle-registry-sweeper").daemon().factory());
+
+        static {
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
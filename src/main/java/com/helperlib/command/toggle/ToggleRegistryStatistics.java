@@ -0,0 +1,17 @@
+package com.helperlib.command.toggle;
+
+/**
+ * Snapshot of {@link ToggleRegistry} gauges and counters.
+ *
+ * @param entries       commands currently registered
+ * @param activeEntries registered commands that are not stopped
+ * @param totalCreated  commands created since startup
+ * @param totalReused   lookups answered by an already registered active command
+ * @param totalEvicted  entries dropped on stop, by the sweep or to stay within capacity
+ */
+public record ToggleRegistryStatistics(int entries,
+                                       int activeEntries,
+                                       long totalCreated,
+                                       long totalReused,
+                                       long totalEvicted) {
+}
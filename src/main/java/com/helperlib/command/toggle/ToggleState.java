@@ -0,0 +1,15 @@
+package com.helperlib.command.toggle;
+
+/**
+ * Lifecycle state of a toggle command's main action.
+ */
+public enum ToggleState {
+    STOPPED,
+    STARTING,
+    RUNNING,
+    STOPPING,
+    /** The process exited or a tunnel's session was lost; a supervised restart or reconnect is pending (backoff). */
+    RESTARTING,
+    /** Socket activation is listening; the process is started by the next connection. */
+    LISTENING
+}
@@ -0,0 +1,12 @@
+package com.helperlib.command.toggle;
+
+/**
+ * Callback receiving toggle state changes, in place of polling {@code isRunning()}.
+ * Invoked on the thread that observed the change (e.g. the process reaper), so implementations should
+ * return quickly.
+ */
+@FunctionalInterface
+public interface ToggleStateListener {
+
+    void onStateChanged(String commandName, ToggleState previous, ToggleState current);
+}
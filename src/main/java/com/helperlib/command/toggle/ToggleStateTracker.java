@@ -0,0 +1,91 @@
+package com.helperlib.command.toggle;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds one toggle command's state and notifies its listeners, plus the global listeners, on every change.
+ * Listener failures are reported and do not affect the command or other listeners.
+ */
+public final class ToggleStateTracker {
+
+    private static final List<ToggleStateListener> globalListeners = new CopyOnWriteArrayList<>();
+
+    private final String commandName;
+    private final AtomicReference<ToggleState> state = new AtomicReference<>(ToggleState.STOPPED);
+    private final List<ToggleStateListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ToggleStateTracker(String commandName) {
+        this.commandName = commandName;
+    }
+
+    /**
+     * Registers a listener for state changes of every toggle command.
+     */
+    public static void addGlobalListener(ToggleStateListener listener) {
+        globalListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    public static void removeGlobalListener(ToggleStateListener listener) {
+        globalListeners.remove(listener);
+    }
+
+    public ToggleState get() {
+        return state.get();
+    }
+
+    public void addListener(ToggleStateListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    public void removeListener(ToggleStateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Moves to {@code next}, notifying listeners if the state changed.
+     *
+     * @return the previous state
+     */
+    public ToggleState transition(ToggleState next) {
+        ToggleState previous = state.getAndSet(next);
+        if (previous != next) {
+            notifyListeners(previous, next);
+        }
+        return previous;
+    }
+
+    /**
+     * Moves to {@code next} only from {@code expected}, so a late event cannot overwrite a newer state.
+     *
+     * @return true if the transition happened
+     */
+    public boolean transition(ToggleState expected, ToggleState next) {
+        if (!state.compareAndSet(expected, next)) {
+            return false;
+        }
+        if (expected != next) {
+            notifyListeners(expected, next);
+        }
+        return true;
+    }
+
+    private void notifyListeners(ToggleState previous, ToggleState next) {
+        for (ToggleStateListener listener : listeners) {
+            notify(listener, previous, next);
+        }
+        for (ToggleStateListener listener : globalListeners) {
+            notify(listener, previous, next);
+        }
+    }
+
+    private void notify(ToggleStateListener listener, ToggleState previous, ToggleState next) {
+        try {
+            listener.onStateChanged(commandName, previous, next);
+        } catch (RuntimeException e) {
+            System.err.println("Toggle state listener failed for " + commandName + ": " + e.getMessage());
+        }
+    }
+}
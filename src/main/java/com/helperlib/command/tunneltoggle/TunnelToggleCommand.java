@@ -2,30 +2,56 @@ package com.helperlib.command.tunneltoggle;
 
 import com.helperlib.api.command.Command;
 import com.helperlib.api.command.CommandResult;
-import com.helperlib.api.command.ToggleCommand;
+import com.helperlib.command.logging.LogTail;
+import com.helperlib.command.ssh.SshSessionPool;
+import com.helperlib.command.toggle.ObservableToggleCommand;
+import com.helperlib.command.toggle.ToggleState;
+import com.helperlib.command.toggle.ToggleStateListener;
+import com.helperlib.command.toggle.ToggleStateTracker;
 import com.helperlib.core.command.CommandExecutorService;
-import com.jcraft.jsch.JSch;
-import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 
-import java.util.Objects;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class TunnelToggleCommand extends Command implements ToggleCommand {
+/**
+ * Local port forward over SSH. Tunnels to the same server with the same credentials share one pooled,
+ * authenticated session ({@link SshSessionPool}); each tunnel only adds and removes its own forward.
+ * A session lost after the tunnel was up is re-established with exponential backoff, reported as
+ * RESTARTING, up to {@code reconnectMaxAttempts} consecutive attempts.
+ */
+public class TunnelToggleCommand extends Command implements ObservableToggleCommand {
+
+    // JSch drops a session after keepAliveCountMax unanswered keepalives but has no session-closed callback;
+    // the tunnel's wait loop reads the local connected flag this often (no network traffic)
+    private static final long SESSION_CHECK_INTERVAL_MS = 250;
+    private static final int EVENT_TAIL_BYTES = 16 * 1024;
+    private static final int EVENT_TAIL_LINES = 200;
+    // After removing the forward, how long the local port may take to refuse connections
+    private static final long LISTENER_CLOSE_TIMEOUT_MS = 2_000;
+    private static final long LISTENER_CLOSE_POLL_MS = 20;
 
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicBoolean isToggling = new AtomicBoolean(false);
 
     private final AtomicReference<Session> sessionRef = new AtomicReference<>();
+    private final AtomicReference<SshSessionPool.Lease> leaseRef = new AtomicReference<>();
     private final AtomicReference<CompletableFuture<CommandResult>> currentExecution = new AtomicReference<>();
     private final AtomicReference<CountDownLatch> closeLatchRef = new AtomicReference<>();
+    private final ToggleStateTracker stateTracker;
+    private final LogTail eventTail = new LogTail(EVENT_TAIL_BYTES, EVENT_TAIL_LINES);
 
     public TunnelToggleCommand(TunnelToggleCommandMetadata metadata) {
         super(metadata);
+        this.stateTracker = new ToggleStateTracker(metadata.getName());
     }
 
     @Override
@@ -41,51 +67,81 @@ public class TunnelToggleCommand extends Command implements ToggleCommand {
             }
 
             TunnelToggleCommandMetadata m = (TunnelToggleCommandMetadata) metadata;
+            // Counted down by toggleAsync; also ends a pending reconnect
+            CountDownLatch stop = new CountDownLatch(1);
+            closeLatchRef.set(stop);
+            stateTracker.transition(ToggleState.STARTING);
 
+            boolean established = false;
+            int reconnectAttempts = 0; // since the tunnel was last up
             try {
-                Session session = createAndConnectSession(m);
-                sessionRef.set(session);
-
-                // Setup local port forwarding (supports optional bind host)
-                if (m.getLocalBindHost() != null && !m.getLocalBindHost().isBlank()) {
-                    session.setPortForwardingL(m.getLocalBindHost(), m.getLocalPort(), m.getRemoteHost(), m.getRemotePort());
-                } else {
-                    session.setPortForwardingL(m.getLocalPort(), m.getRemoteHost(), m.getRemotePort());
-                }
-
-                System.out.printf("Tunnel established: %s:%d -> %s:%d via %s@%s:%d%n",
-                        m.getLocalBindHost(), m.getLocalPort(), m.getRemoteHost(), m.getRemotePort(),
-                        m.getUsername(), m.getHost(), m.getPort());
+                while (true) {
+                    try {
+                        Session session = openForward(m);
+                        String event = String.format("Tunnel %s: %s:%d -> %s:%d via %s@%s:%d",
+                                established ? "re-established" : "established",
+                                m.getLocalBindHost(), m.getLocalPort(), m.getRemoteHost(), m.getRemotePort(),
+                                m.getUsername(), m.getHost(), m.getPort());
+                        System.out.println(event);
+                        recordEvent(event);
+                        established = true;
+                        reconnectAttempts = 0;
+                        if (!stateTracker.transition(ToggleState.STARTING, ToggleState.RUNNING)) {
+                            stateTracker.transition(ToggleState.RESTARTING, ToggleState.RUNNING);
+                        }
+
+                        // Wake up on toggle, or once JSch dropped the session after unanswered keepalives
+                        while (session.isConnected()) {
+                            if (stop.await(SESSION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) break;
+                        }
+                        if (stop.getCount() == 0) {
+                            return new CommandResult(true, 0, System.currentTimeMillis() - start);
+                        }
+                        recordEvent("Tunnel session lost");
+                    } catch (Exception e) {
+                        if (!established) {
+                            // Nothing to heal yet (e.g. bad credentials); fail right away
+                            System.err.println("Tunnel start failed: " + e.getMessage());
+                            recordEvent("Tunnel start failed: " + e.getMessage());
+                            return new CommandResult(false, -1, System.currentTimeMillis() - start);
+                        }
+                        recordEvent("Tunnel reconnect attempt " + reconnectAttempts + " failed: " + e.getMessage());
+                    } finally {
+                        closeForward(m);
+                    }
 
-                // Wait until closed (toggleAsync will signal)
-                CountDownLatch latch = new CountDownLatch(1);
-                closeLatchRef.set(latch);
+                    int maxAttempts = m.getReconnectMaxAttempts();
+                    if (stop.getCount() == 0) {
+                        return new CommandResult(true, 0, System.currentTimeMillis() - start);
+                    }
+                    if (maxAttempts == 0 || (maxAttempts > 0 && reconnectAttempts >= maxAttempts)) {
+                        String event = reconnectAttempts == 0
+                                ? "Tunnel down"
+                                : "Tunnel down: giving up after " + reconnectAttempts + " reconnect attempt(s)";
+                        System.err.println(event);
+                        recordEvent(event);
+                        return new CommandResult(false, -1, System.currentTimeMillis() - start);
+                    }
 
-                // Periodically check connection; wake up on toggle
-                while (session.isConnected()) {
-                    if (latch.await(1, TimeUnit.SECONDS)) break;
+                    reconnectAttempts++;
+                    long delay = reconnectDelay(m, reconnectAttempts);
+                    stateTracker.transition(ToggleState.RUNNING, ToggleState.RESTARTING);
+                    recordEvent(String.format("Tunnel reconnecting in %d ms (attempt %d%s)", delay, reconnectAttempts,
+                            maxAttempts > 0 ? " of " + maxAttempts : ""));
+                    if (stop.await(delay, TimeUnit.MILLISECONDS)) {
+                        return new CommandResult(true, 0, System.currentTimeMillis() - start);
+                    }
                 }
-
-                long execTime = System.currentTimeMillis() - start;
-                return new CommandResult(true, 0, execTime);
-
-            } catch (Exception e) {
-                long execTime = System.currentTimeMillis() - start;
-                System.err.println("Tunnel start failed: " + e.getMessage());
-                return new CommandResult(false, -1, execTime);
-
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new CommandResult(false, 130, System.currentTimeMillis() - start);
             } finally {
-                try {
-                    Session s = sessionRef.getAndSet(null);
-                    if (s != null && s.isConnected()) {
-                        // Best-effort cleanup (remove forwarding; disconnect)
-                        tryRemoveForwarding(s, (TunnelToggleCommandMetadata) metadata);
-                        s.disconnect();
-                    }
-                } catch (Exception ignored) {
+                closeForward(m);
+                closeLatchRef.compareAndSet(stop, null);
+                stop.countDown();
+                if (stateTracker.transition(ToggleState.STOPPED) != ToggleState.STOPPED) {
+                    recordEvent("Tunnel closed");
                 }
-                CountDownLatch latch = closeLatchRef.getAndSet(null);
-                if (latch != null) latch.countDown();
                 isRunning.set(false);
             }
         }, CommandExecutorService.getVirtualThreadExecutor());
@@ -94,6 +150,9 @@ public class TunnelToggleCommand extends Command implements ToggleCommand {
         return f;
     }
 
+    /**
+     * Stops the tunnel, including one that is waiting to reconnect.
+     */
     @Override
     public CompletableFuture<CommandResult> toggleAsync() {
         if (isToggling.get()) {
@@ -107,23 +166,31 @@ public class TunnelToggleCommand extends Command implements ToggleCommand {
             }
 
             try {
-                Session s = sessionRef.get();
-                if (s == null || !s.isConnected()) {
+                CountDownLatch stop = closeLatchRef.get();
+                if (!isRunning.get() || stop == null) {
                     // Nothing to stop
                     return new CommandResult(false, -1, System.currentTimeMillis() - start);
                 }
 
                 TunnelToggleCommandMetadata m = (TunnelToggleCommandMetadata) metadata;
+                if (!stateTracker.transition(ToggleState.RUNNING, ToggleState.STOPPING)) {
+                    stateTracker.transition(ToggleState.RESTARTING, ToggleState.STOPPING);
+                }
+                recordEvent("Tunnel stop requested");
 
-                // Try graceful removal of port forwarding
-                tryRemoveForwarding(s, m);
-
-                // Disconnect session
-                s.disconnect();
+                // Remove this tunnel's forward; the shared session is released by the execution
+                Session s = sessionRef.get();
+                if (s != null && s.isConnected()) {
+                    tryRemoveForwarding(s, m);
+                }
 
                 // Signal waiter
-                CountDownLatch latch = closeLatchRef.get();
-                if (latch != null) latch.countDown();
+                stop.countDown();
+
+                if (!awaitListenerClosed(m)) {
+                    recordEvent("Tunnel stop failed: " + m.getLocalPort() + " still accepts connections");
+                    return new CommandResult(false, -1, System.currentTimeMillis() - start);
+                }
 
                 long execTime = System.currentTimeMillis() - start;
                 // 130 as a conventional "interrupted/terminated" code
@@ -132,6 +199,7 @@ public class TunnelToggleCommand extends Command implements ToggleCommand {
             } catch (Exception e) {
                 long execTime = System.currentTimeMillis() - start;
                 System.err.println("Tunnel stop failed: " + e.getMessage());
+                recordEvent("Tunnel stop failed: " + e.getMessage());
                 return new CommandResult(false, -1, execTime);
 
             } finally {
@@ -146,51 +214,103 @@ public class TunnelToggleCommand extends Command implements ToggleCommand {
         return isRunning.get() && s != null && s.isConnected();
     }
 
-    private Session createAndConnectSession(TunnelToggleCommandMetadata m) throws JSchException {
-        Objects.requireNonNull(m.getHost(), "host");
-        Objects.requireNonNull(m.getUsername(), "username");
+    /**
+     * @return recent tunnel events (established, lost, stopped, failures), each prefixed with its time
+     */
+    public LogTail getEventTail() {
+        return eventTail;
+    }
+
+    private void recordEvent(String event) {
+        eventTail.appendLine(Instant.now() + " " + event);
+    }
 
-        JSch jsch = new JSch();
+    @Override
+    public ToggleState getState() {
+        return stateTracker.get();
+    }
 
-        if (m.getKnownHostsPath() != null && !m.getKnownHostsPath().isBlank()) {
-            jsch.setKnownHosts(m.getKnownHostsPath());
-        }
+    @Override
+    public void addStateListener(ToggleStateListener listener) {
+        stateTracker.addListener(listener);
+    }
 
-        if (m.getAuthType() == TunnelAuthType.PRIVATE_KEY) {
-            if (m.getPrivateKeyPath() == null || m.getPrivateKeyPath().isBlank()) {
-                throw new IllegalArgumentException("privateKeyPath is required for PRIVATE_KEY auth");
-            }
-            if (m.getPassphrase() != null && !m.getPassphrase().isEmpty()) {
-                jsch.addIdentity(m.getPrivateKeyPath(), m.getPassphrase());
-            } else {
-                jsch.addIdentity(m.getPrivateKeyPath());
-            }
-        }
+    @Override
+    public void removeStateListener(ToggleStateListener listener) {
+        stateTracker.removeListener(listener);
+    }
 
-        Session session = jsch.getSession(m.getUsername(), m.getHost(), m.getPort() > 0 ? m.getPort() : 22);
+    /**
+     * Leases a pooled session and adds this tunnel's forward (supports an optional bind host).
+     */
+    private Session openForward(TunnelToggleCommandMetadata m) throws Exception {
+        SshSessionPool.Lease lease = SshSessionPool.acquire(m.toConnectionSettings());
+        leaseRef.set(lease);
+        Session session = lease.getSession();
+        sessionRef.set(session);
+        if (m.getLocalBindHost() != null && !m.getLocalBindHost().isBlank()) {
+            session.setPortForwardingL(m.getLocalBindHost(), m.getLocalPort(), m.getRemoteHost(), m.getRemotePort());
+        } else {
+            session.setPortForwardingL(m.getLocalPort(), m.getRemoteHost(), m.getRemotePort());
+        }
+        return session;
+    }
 
-        if (m.getAuthType() == TunnelAuthType.PASSWORD) {
-            if (m.getPassword() == null) {
-                throw new IllegalArgumentException("password is required for PASSWORD auth");
+    /**
+     * Removes the forward and releases the lease; a dead session is dropped from the pool so the next
+     * attempt reconnects.
+     */
+    private void closeForward(TunnelToggleCommandMetadata m) {
+        Session s = sessionRef.getAndSet(null);
+        if (s != null && s.isConnected()) {
+            // Best-effort cleanup; the session stays with the pool for other tunnels
+            tryRemoveForwarding(s, m);
+        }
+        SshSessionPool.Lease lease = leaseRef.getAndSet(null);
+        if (lease != null) {
+            if (!lease.getSession().isConnected()) {
+                lease.invalidate();
             }
-            session.setPassword(m.getPassword());
+            lease.close();
         }
+    }
 
-        // Host key checking
-        java.util.Properties cfg = new java.util.Properties();
-        cfg.put("StrictHostKeyChecking", m.isStrictHostKeyChecking() ? "yes" : "no");
-        session.setConfig(cfg);
-
-        // Keepalive and connect
-        if (m.getKeepAliveIntervalSec() > 0) {
-            try {
-                session.setServerAliveInterval(m.getKeepAliveIntervalSec() * 1000);
-            } catch (Exception ignored) {
+    /**
+     * Waits until the local port refuses connections. The shared session outlives the forward, and JSch closes
+     * the listener while its accept thread may still be blocked on it, so the port can briefly keep accepting
+     * (and proxying) after {@code delPortForwardingL} returned.
+     *
+     * @return false if the port still accepts after {@link #LISTENER_CLOSE_TIMEOUT_MS}
+     */
+    private static boolean awaitListenerClosed(TunnelToggleCommandMetadata m) throws InterruptedException {
+        String bindHost = m.getLocalBindHost();
+        String host = bindHost == null || bindHost.isBlank() || bindHost.equals("*") || bindHost.equals("0.0.0.0")
+                ? "127.0.0.1"
+                : bindHost;
+        InetSocketAddress address = new InetSocketAddress(host, m.getLocalPort());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LISTENER_CLOSE_TIMEOUT_MS);
+        while (true) {
+            try (Socket probe = new Socket()) {
+                probe.connect(address, (int) LISTENER_CLOSE_POLL_MS * 10);
+            } catch (IOException refused) {
+                return true;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
             }
+            Thread.sleep(LISTENER_CLOSE_POLL_MS);
         }
+    }
 
-        session.connect(Math.max(1000, m.getConnectTimeoutMs() > 0 ? m.getConnectTimeoutMs() : 10_000));
-        return session;
+    /**
+     * Exponential backoff with equal jitter: at least half the delay, up to all of it, so tunnels dropped
+     * together (e.g. by a VPN) do not reconnect in lockstep.
+     */
+    private static long reconnectDelay(TunnelToggleCommandMetadata m, int attempt) {
+        long initial = Math.max(1, m.getReconnectInitialBackoffMs());
+        long max = Math.max(initial, m.getReconnectMaxBackoffMs());
+        long base = Math.min(max, initial << Math.min(attempt - 1, 30));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
     }
 
     private void tryRemoveForwarding(Session session, TunnelToggleCommandMetadata m) {
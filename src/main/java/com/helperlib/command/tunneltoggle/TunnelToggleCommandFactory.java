@@ -41,7 +41,7 @@ public class TunnelToggleCommandFactory implements CommandFactory {
         int connectTimeoutMs = json.getInt("connectTimeoutMs", 10_000);
         int keepAliveIntervalSec = json.getInt("keepAliveIntervalSec", 30);
 
-        return new TunnelToggleCommandMetadata(
+        TunnelToggleCommandMetadata metadata = new TunnelToggleCommandMetadata(
                 name, description,
                 host, port, username,
                 authType, password, privateKeyPath, passphrase,
@@ -49,6 +49,19 @@ public class TunnelToggleCommandFactory implements CommandFactory {
                 localBindHost, localPort, remoteHost, remotePort,
                 connectTimeoutMs, keepAliveIntervalSec
         );
+
+        // Liveness and reconnect
+        metadata.setKeepAliveCountMax(json.getInt("keepAliveCountMax",
+                TunnelToggleCommandMetadata.DEFAULT_KEEP_ALIVE_COUNT_MAX));
+        metadata.setReconnectMaxAttempts(json.getInt("reconnectMaxAttempts",
+                TunnelToggleCommandMetadata.DEFAULT_RECONNECT_MAX_ATTEMPTS));
+        if (json.containsKey("reconnectInitialBackoffMs")) {
+            metadata.setReconnectInitialBackoffMs(json.getJsonNumber("reconnectInitialBackoffMs").longValue());
+        }
+        if (json.containsKey("reconnectMaxBackoffMs")) {
+            metadata.setReconnectMaxBackoffMs(json.getJsonNumber("reconnectMaxBackoffMs").longValue());
+        }
+        return metadata;
     }
 
     @Override
@@ -76,29 +89,27 @@ public class TunnelToggleCommandFactory implements CommandFactory {
         if (m.getPrivateKeyPath() != null) b.add("privateKeyPath", m.getPrivateKeyPath());
         if (m.getPassphrase() != null) b.add("passphrase", m.getPassphrase());
 
+        // Liveness and reconnect, only when not the defaults
+        if (m.getKeepAliveCountMax() != TunnelToggleCommandMetadata.DEFAULT_KEEP_ALIVE_COUNT_MAX) {
+            b.add("keepAliveCountMax", m.getKeepAliveCountMax());
+        }
+        if (m.getReconnectMaxAttempts() != TunnelToggleCommandMetadata.DEFAULT_RECONNECT_MAX_ATTEMPTS
+                || m.getReconnectInitialBackoffMs() != TunnelToggleCommandMetadata.DEFAULT_RECONNECT_INITIAL_BACKOFF_MS
+                || m.getReconnectMaxBackoffMs() != TunnelToggleCommandMetadata.DEFAULT_RECONNECT_MAX_BACKOFF_MS) {
+            b.add("reconnectMaxAttempts", m.getReconnectMaxAttempts());
+            b.add("reconnectInitialBackoffMs", m.getReconnectInitialBackoffMs());
+            b.add("reconnectMaxBackoffMs", m.getReconnectMaxBackoffMs());
+        }
+
         return b.build();
     }
 
     @Override
     public Command createCommand(CommandMetadata metadata, StreamHandler streamHandler) {
         TunnelToggleCommandMetadata m = (TunnelToggleCommandMetadata) metadata;
-        String commandId = generateCommandId(m);
         return (Command) TunnelToggleCommandRegistry.getOrCreateCommand(
-                commandId,
+                m.getCommandIdentity(),
                 () -> new TunnelToggleCommand(m) // StreamHandler unused here
         );
     }
-
-    private String generateCommandId(TunnelToggleCommandMetadata m) {
-        return String.format(
-                "%s@%s:%d|%s:%d<- %s:%d",
-                m.getUsername(),
-                m.getHost(),
-                m.getPort(),
-                m.getRemoteHost(),
-                m.getRemotePort(),
-                m.getLocalBindHost(),
-                m.getLocalPort()
-        );
-    }
 }
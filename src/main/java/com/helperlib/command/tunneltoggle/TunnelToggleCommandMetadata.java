@@ -2,8 +2,14 @@ package com.helperlib.command.tunneltoggle;
 
 import com.helperlib.api.command.CommandMetadata;
 import com.helperlib.api.command.CommandType;
+import com.helperlib.command.ssh.SshConnectionSettings;
+import com.helperlib.command.toggle.CommandIdentity;
 
 public class TunnelToggleCommandMetadata extends CommandMetadata {
+    public static final int DEFAULT_KEEP_ALIVE_COUNT_MAX = 3;
+    public static final int DEFAULT_RECONNECT_MAX_ATTEMPTS = 10;
+    public static final long DEFAULT_RECONNECT_INITIAL_BACKOFF_MS = 1_000;
+    public static final long DEFAULT_RECONNECT_MAX_BACKOFF_MS = 30_000;
 
     // SSH connection
     private String host;
@@ -29,6 +35,16 @@ public class TunnelToggleCommandMetadata extends CommandMetadata {
     // Timeouts/keepalive
     private int connectTimeoutMs;     // default 10000
     private int keepAliveIntervalSec; // default 30
+    // Session is considered lost after this many unanswered keepalives (JSch then disconnects it)
+    private int keepAliveCountMax = DEFAULT_KEEP_ALIVE_COUNT_MAX;
+
+    // Reconnect after a lost session: exponential backoff with jitter; 0 attempts disables, < 0 is unlimited
+    private int reconnectMaxAttempts = DEFAULT_RECONNECT_MAX_ATTEMPTS;
+    private long reconnectInitialBackoffMs = DEFAULT_RECONNECT_INITIAL_BACKOFF_MS;
+    private long reconnectMaxBackoffMs = DEFAULT_RECONNECT_MAX_BACKOFF_MS;
+
+    // Registry identity over the forward's fields; reset by their setters
+    private volatile CommandIdentity commandIdentity;
 
     public TunnelToggleCommandMetadata(
             String name,
@@ -67,6 +83,14 @@ public class TunnelToggleCommandMetadata extends CommandMetadata {
         this.keepAliveIntervalSec = keepAliveIntervalSec;
     }
 
+    /**
+     * @return SSH connection settings; tunnels with equal settings share one pooled session
+     */
+    public SshConnectionSettings toConnectionSettings() {
+        return new SshConnectionSettings(host, port, username, authType, password, privateKeyPath, passphrase,
+                strictHostKeyChecking, knownHostsPath, connectTimeoutMs, keepAliveIntervalSec, keepAliveCountMax);
+    }
+
     // Getters and setters
 
     public String getHost() {
@@ -74,18 +98,21 @@ public class TunnelToggleCommandMetadata extends CommandMetadata {
     }
     public void setHost(String host) {
         this.host = host;
+        this.commandIdentity = null;
     }
     public int getPort() {
         return port;
     }
     public void setPort(int port) {
         this.port = port;
+        this.commandIdentity = null;
     }
     public String getUsername() {
         return username;
     }
     public void setUsername(String username) {
         this.username = username;
+        this.commandIdentity = null;
     }
     public TunnelAuthType getAuthType() {
         return authType;
@@ -128,24 +155,28 @@ public class TunnelToggleCommandMetadata extends CommandMetadata {
     }
     public void setLocalBindHost(String localBindHost) {
         this.localBindHost = localBindHost;
+        this.commandIdentity = null;
     }
     public int getLocalPort() {
         return localPort;
     }
     public void setLocalPort(int localPort) {
         this.localPort = localPort;
+        this.commandIdentity = null;
     }
     public String getRemoteHost() {
         return remoteHost;
     }
     public void setRemoteHost(String remoteHost) {
         this.remoteHost = remoteHost;
+        this.commandIdentity = null;
     }
     public int getRemotePort() {
         return remotePort;
     }
     public void setRemotePort(int remotePort) {
         this.remotePort = remotePort;
+        this.commandIdentity = null;
     }
     public int getConnectTimeoutMs() {
         return connectTimeoutMs;
@@ -159,4 +190,46 @@ public class TunnelToggleCommandMetadata extends CommandMetadata {
     public void setKeepAliveIntervalSec(int keepAliveIntervalSec) {
         this.keepAliveIntervalSec = keepAliveIntervalSec;
     }
+    public int getKeepAliveCountMax() {
+        return keepAliveCountMax;
+    }
+    public void setKeepAliveCountMax(int keepAliveCountMax) {
+        this.keepAliveCountMax = keepAliveCountMax;
+    }
+    public int getReconnectMaxAttempts() {
+        return reconnectMaxAttempts;
+    }
+    public void setReconnectMaxAttempts(int reconnectMaxAttempts) {
+        this.reconnectMaxAttempts = reconnectMaxAttempts;
+    }
+    public long getReconnectInitialBackoffMs() {
+        return reconnectInitialBackoffMs;
+    }
+    public void setReconnectInitialBackoffMs(long reconnectInitialBackoffMs) {
+        this.reconnectInitialBackoffMs = reconnectInitialBackoffMs;
+    }
+    public long getReconnectMaxBackoffMs() {
+        return reconnectMaxBackoffMs;
+    }
+    public void setReconnectMaxBackoffMs(long reconnectMaxBackoffMs) {
+        this.reconnectMaxBackoffMs = reconnectMaxBackoffMs;
+    }
+
+    /**
+     * Identity of the local forward (SSH user, host and port, bind address and port, remote target), used to
+     * find the running tunnel again. Credentials are left out, so changing them does not orphan the tunnel.
+     */
+    public CommandIdentity getCommandIdentity() {
+        CommandIdentity identity = commandIdentity;
+        if (identity == null) {
+            identity = CommandIdentity.builder()
+                    .add(getType())
+                    .add(username).add(host).add(port)
+                    .add(localBindHost).add(localPort)
+                    .add(remoteHost).add(remotePort)
+                    .build();
+            commandIdentity = identity;
+        }
+        return identity;
+    }
 }
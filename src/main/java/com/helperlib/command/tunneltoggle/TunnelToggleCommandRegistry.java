@@ -1,37 +1,46 @@
 package com.helperlib.command.tunneltoggle;
 
 import com.helperlib.api.command.ToggleCommand;
+import com.helperlib.command.toggle.CommandIdentity;
+import com.helperlib.command.toggle.ToggleRegistry;
+import com.helperlib.command.toggle.ToggleRegistryStatistics;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+/**
+ * Process-wide {@link ToggleRegistry} for tunnel toggle commands, keyed by {@link TunnelToggleCommandMetadata#getCommandIdentity()}.
+ */
 public class TunnelToggleCommandRegistry {
-    private static final Map<String, ToggleCommand> activeCommands = new ConcurrentHashMap<>();
-    private static final ScheduledExecutorService cleanupService =
-            Executors.newScheduledThreadPool(1);
-
-    static {
-        cleanupService.scheduleAtFixedRate(
-                TunnelToggleCommandRegistry::cleanupCompletedCommands,
-                30, 30, TimeUnit.SECONDS);
+    private static final ToggleRegistry<CommandIdentity, ToggleCommand> registry = new ToggleRegistry<>();
+
+    public static ToggleCommand getOrCreateCommand(CommandIdentity identity,
+                                                   Supplier<ToggleCommand> commandSupplier) {
+        return registry.getOrCreate(identity, commandSupplier);
     }
 
+    /**
+     * Keys by a caller-chosen string id, digested into an identity.
+     */
     public static ToggleCommand getOrCreateCommand(String commandId,
-                                                   Supplier<ToggleCommand> supplier) {
-        ToggleCommand existing = activeCommands.get(commandId);
-        if (existing != null && existing.isRunning()) {
-            return existing;
-        }
-        ToggleCommand created = supplier.get();
-        activeCommands.put(commandId, created);
-        return created;
+                                                   Supplier<ToggleCommand> commandSupplier) {
+        return getOrCreateCommand(CommandIdentity.of(commandId), commandSupplier);
+    }
+
+    /**
+     * @return the registered command, or null; does not create one
+     */
+    public static ToggleCommand getCommand(CommandIdentity identity) {
+        return registry.get(identity);
+    }
+
+    public static ToggleRegistryStatistics getStatistics() {
+        return registry.getStatistics();
     }
 
-    private static void cleanupCompletedCommands() {
-        activeCommands.entrySet().removeIf(entry -> !entry.getValue().isRunning());
+    /**
+     * Stops housekeeping and forgets all entries, e.g. on application exit. Commands are not stopped.
+     */
+    public static void shutdown() {
+        registry.shutdown();
     }
-}
\ No newline at end of file
+}
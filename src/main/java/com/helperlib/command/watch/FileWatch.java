@@ -0,0 +1,162 @@
+package com.helperlib.command.watch;
+
+import com.helperlib.api.command.CommandResult;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A registered file watch, returned by {@link FileWatchService#register}. Runs the spec's command once a
+ * burst of matching changes has been quiet for the debounce period, applying the overlap policy if the
+ * previous run is still going. Closing it stops watching; a run in progress is left to finish.
+ */
+public final class FileWatch implements AutoCloseable {
+
+    private final FileWatchSpec spec;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+
+    // Directories registered for this watch; guarded by the service lock
+    final Set<Path> directories = new HashSet<>();
+
+    // Run state, guarded by 'this'
+    private CompletableFuture<CommandResult> running;
+    private boolean rerunPending;
+    private CommandResult lastResult;
+
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong cancelledRuns = new AtomicLong();
+    private volatile boolean closed;
+
+    FileWatch(FileWatchSpec spec) {
+        this.spec = spec;
+        this.includes = spec.getIncludeGlobs().stream().map(FileWatch::matcher).toList();
+        this.excludes = spec.getExcludeGlobs().stream().map(FileWatch::matcher).toList();
+    }
+
+    public FileWatchSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return matching change events seen, before debouncing
+     */
+    public long getChangeCount() {
+        return changes.get();
+    }
+
+    /**
+     * @return command executions started
+     */
+    public long getRunCount() {
+        return runs.get();
+    }
+
+    /**
+     * @return executions cancelled because a newer change superseded them
+     */
+    public long getCancelledRunCount() {
+        return cancelledRuns.get();
+    }
+
+    /**
+     * @return result of the last completed execution, or null if none completed yet
+     */
+    public synchronized CommandResult getLastResult() {
+        return lastResult;
+    }
+
+    public synchronized boolean isRunning() {
+        return running != null && !running.isDone();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            FileWatchService.unregister(this);
+        }
+    }
+
+    boolean matchesFile(Path path) {
+        Path relative = spec.getRoot().relativize(path);
+        if (excludes.stream().anyMatch(m -> m.matches(relative))) {
+            return false;
+        }
+        return includes.isEmpty() || includes.stream().anyMatch(m -> m.matches(relative));
+    }
+
+    boolean watchesDirectory(Path directory) {
+        if (directory.equals(spec.getRoot())) {
+            return true;
+        }
+        if (!spec.isRecursive()) {
+            return false;
+        }
+        Path relative = spec.getRoot().relativize(directory);
+        return excludes.stream().noneMatch(m -> m.matches(relative));
+    }
+
+    void recordChange() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Called once changes have settled.
+     */
+    synchronized void trigger() {
+        if (closed) {
+            return;
+        }
+        if (running != null && !running.isDone()) {
+            if (spec.getOverlapPolicy() == WatchOverlapPolicy.COALESCE) {
+                rerunPending = true;
+                return;
+            }
+            cancelledRuns.incrementAndGet();
+            running.cancel(true);
+        }
+        start();
+    }
+
+    private void start() {
+        runs.incrementAndGet();
+        CompletableFuture<CommandResult> run;
+        try {
+            run = spec.getCommand().executeAsync();
+        } catch (RuntimeException e) {
+            System.err.println("File watch on " + spec.getRoot() + " failed to start command: " + e.getMessage());
+            return;
+        }
+        running = run;
+        run.whenComplete((result, error) -> onRunComplete(run, result));
+    }
+
+    private synchronized void onRunComplete(CompletableFuture<CommandResult> run, CommandResult result) {
+        if (result != null) {
+            lastResult = result;
+        }
+        if (run != running) {
+            return; // superseded by a newer run
+        }
+        if (rerunPending && !closed) {
+            rerunPending = false;
+            start();
+        }
+    }
+
+    private static PathMatcher matcher(String glob) {
+        return FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    }
+}
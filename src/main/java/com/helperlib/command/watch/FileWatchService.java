@@ -0,0 +1,277 @@
+package com.helperlib.command.watch;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Runs commands when files change, in place of re-running linters and builds by hand.
+ * One {@link WatchService} and one watcher thread serve all registrations; a directory watched by several
+ * registrations is registered once. Change events are debounced per registration: the command runs when
+ * no matching event arrived for the spec's debounce period. Recursive watches pick up directories created
+ * later. The watcher thread stops when the last registration is closed.
+ */
+public final class FileWatchService {
+
+    private static final long IDLE_POLL_MS = 1_000;
+
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static WatchService watchService;
+    private static final Map<WatchKey, Path> keyDirectories = new HashMap<>();
+    private static final Map<Path, WatchKey> directoryKeys = new HashMap<>();
+    private static final List<FileWatch> watches = new ArrayList<>();
+    // Registration -> System.nanoTime() at which its pending run is due
+    private static final Map<FileWatch, Long> dueTimes = new LinkedHashMap<>();
+
+    private FileWatchService() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Starts watching the spec's root and returns the registration; close it to stop.
+     *
+     * @throws NotDirectoryException if the root is not a directory
+     */
+    public static FileWatch register(FileWatchSpec spec) throws IOException {
+        if (!Files.isDirectory(spec.getRoot())) {
+            throw new NotDirectoryException(spec.getRoot().toString());
+        }
+        FileWatch watch = new FileWatch(spec);
+        lock.lock();
+        try {
+            if (watchService == null) {
+                WatchService service = FileSystems.getDefault().newWatchService();
+                watchService = service;
+                Thread.ofVirtual().name("file-watch").start(() -> watchLoop(service));
+            }
+            watches.add(watch);
+            try {
+                registerTree(watch, spec.getRoot());
+            } catch (IOException e) {
+                unregister(watch);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return watch;
+    }
+
+    /**
+     * @return open registrations
+     */
+    public static int getRegistrationCount() {
+        lock.lock();
+        try {
+            return watches.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return directories registered with the watch service, shared ones counted once
+     */
+    public static int getWatchedDirectoryCount() {
+        lock.lock();
+        try {
+            return directoryKeys.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static void unregister(FileWatch watch) {
+        lock.lock();
+        try {
+            if (!watches.remove(watch)) {
+                return;
+            }
+            dueTimes.remove(watch);
+            for (Path directory : watch.directories) {
+                if (watches.stream().noneMatch(w -> w.directories.contains(directory))) {
+                    WatchKey key = directoryKeys.remove(directory);
+                    if (key != null) {
+                        key.cancel();
+                        keyDirectories.remove(key);
+                    }
+                }
+            }
+            watch.directories.clear();
+            if (watches.isEmpty() && watchService != null) {
+                try {
+                    watchService.close(); // ends the watcher thread
+                } catch (IOException ignored) {
+                }
+                watchService = null;
+                keyDirectories.clear();
+                directoryKeys.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void watchLoop(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.poll(nextWaitMs(), TimeUnit.MILLISECONDS);
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+
+            List<FileWatch> due = new ArrayList<>();
+            lock.lock();
+            try {
+                if (service != watchService) {
+                    return;
+                }
+                // Handle every key already queued before deciding what is due
+                while (key != null) {
+                    handleKey(key);
+                    key = service.poll();
+                }
+                long now = System.nanoTime();
+                dueTimes.entrySet().removeIf(entry -> {
+                    if (now - entry.getValue() >= 0) {
+                        due.add(entry.getKey());
+                        return true;
+                    }
+                    return false;
+                });
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            // Commands are started outside the lock
+            due.forEach(FileWatch::trigger);
+        }
+    }
+
+    private static long nextWaitMs() {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            long wait = IDLE_POLL_MS;
+            for (long dueTime : dueTimes.values()) {
+                wait = Math.min(wait, TimeUnit.NANOSECONDS.toMillis(Math.max(0, dueTime - now)) + 1);
+            }
+            return wait;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void handleKey(WatchKey key) {
+        Path directory = keyDirectories.get(key);
+        List<WatchEvent<?>> events = key.pollEvents();
+        if (directory == null) {
+            key.cancel();
+            return;
+        }
+        List<FileWatch> owners = watches.stream().filter(w -> w.directories.contains(directory)).toList();
+
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost; assume something relevant changed
+                owners.forEach(FileWatchService::changed);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            boolean createdDirectory = event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path);
+            for (FileWatch watch : owners) {
+                if (createdDirectory) {
+                    if (watch.watchesDirectory(path) && registerNewTree(watch, path)) {
+                        changed(watch);
+                    }
+                } else if (watch.matchesFile(path)) {
+                    changed(watch);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            // Directory is gone
+            keyDirectories.remove(key);
+            directoryKeys.remove(directory);
+            watches.forEach(w -> w.directories.remove(directory));
+        }
+    }
+
+    private static void changed(FileWatch watch) {
+        watch.recordChange();
+        // Every change pushes the run back: the quiet period restarts
+        dueTimes.put(watch, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(watch.getSpec().getDebounceMs()));
+    }
+
+    /**
+     * Registers a directory created while watching.
+     *
+     * @return true if it already contains matching files, which were created before it could be watched
+     */
+    private static boolean registerNewTree(FileWatch watch, Path directory) {
+        try {
+            registerTree(watch, directory);
+            try (Stream<Path> files = Files.walk(directory)) {
+                return files.anyMatch(p -> Files.isRegularFile(p)
+                        && watch.directories.contains(p.getParent()) && watch.matchesFile(p));
+            }
+        } catch (IOException e) {
+            return false; // removed again already
+        }
+    }
+
+    private static void registerTree(FileWatch watch, Path start) throws IOException {
+        if (!watch.getSpec().isRecursive()) {
+            registerDirectory(watch, start);
+            return;
+        }
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!watch.watchesDirectory(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                registerDirectory(watch, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE; // unreadable or vanished entries are skipped
+            }
+        });
+    }
+
+    private static void registerDirectory(FileWatch watch, Path directory) throws IOException {
+        if (!directoryKeys.containsKey(directory)) {
+            WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            directoryKeys.put(directory, key);
+            keyDirectories.put(key, directory);
+        }
+        watch.directories.add(directory);
+    }
+}
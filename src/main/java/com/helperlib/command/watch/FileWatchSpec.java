@@ -0,0 +1,82 @@
+package com.helperlib.command.watch;
+
+import com.helperlib.api.command.Command;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What to watch and what to run: a root directory, glob filters and the command triggered on change.
+ * Globs are matched against paths relative to the root, with {@code /} separators
+ * (e.g. {@code **}{@code /*.java}, {@code src/**}). A directory matching an exclude glob is not watched at all,
+ * which keeps trees like {@code .git} or {@code **}{@code /target} out of the watcher.
+ */
+public class FileWatchSpec {
+
+    public static final long DEFAULT_DEBOUNCE_MS = 300;
+
+    private final Path root;
+    private final Command command;
+
+    // Optional; set via setters
+    private boolean recursive = true;
+    private List<String> includeGlobs = new ArrayList<>();   // empty = every file
+    private List<String> excludeGlobs = new ArrayList<>();
+    private long debounceMs = DEFAULT_DEBOUNCE_MS;            // quiet period before a run
+    private WatchOverlapPolicy overlapPolicy = WatchOverlapPolicy.CANCEL_AND_RESTART;
+
+    public FileWatchSpec(Path root, Command command) {
+        this.root = Objects.requireNonNull(root, "root").toAbsolutePath().normalize();
+        this.command = Objects.requireNonNull(command, "command");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Command getCommand() {
+        return command;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    public void setRecursive(boolean recursive) {
+        this.recursive = recursive;
+    }
+
+    public List<String> getIncludeGlobs() {
+        return includeGlobs;
+    }
+
+    public void setIncludeGlobs(List<String> includeGlobs) {
+        this.includeGlobs = includeGlobs == null ? new ArrayList<>() : new ArrayList<>(includeGlobs);
+    }
+
+    public List<String> getExcludeGlobs() {
+        return excludeGlobs;
+    }
+
+    public void setExcludeGlobs(List<String> excludeGlobs) {
+        this.excludeGlobs = excludeGlobs == null ? new ArrayList<>() : new ArrayList<>(excludeGlobs);
+    }
+
+    public long getDebounceMs() {
+        return debounceMs;
+    }
+
+    public void setDebounceMs(long debounceMs) {
+        this.debounceMs = Math.max(0, debounceMs);
+    }
+
+    public WatchOverlapPolicy getOverlapPolicy() {
+        return overlapPolicy;
+    }
+
+    public void setOverlapPolicy(WatchOverlapPolicy overlapPolicy) {
+        this.overlapPolicy = Objects.requireNonNull(overlapPolicy, "overlapPolicy");
+    }
+}
@@ -0,0 +1,11 @@
+package com.helperlib.command.watch;
+
+/**
+ * What a file watch does when a change settles while its previous run is still going.
+ */
+public enum WatchOverlapPolicy {
+    /** Cancel the running execution and start a fresh one (e.g. restart a build). */
+    CANCEL_AND_RESTART,
+    /** Let the running execution finish, then run once more for all changes seen meanwhile. */
+    COALESCE
+}
@@ -20,6 +20,13 @@ module helper.lib {
     exports com.helperlib.command.rest;
     exports com.helperlib.command.tunneltoggle;
     exports com.helperlib.command.template;
+    exports com.helperlib.command.logging;
+    exports com.helperlib.command.ssh;
+    exports com.helperlib.command.remote;
+    exports com.helperlib.command.sftp;
+    exports com.helperlib.command.watch;
+    exports com.helperlib.command.matrix;
+    exports com.helperlib.command.toggle;
 
 
     // If you have any service providers, declare them here
@@ -0,0 +1,159 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.logging.BatchingStreamHandler;
+import com.helperlib.command.logging.StreamOverflowPolicy;
+import com.helperlib.command.logging.StreamThroughputStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingStreamHandlerTest {
+
+    private static final int LINES = 10_000;
+
+    @Test
+    void testBlockPolicy_deliversAllOutputInFewChunks() throws Exception {
+        System.out.println("Testing batching stream handler with BLOCK policy...");
+
+        CollectingStreamHandler collector = new CollectingStreamHandler(null);
+        BatchingStreamHandler handler = new BatchingStreamHandler(
+                collector, 4096, Duration.ofMillis(20), 4, StreamOverflowPolicy.BLOCK, 10);
+
+        String output = numberedLines(LINES);
+        handler.handleStream(toStream(output), "stdout", "Batching").get(10, TimeUnit.SECONDS);
+
+        assertEquals(output, collector.content(), "BLOCK policy must not lose output");
+
+        StreamThroughputStatistics stats = handler.getStatistics();
+        assertEquals(output.length(), stats.bytesIn(), "All source bytes should be counted");
+        assertEquals(output.length(), stats.bytesDelivered(), "All bytes should reach the delegate");
+        assertTrue(stats.chunksDelivered() < LINES / 10, "Small writes should be coalesced into chunks");
+        assertEquals(0, stats.droppedBytes(), "Nothing should be dropped");
+        assertTrue(stats.maxQueueDepth() <= 4, "Queue depth must stay within capacity");
+
+        System.out.println("✓ Delivered " + stats.bytesDelivered() + " bytes in " + stats.chunksDelivered() + " chunks");
+    }
+
+    @Test
+    void testDropOldestPolicy_boundsMemoryForStalledConsumer() throws Exception {
+        System.out.println("Testing batching stream handler with DROP_OLDEST policy...");
+
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingStreamHandler collector = new CollectingStreamHandler(release);
+        BatchingStreamHandler handler = new BatchingStreamHandler(
+                collector, 1024, Duration.ofMillis(20), 2, StreamOverflowPolicy.DROP_OLDEST, 10);
+
+        String output = numberedLines(LINES);
+        CompletableFuture<Void> done = handler.handleStream(toStream(output), "stdout", "Dropping");
+
+        // Producer must finish on its own even though nobody reads
+        waitUntil(() -> handler.getStatistics().bytesIn() == output.length(), 5000);
+        release.countDown();
+        done.get(10, TimeUnit.SECONDS);
+
+        StreamThroughputStatistics stats = handler.getStatistics();
+        assertTrue(stats.droppedChunks() > 0, "Stalled consumer should cause dropped chunks");
+        assertTrue(collector.content().length() <= 3 * 1024, "At most the queued chunks should be delivered");
+        assertTrue(output.endsWith(collector.content()), "The newest output should be kept");
+
+        System.out.println("✓ Dropped " + stats.droppedChunks() + " chunks, kept " + collector.content().length() + " bytes");
+    }
+
+    @Test
+    void testSamplePolicy_keepsOneLineInN() throws Exception {
+        System.out.println("Testing batching stream handler with SAMPLE policy...");
+
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingStreamHandler collector = new CollectingStreamHandler(release);
+        BatchingStreamHandler handler = new BatchingStreamHandler(
+                collector, 1024, Duration.ofMillis(20), 1, StreamOverflowPolicy.SAMPLE, 5);
+
+        String output = numberedLines(LINES);
+        CompletableFuture<Void> done = handler.handleStream(toStream(output), "stdout", "Sampling");
+
+        // Producer must finish on its own even though nobody reads
+        waitUntil(() -> handler.getStatistics().bytesIn() == output.length(), 5000);
+        release.countDown();
+        done.get(10, TimeUnit.SECONDS);
+
+        StreamThroughputStatistics stats = handler.getStatistics();
+        assertTrue(stats.droppedLines() > 0, "Overflowing output should be sampled");
+        assertEquals(output.length(), stats.bytesDelivered() + stats.droppedBytes(),
+                "Every byte is either delivered or counted as dropped");
+
+        System.out.println("✓ Sampled out " + stats.droppedLines() + " lines");
+    }
+
+    // Helpers
+
+    private static String numberedLines(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static InputStream toStream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition, long timeoutMs) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() - start > timeoutMs) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Delegate that optionally waits for a latch before draining its stream into memory.
+     */
+    private static final class CollectingStreamHandler implements StreamHandler {
+        private final CountDownLatch startReading;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        CollectingStreamHandler(CountDownLatch startReading) {
+            this.startReading = startReading;
+        }
+
+        @Override
+        public CompletableFuture<Void> handleStream(InputStream inputStream, String streamType, String commandName) {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    if (startReading != null) {
+                        startReading.await();
+                    }
+                    byte[] data = inputStream.readAllBytes();
+                    synchronized (received) {
+                        received.write(data);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        String content() {
+            synchronized (received) {
+                return received.toString(StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
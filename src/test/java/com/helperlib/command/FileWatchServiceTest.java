@@ -0,0 +1,168 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.Command;
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.watch.FileWatch;
+import com.helperlib.command.watch.FileWatchService;
+import com.helperlib.command.watch.FileWatchSpec;
+import com.helperlib.command.watch.WatchOverlapPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileWatchServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final List<FileWatch> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(FileWatch::close);
+    }
+
+    @Test
+    void testFileWatch_debouncesBurstsAndAppliesGlobs() throws Exception {
+        ProbeCommand probe = new ProbeCommand(0);
+        FileWatchSpec spec = new FileWatchSpec(root, probe);
+        spec.setIncludeGlobs(List.of("**.txt"));
+        spec.setExcludeGlobs(List.of("build"));
+        spec.setDebounceMs(300);
+        Files.createDirectories(root.resolve("build"));
+        FileWatch watch = register(spec);
+
+        // A burst of matching writes collapses into one run
+        for (int i = 0; i < 10; i++) {
+            Files.writeString(root.resolve("file" + i + ".txt"), "v" + i);
+            Thread.sleep(20);
+        }
+        waitFor(() -> probe.started.get() == 1, "burst should trigger a run");
+        Thread.sleep(600);
+        assertEquals(1, probe.started.get(), "Burst should have been debounced into a single run");
+        assertEquals(0, watch.getLastResult().exitCode());
+
+        // Non-matching files and excluded directories do not trigger
+        Files.writeString(root.resolve("notes.log"), "x");
+        Files.writeString(root.resolve("build").resolve("out.txt"), "x");
+        Thread.sleep(800);
+        assertEquals(1, probe.started.get(), "Filtered changes should not trigger a run");
+
+        // Directories created later are watched too
+        Path nested = Files.createDirectories(root.resolve("src").resolve("deep"));
+        Thread.sleep(300);
+        Files.writeString(nested.resolve("new.txt"), "x");
+        waitFor(() -> probe.started.get() == 2, "change in a new subdirectory should trigger a run");
+    }
+
+    @Test
+    void testFileWatch_overlapPolicies() throws Exception {
+        // Restart: a change during a long run cancels it
+        ProbeCommand restartProbe = new ProbeCommand(5_000);
+        Path restartRoot = Files.createDirectories(root.resolve("restart"));
+        FileWatchSpec restart = new FileWatchSpec(restartRoot, restartProbe);
+        restart.setDebounceMs(100);
+        FileWatch restartWatch = register(restart);
+
+        Files.writeString(restartRoot.resolve("a"), "1");
+        waitFor(() -> restartProbe.started.get() == 1, "first change should start a run");
+        Files.writeString(restartRoot.resolve("a"), "2");
+        waitFor(() -> restartProbe.started.get() == 2, "second change should restart the run");
+        assertEquals(1, restartWatch.getCancelledRunCount(), "Superseded run should have been cancelled");
+        assertTrue(restartProbe.futures.getFirst().isCancelled(), "First run's future should be cancelled");
+
+        // Coalesce: changes during a run produce exactly one follow-up run after it
+        ProbeCommand coalesceProbe = new ProbeCommand(800);
+        Path coalesceRoot = Files.createDirectories(root.resolve("coalesce"));
+        FileWatchSpec coalesce = new FileWatchSpec(coalesceRoot, coalesceProbe);
+        coalesce.setDebounceMs(100);
+        coalesce.setOverlapPolicy(WatchOverlapPolicy.COALESCE);
+        FileWatch coalesceWatch = register(coalesce);
+
+        Files.writeString(coalesceRoot.resolve("b"), "1");
+        waitFor(() -> coalesceProbe.started.get() == 1, "first change should start a run");
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(coalesceRoot.resolve("b"), "x" + i);
+            Thread.sleep(200);
+        }
+        waitFor(() -> coalesceProbe.started.get() == 2, "changes during the run should coalesce into one rerun");
+        assertTrue(coalesceProbe.futures.getFirst().join().success(), "Coalesced run should not be cancelled");
+        Thread.sleep(1_200);
+        assertEquals(2, coalesceProbe.started.get(), "Only one follow-up run should be started");
+        assertEquals(0, coalesceWatch.getCancelledRunCount());
+    }
+
+    @Test
+    void testFileWatch_registrationsShareDirectoriesAndOneService() throws Exception {
+        Files.createDirectories(root.resolve("a").resolve("b"));
+        int before = FileWatchService.getWatchedDirectoryCount();
+
+        FileWatch first = register(new FileWatchSpec(root, new ProbeCommand(0)));
+        FileWatch second = register(new FileWatchSpec(root, new ProbeCommand(0)));
+        assertEquals(before + 3, FileWatchService.getWatchedDirectoryCount(), "Shared directories registered once");
+
+        first.close();
+        assertEquals(before + 3, FileWatchService.getWatchedDirectoryCount(), "Still watched by the second registration");
+        second.close();
+        assertEquals(before, FileWatchService.getWatchedDirectoryCount(), "Directories released with the last registration");
+    }
+
+    private FileWatch register(FileWatchSpec spec) throws Exception {
+        FileWatch watch = FileWatchService.register(spec);
+        opened.add(watch);
+        return watch;
+    }
+
+    private static void waitFor(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out: " + message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Counts executions; each one takes {@code runMillis} unless cancelled.
+     */
+    private static final class ProbeCommand extends Command {
+        final AtomicInteger started = new AtomicInteger();
+        final List<CompletableFuture<CommandResult>> futures = new ArrayList<>();
+        private final long runMillis;
+
+        ProbeCommand(long runMillis) {
+            super(new TerminalCommandMetadata("Probe", "Counts runs", "true", Map.of(), "", ""));
+            this.runMillis = runMillis;
+        }
+
+        @Override
+        public CompletableFuture<CommandResult> executeAsync() {
+            started.incrementAndGet();
+            CompletableFuture<CommandResult> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    Thread.sleep(runMillis);
+                } catch (InterruptedException e) {
+                    return new CommandResult(false, 130, runMillis);
+                }
+                return new CommandResult(true, 0, runMillis);
+            });
+            synchronized (futures) {
+                futures.add(future);
+            }
+            return future;
+        }
+    }
+}
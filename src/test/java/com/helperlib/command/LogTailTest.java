@@ -0,0 +1,66 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.logging.LogTail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTailTest {
+
+    @Test
+    void testLogTail_boundedByBytesAndLines() {
+        LogTail tail = new LogTail(100, 5);
+        for (int i = 0; i < 1_000; i++) {
+            tail.appendLine("line " + i);
+        }
+        assertEquals(List.of("line 995", "line 996", "line 997", "line 998", "line 999"), tail.snapshot(),
+                "Line limit keeps the newest lines");
+        assertEquals(List.of("line 998", "line 999"), tail.snapshot(2));
+        assertEquals(1_000, tail.getTotalLines());
+
+        // Byte limit: 30-byte lines, at most three fit into 100 bytes
+        String wide = "x".repeat(29);
+        for (int i = 0; i < 10; i++) {
+            tail.appendLine(i + wide);
+        }
+        assertEquals(3, tail.getRetainedLines());
+        assertEquals(90, tail.getRetainedBytes());
+        assertEquals("9" + wide, tail.snapshot().getLast(), "Lines wrapping around the ring read back intact");
+
+        // A line longer than the whole tail is cut to fit
+        tail.appendLine("y".repeat(500));
+        assertEquals(List.of("y".repeat(100)), tail.snapshot());
+    }
+
+    @Test
+    void testLogTail_teeKeepsOutputAndSeparatesStreams() {
+        LogTail tail = new LogTail();
+        StringBuilder forwarded = new StringBuilder();
+        StreamHandler handler = tail.tee((inputStream, streamType, commandName) -> {
+            try (inputStream) {
+                forwarded.append(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+
+        handler.handleStream(stream("first\r\nsecond\nunterminated"), "stdout", "Cmd").join();
+        handler.handleStream(stream("error\n"), "stderr", "Cmd").join();
+
+        assertEquals("first\r\nsecond\nunterminatederror\n", forwarded.toString(), "Bytes pass through unchanged");
+        assertEquals(List.of("first", "second", "unterminated", "error"), tail.snapshot());
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
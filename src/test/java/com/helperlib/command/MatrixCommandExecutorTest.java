@@ -0,0 +1,124 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.matrix.MatrixCommandExecutor;
+import com.helperlib.command.matrix.MatrixRunResult;
+import com.helperlib.command.matrix.MatrixSummary;
+import com.helperlib.command.terminal.TerminalCommandFactory;
+import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.terminal.TerminalTemplatingPolicy;
+import com.helperlib.core.template.RegexTemplateEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class MatrixCommandExecutorTest {
+
+    @Test
+    void testMatrix_runsVariantsTaggedAndSummarizes() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX echo");
+        TerminalCommandMetadata template = new TerminalCommandMetadata(
+                "Greet", "Echoes per environment", "echo ${env}-${region}", Map.of(), "", "");
+
+        Map<String, String> stdoutByStream = new ConcurrentHashMap<>();
+        MatrixCommandExecutor executor = new MatrixCommandExecutor(
+                new TerminalCommandFactory(), new TerminalTemplatingPolicy(), new RegexTemplateEngine());
+        executor.setMaxConcurrency(2);
+
+        MatrixSummary summary = executor.executeAsync(template, List.of(
+                Map.of("env", "dev", "region", "eu"),
+                Map.of("env", "prod", "region", "us"),
+                Map.of("env", "stage", "region", "ap"),
+                Map.of("env", "qa")                       // missing region
+        ), collecting(stdoutByStream)).get(30, TimeUnit.SECONDS);
+
+        assertEquals(3, summary.succeeded());
+        assertEquals(1, summary.failed());
+        assertFalse(summary.allSucceeded());
+        assertEquals("dev-eu", stdoutByStream.get("Greet[env=dev,region=eu]"), "Streams should be tagged per variant");
+        assertEquals("prod-us", stdoutByStream.get("Greet[env=prod,region=us]"));
+        assertEquals("stage-ap", stdoutByStream.get("Greet[env=stage,region=ap]"));
+
+        MatrixRunResult missing = summary.runs().get(3);
+        assertEquals(-1, missing.result().exitCode(), "Unrenderable variant should fail with -1");
+        assertTrue(missing.error().contains("region"), "Missing placeholder should be named: " + missing.error());
+        assertTrue(summary.p50LatencyMs() <= summary.p90LatencyMs() && summary.p90LatencyMs() <= summary.maxLatencyMs());
+    }
+
+    @Test
+    void testMatrix_respectsConcurrencyCap() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sleep");
+        TerminalCommandMetadata template = new TerminalCommandMetadata(
+                "Nap", "Sleeps", "sleep ${seconds}", Map.of(), "", "");
+        MatrixCommandExecutor executor = new MatrixCommandExecutor(
+                new TerminalCommandFactory(), new TerminalTemplatingPolicy(), new RegexTemplateEngine());
+        executor.setMaxConcurrency(2);
+
+        List<Map<String, String>> sets = List.of(
+                Map.of("seconds", "0.4", "i", "1"), Map.of("seconds", "0.4", "i", "2"),
+                Map.of("seconds", "0.4", "i", "3"), Map.of("seconds", "0.4", "i", "4"));
+        MatrixSummary summary = executor.executeAsync(template, sets, collecting(new ConcurrentHashMap<>()))
+                .get(30, TimeUnit.SECONDS);
+
+        assertTrue(summary.allSucceeded(), "All variants should succeed: " + summary.runs());
+        assertTrue(summary.wallClockMs() >= 800, "Two waves of two should take at least 800ms, took " + summary.wallClockMs());
+        assertTrue(summary.p50LatencyMs() >= 350, "Latency should exclude queueing but cover the run");
+    }
+
+    @Test
+    void testMatrix_cancelStopsQueuedVariants(@TempDir Path markers) throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX touch and sleep");
+        TerminalCommandMetadata template = new TerminalCommandMetadata(
+                "Mark", "Marks and sleeps", "touch " + markers + "/${i}; sleep 1", Map.of(), "", "");
+        MatrixCommandExecutor executor = new MatrixCommandExecutor(
+                new TerminalCommandFactory(), new TerminalTemplatingPolicy(), new RegexTemplateEngine());
+        executor.setMaxConcurrency(1);
+
+        CompletableFuture<MatrixSummary> summary = executor.executeAsync(template,
+                List.of(Map.of("i", "1"), Map.of("i", "2"), Map.of("i", "3")),
+                collecting(new ConcurrentHashMap<>()));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!hasMarker(markers) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(hasMarker(markers), "One variant should have started");
+        summary.cancel(true);
+
+        // Long enough for the queued variants to have started and marked had they not been cancelled
+        Thread.sleep(2_500);
+        try (var files = Files.list(markers)) {
+            assertEquals(1, files.count(), "Queued variants must not start after cancel");
+        }
+    }
+
+    private static boolean hasMarker(Path markers) throws IOException {
+        try (var files = Files.list(markers)) {
+            return files.findAny().isPresent();
+        }
+    }
+
+    private static StreamHandler collecting(Map<String, String> stdoutByStream) {
+        return (inputStream, streamType, commandName) -> CompletableFuture.runAsync(() -> {
+            try (inputStream) {
+                String text = new String(inputStream.readAllBytes()).trim();
+                if (streamType.equals("stdout")) {
+                    stdoutByStream.put(commandName, text);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.command.logging.OutputSpool;
+import com.helperlib.command.logging.SpoolMatch;
+import com.helperlib.command.terminal.TerminalCommand;
+import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.core.command.logging.NoOpStreamHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class OutputSpoolTest {
+
+    private static final int LINES = 5_000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSpool_randomAccessAcrossSegments() throws Exception {
+        System.out.println("Testing output spool random access...");
+
+        // Small segments and index interval so reads cross many segment and index boundaries
+        OutputSpool spool = new OutputSpool(tempDir.resolve("spool"), 1000, 16);
+        byte[] output = numberedLines(LINES).getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < output.length; offset += 777) {
+            spool.write(output, offset, Math.min(777, output.length - offset));
+        }
+
+        assertEquals(LINES, spool.getLineCount(), "Every line should be counted");
+        assertEquals(output.length, spool.getByteCount(), "Every byte should be stored");
+        assertEquals(List.of("line-0", "line-1"), spool.readLines(0, 2), "Reads from the start");
+        assertEquals(List.of("line-1234", "line-1235", "line-1236"), spool.readLines(1234, 3),
+                "Reads from an arbitrary line");
+        assertEquals(List.of("line-4998", "line-4999"), spool.tail(2), "Tail returns the last lines");
+        assertTrue(spool.readLines(LINES, 5).isEmpty(), "Reading past the end returns nothing");
+
+        List<SpoolMatch> matches = spool.search(Pattern.compile("^line-4[0-9]{2}$"), 0, 10);
+        assertEquals(10, matches.size(), "Search should stop at maxResults");
+        assertEquals(new SpoolMatch(400, "line-400"), matches.get(0), "Search should report line numbers");
+
+        // A trailing line without newline is visible too
+        byte[] partial = "partial".getBytes(StandardCharsets.UTF_8);
+        spool.write(partial, 0, partial.length);
+        assertEquals(LINES + 1, spool.getLineCount(), "Unterminated last line should be counted");
+        assertEquals(List.of("partial"), spool.tail(1), "Unterminated last line should be readable");
+
+        spool.close();
+        try (Stream<Path> segments = Files.list(tempDir.resolve("spool"))) {
+            assertTrue(segments.count() > 1, "Output should have been rotated over several segments");
+        }
+        assertEquals(List.of("line-2500"), spool.readLines(2500, 1), "Reads remain possible after close");
+
+        spool.delete();
+        assertFalse(Files.exists(tempDir.resolve("spool")), "delete() should remove the segment files");
+        assertEquals(List.of(), spool.tail(1), "Reads after delete() should find no lines");
+        assertEquals(List.of(), spool.search(Pattern.compile("line"), 0, 1), "Searches after delete() should match nothing");
+
+        System.out.println("✓ Successfully verified spool reads over " + LINES + " lines");
+    }
+
+    @Test
+    void testTerminalCommand_spoolDirectory_spoolsStdout() throws Exception {
+        System.out.println("Testing terminal command output spooling...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX seq");
+
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                "SpooledCommand",
+                "Command with spooled output",
+                "seq 1 20000",
+                Map.of(),
+                "",
+                ""
+        );
+        metadata.setSpoolDirectory(tempDir.toString());
+        metadata.setSpoolSegmentBytes(16 * 1024);
+
+        TerminalCommand command = new TerminalCommand(metadata, new NoOpStreamHandler());
+        CommandResult result = command.executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(result.success(), "Command execution should be successful");
+
+        OutputSpool spool = command.getOutputSpool("stdout").orElseThrow();
+        assertEquals(20000, spool.getLineCount(), "All output lines should be spooled");
+        assertEquals(List.of("10000", "10001"), spool.readLines(9999, 2), "Spool should be readable by line");
+        assertEquals(List.of("20000"), spool.tail(1), "Spool tail should be the last line");
+
+
+        // Older runs of the same command are deleted beyond spoolRetainedRuns
+        metadata.setSpoolRetainedRuns(2);
+        for (int run = 0; run < 3; run++) {
+            assertTrue(command.executeAsync().get(10, TimeUnit.SECONDS).success());
+        }
+        try (var runs = Files.list(tempDir.resolve("SpooledCommand"))) {
+            assertEquals(2, runs.count(), "Only the latest runs should keep their spool");
+        }
+        assertEquals(List.of("20000"), command.getOutputSpool("stdout").orElseThrow().tail(1));
+
+        System.out.println("✓ Successfully verified spooled output in " + spool.getDirectory());
+    }
+
+    private static String numberedLines(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("line-").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,176 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.remote.RemoteCommand;
+import com.helperlib.command.remote.RemoteCommandFactory;
+import com.helperlib.command.remote.RemoteCommandMetadata;
+import com.helperlib.command.ssh.SshSessionPool;
+import com.helperlib.command.terminal.TerminalCommandFactory;
+import com.helperlib.command.terminal.TerminalTemplatingPolicy;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+import com.helperlib.core.template.RegexTemplateEngine;
+import jakarta.json.JsonObject;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellCommandFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class RemoteCommandTest {
+
+    private SshServer sshd;
+    private int sshPort;
+    private final AtomicInteger serverSessions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        System.setProperty("IS_TEST", "true");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Server runs POSIX commands");
+
+        // In-memory SSH server that runs exec requests as local processes
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+
+        var hostKeyProvider = new SimpleGeneratorHostKeyProvider(Files.createTempFile("hostkey", ".ser"));
+        hostKeyProvider.setAlgorithm("RSA");
+        sshd.setKeyPairProvider(hostKeyProvider);
+
+        sshd.setPasswordAuthenticator((username, password, session) ->
+                "testuser".equals(username) && "testpass".equals(password));
+        sshd.setCommandFactory(new ProcessShellCommandFactory());
+        sshd.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionCreated(Session session) {
+                serverSessions.incrementAndGet();
+            }
+        });
+        sshd.start();
+        sshPort = sshd.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SshSessionPool.closeAll();
+        if (sshd != null) {
+            try {
+                sshd.stop(true);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Test
+    void testRemoteCommand_streamsOutputAndReportsExitStatus() throws Exception {
+        Map<String, String> output = new ConcurrentHashMap<>();
+
+        CommandResult ok = new RemoteCommand(metadata("RemoteEcho", "echo hello-remote"), collecting(output))
+                .executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(ok.success(), "Remote command should succeed");
+        assertEquals(0, ok.exitCode(), "Remote exit status should be reported");
+        assertEquals("hello-remote", output.get("stdout"), "Remote stdout should reach the StreamHandler");
+
+        output.clear();
+        CommandResult failed = new RemoteCommand(metadata("RemoteLs", "ls /definitely/not/here"), collecting(output))
+                .executeAsync().get(10, TimeUnit.SECONDS);
+        assertFalse(failed.success(), "Failing remote command should not be successful");
+        assertTrue(failed.exitCode() > 0, "Remote non-zero exit status should be reported, got " + failed.exitCode());
+        assertFalse(output.getOrDefault("stderr", "").isEmpty(), "Remote stderr should reach the StreamHandler");
+    }
+
+    @Test
+    void testRemoteCommand_reusesPooledSessionAcrossCommands() throws Exception {
+        SshSessionPool.setIdleTimeout(Duration.ofSeconds(30));
+        long handshakesBefore = SshSessionPool.getHandshakeCount();
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, String> output = new ConcurrentHashMap<>();
+            CommandResult result = new RemoteCommand(metadata("RemoteRepeat" + i, "echo run-" + i), collecting(output))
+                    .executeAsync().get(10, TimeUnit.SECONDS);
+            assertTrue(result.success(), "Remote command " + i + " should succeed");
+            assertEquals("run-" + i, output.get("stdout"), "Output of run " + i + " should be streamed");
+        }
+
+        assertEquals(1, SshSessionPool.getHandshakeCount() - handshakesBefore, "Commands should share one handshake");
+        assertEquals(1, serverSessions.get(), "Server should have seen a single SSH session");
+    }
+
+    @Test
+    void testRemoteCommand_negative_invalidCredentials() {
+        RemoteCommandMetadata meta = metadata("RemoteBadCredentials", "echo never");
+        meta.setPassword("wrongpass");
+
+        CommandResult result = new RemoteCommand(meta, collecting(new ConcurrentHashMap<>())).executeAsync().join();
+
+        assertFalse(result.success(), "Execution should fail for invalid credentials");
+        assertEquals(-1, result.exitCode(), "Should return -1 on failure");
+    }
+
+    @Test
+    void testRemoteCommand_metadataIsNeverTreatedAsTerminal() {
+        RemoteCommandMetadata meta = metadata("RemoteNotLocal", "touch /tmp/should-not-run-locally");
+
+        JsonObject saved = new RemoteCommandFactory().serializeMetadata(meta);
+        assertEquals(RemoteCommandMetadata.SERIALIZED_TYPE, saved.getString("type"), "Remote metadata should not be saved as TERMINAL");
+        assertEquals("touch /tmp/should-not-run-locally",
+                ((RemoteCommandMetadata) new RemoteCommandFactory().parseMetadata(saved)).getCommandText());
+
+        TerminalCommandFactory terminalFactory = new TerminalCommandFactory();
+        assertThrows(IllegalArgumentException.class, () -> terminalFactory.parseMetadata(saved),
+                "Terminal factory should refuse saved remote metadata");
+        assertThrows(IllegalArgumentException.class,
+                () -> terminalFactory.createCommand(meta, collecting(new ConcurrentHashMap<>())),
+                "Terminal factory should refuse to run remote metadata locally");
+        assertThrows(IllegalArgumentException.class,
+                () -> new TerminalTemplatingPolicy().requiredPlaceholders(meta, new RegexTemplateEngine()),
+                "Terminal templating should refuse remote metadata");
+    }
+
+    // Helpers
+
+    private RemoteCommandMetadata metadata(String name, String commandText) {
+        return new RemoteCommandMetadata(
+                name,
+                "Remote command test",
+                "127.0.0.1",
+                sshPort,
+                "testuser",
+                TunnelAuthType.PASSWORD,
+                "testpass",
+                null,
+                null,
+                false,
+                null,
+                commandText,
+                5_000,
+                0
+        );
+    }
+
+    private static StreamHandler collecting(Map<String, String> output) {
+        return (inputStream, streamType, commandName) -> CompletableFuture.runAsync(() -> {
+            try (inputStream) {
+                output.put(streamType, new String(inputStream.readAllBytes()).trim());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,239 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.sftp.SftpDirection;
+import com.helperlib.command.sftp.SftpTransferCommand;
+import com.helperlib.command.sftp.SftpTransferCommandFactory;
+import com.helperlib.command.sftp.SftpTransferCommandMetadata;
+import com.helperlib.command.ssh.SshSessionPool;
+import com.helperlib.command.terminal.TerminalCommandFactory;
+import com.helperlib.command.tunneltoggle.TunnelAuthType;
+import jakarta.json.JsonObject;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellFactory;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class SftpTransferCommandTest {
+
+    private static final int MIB = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private SshServer sshd;
+    private int sshPort;
+    private Path remoteDir;
+    private Path localDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        System.setProperty("IS_TEST", "true");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Server runs POSIX commands");
+
+        // In-memory SSH server with the SFTP subsystem; exec requests run through sh (for sha256sum)
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+
+        var hostKeyProvider = new SimpleGeneratorHostKeyProvider(Files.createTempFile("hostkey", ".ser"));
+        hostKeyProvider.setAlgorithm("RSA");
+        sshd.setKeyPairProvider(hostKeyProvider);
+
+        sshd.setPasswordAuthenticator((username, password, session) ->
+                "testuser".equals(username) && "testpass".equals(password));
+        sshd.setSubsystemFactories(List.of(new SftpSubsystemFactory()));
+        sshd.setCommandFactory((channel, command) ->
+                new ProcessShellFactory(command, "/bin/sh", "-c", command).createShell(channel));
+        sshd.start();
+        sshPort = sshd.getPort();
+
+        remoteDir = Files.createDirectories(tempDir.resolve("remote"));
+        localDir = Files.createDirectories(tempDir.resolve("local"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SshSessionPool.closeAll();
+        if (sshd != null) {
+            try {
+                sshd.stop(true);
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    @Test
+    void testSftpTransfer_parallelDownloadVerifiesChecksumAndReportsProgress() throws Exception {
+        byte[] content = randomBytes(8 * MIB + 12_345, 1);
+        Path remote = Files.write(remoteDir.resolve("data.bin"), content);
+        Path local = localDir.resolve("data.bin");
+        List<String> progress = new CopyOnWriteArrayList<>();
+
+        SftpTransferCommandMetadata m = metadata("Download", SftpDirection.DOWNLOAD, local, remote);
+        m.setChunkBytes(MIB);
+        m.setParallelChannels(4);
+
+        CommandResult result = new SftpTransferCommand(m, collectingStdout(progress))
+                .executeAsync().get(60, TimeUnit.SECONDS);
+
+        assertTrue(result.success(), "Download should succeed, progress: " + progress);
+        assertArrayEquals(content, Files.readAllBytes(local), "Downloaded bytes should match the remote file");
+        assertFalse(Files.exists(localDir.resolve("data.bin.part")), "Part file should be renamed on success");
+        assertFalse(Files.exists(localDir.resolve("data.bin.part.ranges")), "Range journal should be removed");
+        assertTrue(progress.stream().anyMatch(l -> l.startsWith("SHA-256 verified")), "Checksum should be verified");
+        assertTrue(progress.stream().anyMatch(l -> l.contains("(100%)")), "Progress should reach 100%: " + progress);
+    }
+
+    @Test
+    void testSftpTransfer_downloadResumesByRangeAndChecksumCatchesCorruption() throws Exception {
+        byte[] content = randomBytes(4 * MIB, 2);
+        Path remote = Files.write(remoteDir.resolve("resume.bin"), content);
+        Path local = localDir.resolve("resume.bin");
+        long mtime = Files.getLastModifiedTime(remote).to(TimeUnit.SECONDS);
+
+        // A previous run recorded range 0 as done; its bytes are marked so a skipped range is visible
+        byte[] marked = content.clone();
+        for (int i = 0; i < MIB; i++) {
+            marked[i] = 0x5A;
+        }
+        writePartialDownload(local, marked, mtime);
+
+        SftpTransferCommandMetadata m = metadata("Resume", SftpDirection.DOWNLOAD, local, remote);
+        m.setChunkBytes(MIB);
+        m.setVerifyChecksum(false);
+        CommandResult resumed = new SftpTransferCommand(m, collectingStdout(new CopyOnWriteArrayList<>()))
+                .executeAsync().get(60, TimeUnit.SECONDS);
+
+        assertTrue(resumed.success(), "Resumed download should succeed");
+        assertArrayEquals(marked, Files.readAllBytes(local), "Completed range should be kept, the rest fetched");
+
+        // Same partial state with verification on: the mismatch is detected and the partial state discarded
+        Files.delete(local);
+        writePartialDownload(local, marked, mtime);
+        m.setVerifyChecksum(true);
+        List<String> progress = new CopyOnWriteArrayList<>();
+        CommandResult verified = new SftpTransferCommand(m, collectingStdout(progress))
+                .executeAsync().get(60, TimeUnit.SECONDS);
+
+        assertFalse(verified.success(), "Corrupted resume should fail verification");
+        assertEquals(-1, verified.exitCode());
+        assertTrue(progress.stream().anyMatch(l -> l.startsWith("SHA-256 mismatch")), "Mismatch should be reported");
+        assertFalse(Files.exists(local), "Unverified download should not be moved into place");
+        assertFalse(Files.exists(localDir.resolve("resume.bin.part")), "Part file should be discarded");
+        assertFalse(Files.exists(localDir.resolve("resume.bin.part.ranges")), "Range journal should be discarded");
+    }
+
+    @Test
+    void testSftpTransfer_uploadResumesFromRemotePartFile() throws Exception {
+        byte[] content = randomBytes(3 * MIB + 777, 3);
+        Path local = Files.write(localDir.resolve("up.bin"), content);
+        Path remote = remoteDir.resolve("up.bin");
+
+        // Half of the file arrived in an earlier, interrupted upload
+        Files.write(remoteDir.resolve("up.bin.part"), Arrays.copyOf(content, content.length / 2));
+
+        List<String> progress = new CopyOnWriteArrayList<>();
+        CommandResult result = new SftpTransferCommand(
+                metadata("Upload", SftpDirection.UPLOAD, local, remote), collectingStdout(progress))
+                .executeAsync().get(60, TimeUnit.SECONDS);
+
+        assertTrue(result.success(), "Upload should succeed, progress: " + progress);
+        assertArrayEquals(content, Files.readAllBytes(remote), "Uploaded bytes should match the local file");
+        assertFalse(Files.exists(remoteDir.resolve("up.bin.part")), "Remote part file should be renamed");
+        assertTrue(progress.stream().anyMatch(l -> l.startsWith("SHA-256 verified")), "Checksum should be verified");
+    }
+
+    @Test
+    void testSftpTransfer_throughputBenchmark() throws Exception {
+        byte[] content = randomBytes(32 * MIB, 4);
+        Path remote = Files.write(remoteDir.resolve("bench.bin"), content);
+
+        for (int channels : new int[]{1, 4}) {
+            Path local = localDir.resolve("bench-" + channels + ".bin");
+            SftpTransferCommandMetadata m = metadata("Bench" + channels, SftpDirection.DOWNLOAD, local, remote);
+            m.setParallelChannels(channels);
+            m.setChunkBytes(4 * MIB);
+            m.setVerifyChecksum(false);
+
+            long start = System.nanoTime();
+            CommandResult result = new SftpTransferCommand(m, collectingStdout(new CopyOnWriteArrayList<>()))
+                    .executeAsync().get(120, TimeUnit.SECONDS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertTrue(result.success(), "Benchmark download with " + channels + " channel(s) should succeed");
+            assertArrayEquals(content, Files.readAllBytes(local), "Benchmark download should be intact");
+            System.out.printf("SFTP download, %d channel(s): %.1f MiB/s%n", channels, 32 / seconds);
+        }
+    }
+
+    @Test
+    void testSftpTransfer_metadataIsNeverTreatedAsTerminal() {
+        SftpTransferCommandMetadata m = metadata("NotTerminal", SftpDirection.DOWNLOAD,
+                localDir.resolve("x.bin"), remoteDir.resolve("x.bin"));
+
+        JsonObject saved = new SftpTransferCommandFactory().serializeMetadata(m);
+        assertEquals(SftpTransferCommandMetadata.SERIALIZED_TYPE, saved.getString("type"),
+                "Transfer metadata should not be saved as TERMINAL");
+        assertThrows(IllegalArgumentException.class, () -> new TerminalCommandFactory().parseMetadata(saved),
+                "Terminal factory should refuse saved transfer metadata");
+        assertThrows(IllegalArgumentException.class,
+                () -> new TerminalCommandFactory().createCommand(m, collectingStdout(new CopyOnWriteArrayList<>())),
+                "Terminal factory should refuse transfer metadata");
+    }
+
+    private void writePartialDownload(Path local, byte[] partContent, long mtime) throws IOException {
+        Files.write(local.resolveSibling(local.getFileName() + ".part"), Arrays.copyOf(partContent, MIB));
+        Files.writeString(local.resolveSibling(local.getFileName() + ".part.ranges"),
+                partContent.length + " " + mtime + " " + MIB + "\n0\n", StandardCharsets.UTF_8);
+    }
+
+    private SftpTransferCommandMetadata metadata(String name, SftpDirection direction, Path local, Path remote) {
+        return new SftpTransferCommandMetadata(
+                name, "SFTP test",
+                "127.0.0.1", sshPort, "testuser",
+                TunnelAuthType.PASSWORD, "testpass", null, null,
+                false, null,
+                direction, local.toString(), remote.toString(),
+                5_000, 30);
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static StreamHandler collectingStdout(List<String> lines) {
+        return (inputStream, streamType, commandName) -> CompletableFuture.runAsync(() -> {
+            try {
+                String text = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                if ("stdout".equals(streamType)) {
+                    text.lines().forEach(lines::add);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -2,9 +2,16 @@ package com.helperlib.command;
 
 import com.helperlib.api.command.CommandResult;
 import com.helperlib.api.command.CommandType;
+import com.helperlib.api.command.logging.StreamHandler;
 import com.helperlib.command.template.DefaultTemplatingPolicyResolver;
+import com.helperlib.command.terminal.ProcessSpawnGovernor;
+import com.helperlib.command.terminal.SpawnGovernorStatistics;
+import com.helperlib.command.terminal.TerminalCommand;
 import com.helperlib.command.terminal.TerminalCommandFactory;
 import com.helperlib.command.terminal.TerminalCommandMetadata;
+import com.helperlib.command.terminal.TerminalOutputPipe;
+import com.helperlib.command.terminal.TerminalProcessMetrics;
+import com.helperlib.command.terminal.TerminalResultCache;
 import com.helperlib.core.command.CommandRegistry;
 import com.helperlib.core.command.logging.FileStreamHandler;
 import com.helperlib.core.template.RegexTemplateEngine;
@@ -12,13 +19,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 public class TerminalCommandTest {
 
@@ -152,6 +165,379 @@ public class TerminalCommandTest {
         System.out.println("✓ Successfully verified dynamic parameter rendering to: " + logContent);
     }
 
+    @Test
+    void testTerminalCommand_cancel_killsProcessAndReports130() throws Exception {
+        System.out.println("Testing terminal command cancellation...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sleep");
+
+        TerminalCommandMetadata sleeping = new TerminalCommandMetadata(
+                "SleepingCommand",
+                "Long running command that gets cancelled",
+                "sleep 30",
+                Map.of(),
+                "",
+                ""
+        );
+        TerminalCommand command = new TerminalCommand(sleeping, new FileStreamHandler());
+
+        long start = System.currentTimeMillis();
+        CompletableFuture<CommandResult> resultFuture = command.executeAsync();
+        Thread.sleep(500);
+
+        assertTrue(command.cancel(), "cancel() should reach the in-flight execution");
+
+        CommandResult result = resultFuture.get(5, TimeUnit.SECONDS);
+        assertFalse(result.success(), "Cancelled execution should not be successful");
+        assertEquals(130, result.exitCode(), "Cancelled execution should report exit code 130");
+        assertTrue(System.currentTimeMillis() - start < 10_000, "Cancellation should not wait for the process");
+        assertFalse(command.cancel(), "Nothing left to cancel after completion");
+
+        System.out.println("✓ Successfully verified cancellation with exit code " + result.exitCode());
+    }
+
+    @Test
+    void testTerminalCommand_metricsListener_reportsOutputBytes() throws Exception {
+        System.out.println("Testing terminal command resource metrics...");
+
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                "MetricsCommand",
+                "Command whose resource usage is reported",
+                ECHO_COMMAND,
+                Map.of(),
+                "",
+                ""
+        );
+        TerminalCommand command = new TerminalCommand(metadata, new FileStreamHandler());
+
+        AtomicReference<TerminalProcessMetrics> reported = new AtomicReference<>();
+        command.setMetricsListener((meta, result, metrics) -> reported.set(metrics));
+
+        CommandResult result = command.executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(result.success(), "Command execution should be successful");
+
+        TerminalProcessMetrics metrics = reported.get();
+        assertNotNull(metrics, "Metrics listener should have been called");
+        assertTrue(metrics.pid() > 0, "Metrics should carry the process pid");
+        assertTrue(metrics.stdoutBytes() >= EXPECTED_OUTPUT.length(), "stdout byte count should cover the echoed text");
+        assertEquals(0, metrics.stderrBytes(), "Nothing was written to stderr");
+
+        System.out.println("✓ Successfully verified metrics: " + metrics);
+    }
+
+    @Test
+    void testTerminalCommand_mergeErrorStream_preservesOrderInStdout() throws Exception {
+        System.out.println("Testing terminal command with merged stderr...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX redirection");
+
+        String commandName = "MergedStreamsCommand";
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                commandName,
+                "Writes to stdout and stderr alternately",
+                "echo first; echo second 1>&2; echo third",
+                Map.of(),
+                "",
+                ""
+        );
+        metadata.setMergeErrorStream(true);
+
+        CommandResult result = new TerminalCommand(metadata, new FileStreamHandler())
+                .executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(result.success(), "Command execution should be successful");
+
+        Thread.sleep(200);
+
+        Path stdoutLog = getExpectedLogPath(commandName, "stdout");
+        assertTrue(Files.exists(stdoutLog), "stdout log file should exist at: " + stdoutLog);
+        List<String> lines = Files.readAllLines(stdoutLog);
+        assertEquals(List.of("first", "second", "third"), lines.subList(lines.size() - 3, lines.size()),
+                "stderr output should be interleaved into stdout in original order");
+
+        System.out.println("✓ Successfully verified merged stdout/stderr ordering");
+    }
+
+    @Test
+    void testTerminalCommand_stderrRedirectPath_writesStderrToFileOnly() throws Exception {
+        System.out.println("Testing terminal command with stderr redirected to a file...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX redirection");
+
+        Path stderrFile = Files.createTempFile("stderr-redirect", ".log");
+        try {
+            TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                    "StderrRedirectCommand",
+                    "Writes to stdout and stderr",
+                    "echo out; echo err 1>&2",
+                    Map.of(),
+                    "",
+                    ""
+            );
+            metadata.setStderrRedirectPath(stderrFile.toString());
+
+            List<String> streamTypes = new CopyOnWriteArrayList<>();
+            List<String> outputs = new CopyOnWriteArrayList<>();
+            StreamHandler stdout = collectingStdout(outputs);
+            StreamHandler handler = (inputStream, streamType, name) -> {
+                streamTypes.add(streamType);
+                return stdout.handleStream(inputStream, streamType, name);
+            };
+
+            CommandResult result = new TerminalCommand(metadata, handler)
+                    .executeAsync().get(10, TimeUnit.SECONDS);
+            assertTrue(result.success(), "Command execution should be successful");
+
+            assertEquals(List.of("out"), outputs, "stdout should still reach the stream handler");
+            assertFalse(streamTypes.contains("stderr"), "stderr should not be handed to the stream handler");
+            assertEquals("err", Files.readString(stderrFile).trim(), "stderr should be written to the redirect file");
+        } finally {
+            Files.deleteIfExists(stderrFile);
+        }
+
+        System.out.println("✓ Successfully verified stderr redirection to a file");
+    }
+
+    @Test
+    void testTerminalCommand_spawnGovernor_serializesExecutionsOverCommandLimit() throws Exception {
+        System.out.println("Testing terminal command spawn limits...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sleep");
+
+        String commandName = "LimitedCommand";
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                commandName,
+                "Command limited to one concurrent process",
+                "sleep 0.5",
+                Map.of(),
+                "",
+                ""
+        );
+        TerminalCommand command = new TerminalCommand(metadata, new FileStreamHandler());
+
+        ProcessSpawnGovernor.setCommandLimit(commandName, 1);
+        try {
+            long admittedBefore = ProcessSpawnGovernor.getStatistics().totalAdmitted();
+            long start = System.currentTimeMillis();
+
+            CompletableFuture<CommandResult> first = command.executeAsync();
+            CompletableFuture<CommandResult> second = command.executeAsync();
+
+            assertTrue(first.get(10, TimeUnit.SECONDS).success(), "First execution should be successful");
+            assertTrue(second.get(10, TimeUnit.SECONDS).success(), "Second execution should be successful");
+            assertTrue(System.currentTimeMillis() - start >= 1000, "Executions should not have overlapped");
+
+            SpawnGovernorStatistics stats = ProcessSpawnGovernor.getStatistics();
+            assertEquals(2, stats.totalAdmitted() - admittedBefore, "Both executions should have been admitted");
+            assertEquals(0, stats.queueDepth(), "Queue should be empty afterwards");
+            assertTrue(stats.maxWaitMs() >= 300, "One execution should have waited for the other");
+
+            System.out.println("✓ Successfully verified spawn limits: " + stats);
+        } finally {
+            ProcessSpawnGovernor.setCommandLimit(commandName, ProcessSpawnGovernor.UNLIMITED);
+        }
+    }
+
+    @Test
+    void testTerminalCommand_resultCache_replaysOutputWithoutRespawning() throws Exception {
+        System.out.println("Testing terminal command result cache...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX date");
+
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                "CachedCommand",
+                "Command whose output differs on every run",
+                "date +%s%N",
+                Map.of(),
+                "",
+                ""
+        );
+        metadata.setCacheTtlMs(60_000);
+
+        List<String> outputs = new CopyOnWriteArrayList<>();
+        TerminalCommand command = new TerminalCommand(metadata, collectingStdout(outputs));
+
+        AtomicReference<TerminalProcessMetrics> spawned = new AtomicReference<>();
+        command.setMetricsListener((meta, result, metrics) -> spawned.set(metrics));
+
+        TerminalResultCache.invalidate(metadata);
+        try {
+            CommandResult first = command.executeAsync().get(10, TimeUnit.SECONDS);
+            assertTrue(first.success(), "First execution should be successful");
+            assertNotNull(spawned.getAndSet(null), "First execution should spawn a process");
+
+            CommandResult second = command.executeAsync().get(10, TimeUnit.SECONDS);
+            assertTrue(second.success(), "Cached execution should be successful");
+            assertEquals(first.exitCode(), second.exitCode(), "Cached execution should return the stored exit code");
+            assertNull(spawned.get(), "Cached execution should not spawn a process");
+
+            assertEquals(2, outputs.size(), "Output should be delivered for both executions");
+            assertEquals(outputs.get(0), outputs.get(1), "Cached execution should replay the captured stdout");
+
+            // Captures must update the group parameters on every run, so they bypass the cache
+            metadata.setCaptureToParameters(Map.of("lastRun", "."));
+            assertTrue(command.executeAsync().get(10, TimeUnit.SECONDS).success());
+            assertNotNull(spawned.get(), "A command with captures should always spawn");
+            assertNotEquals(outputs.get(0), outputs.get(2), "A command with captures should not be replayed");
+
+            System.out.println("✓ Successfully verified cache replay of: " + outputs.get(0));
+        } finally {
+            TerminalResultCache.invalidate(metadata);
+        }
+    }
+
+    @Test
+    void testTerminalCommand_resultCache_cancelledFollowerDetachesFromLeader() throws Exception {
+        System.out.println("Testing cancellation of a caller waiting on a cached execution...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sleep");
+
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                "SharedSlowCommand",
+                "Slow command shared by identical callers",
+                "sleep 1; echo shared",
+                Map.of(),
+                "",
+                ""
+        );
+        metadata.setCacheTtlMs(60_000);
+
+        TerminalResultCache.invalidate(metadata);
+        try {
+            List<String> leaderOutputs = new CopyOnWriteArrayList<>();
+            CompletableFuture<CommandResult> leader =
+                    new TerminalCommand(metadata, collectingStdout(leaderOutputs)).executeAsync();
+            Thread.sleep(200);
+
+            TerminalCommand follower = new TerminalCommand(metadata, collectingStdout(new CopyOnWriteArrayList<>()));
+            CompletableFuture<CommandResult> waiting = follower.executeAsync();
+            Thread.sleep(200);
+            assertFalse(waiting.isDone(), "Follower should wait for the leader");
+
+            assertTrue(follower.cancel(), "Follower should be cancellable while it waits");
+            assertEquals(130, waiting.get(500, TimeUnit.MILLISECONDS).exitCode(),
+                    "A cancelled follower should return right away");
+            assertFalse(leader.isDone(), "Cancelling the follower must not affect the leader");
+
+            assertTrue(leader.get(10, TimeUnit.SECONDS).success(), "Leader should still complete");
+            assertEquals(List.of("shared"), leaderOutputs);
+
+            System.out.println("✓ Successfully verified follower cancellation");
+        } finally {
+            TerminalResultCache.invalidate(metadata);
+        }
+    }
+
+    @Test
+    void testTerminalCommand_stdinTextAndFile_areFedToProcess() throws Exception {
+        System.out.println("Testing terminal command stdin sources...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX tr/wc");
+
+        TerminalCommandMetadata textMetadata = new TerminalCommandMetadata(
+                "StdinTextCommand",
+                "Upper-cases inline stdin",
+                "tr a-z A-Z",
+                Map.of(),
+                "",
+                ""
+        );
+        textMetadata.setStdinText("hello from stdin\n");
+
+        List<String> textOutput = new CopyOnWriteArrayList<>();
+        CommandResult textResult = new TerminalCommand(textMetadata, collectingStdout(textOutput))
+                .executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(textResult.success(), "Command with inline stdin should be successful");
+        assertEquals(List.of("HELLO FROM STDIN"), textOutput, "Inline stdin should reach the process");
+
+        Path input = Files.createTempFile("terminal-stdin", ".txt");
+        try {
+            Files.writeString(input, "a\nb\nc\n");
+            TerminalCommandMetadata fileMetadata = new TerminalCommandMetadata(
+                    "StdinFileCommand",
+                    "Counts lines of a file given on stdin",
+                    "wc -l",
+                    Map.of(),
+                    "",
+                    ""
+            );
+            fileMetadata.setStdinFile(input.toString());
+
+            List<String> fileOutput = new CopyOnWriteArrayList<>();
+            CommandResult fileResult = new TerminalCommand(fileMetadata, collectingStdout(fileOutput))
+                    .executeAsync().get(10, TimeUnit.SECONDS);
+            assertTrue(fileResult.success(), "Command with file stdin should be successful");
+            assertEquals(List.of("3"), fileOutput, "File stdin should reach the process");
+        } finally {
+            Files.deleteIfExists(input);
+        }
+
+        System.out.println("✓ Successfully verified inline and file stdin");
+    }
+
+    @Test
+    void testTerminalCommand_outputPipe_feedsDownstreamStdin() throws Exception {
+        System.out.println("Testing terminal command output pipe...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX seq/wc");
+
+        TerminalOutputPipe pipe = new TerminalOutputPipe();
+        TerminalCommandMetadata upstream = new TerminalCommandMetadata(
+                "PipeUpstream", "Produces lines", "seq 1 50000", Map.of(), "", "");
+        TerminalCommandMetadata downstream = new TerminalCommandMetadata(
+                "PipeDownstream", "Counts lines", "wc -l", Map.of(), "", "");
+        downstream.setStdinSupplier(pipe::openStdin);
+
+        List<String> output = new CopyOnWriteArrayList<>();
+        CompletableFuture<CommandResult> consumer = new TerminalCommand(downstream, collectingStdout(output)).executeAsync();
+        CompletableFuture<CommandResult> producer = new TerminalCommand(upstream, pipe).executeAsync();
+
+        assertTrue(producer.get(10, TimeUnit.SECONDS).success(), "Upstream command should be successful");
+        assertTrue(consumer.get(10, TimeUnit.SECONDS).success(), "Downstream command should be successful");
+        assertEquals(List.of("50000"), output, "Downstream should have read all upstream output");
+
+        System.out.println("✓ Successfully verified piped stdin");
+    }
+
+    @Test
+    void testTerminalCommand_outputFilter_forwardsFieldsAndCapturesParameters() throws Exception {
+        System.out.println("Testing terminal command output filter...");
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX printf");
+
+        TerminalCommandMetadata metadata = new TerminalCommandMetadata(
+                "FilteredCommand",
+                "Emits JSON lines mixed with noise",
+                "printf '%s\\n' 'starting' '{\"level\":\"info\",\"ctx\":{\"id\":\"a1\"}}' "
+                        + "'{\"level\":\"debug\",\"ctx\":{\"id\":\"b2\"}}' '{\"level\":\"info\",\"ctx\":{\"id\":\"c3\"}}'",
+                Map.of(),
+                "",
+                ""
+        );
+        metadata.setOutputFilterRegex("\"level\":\"(?<level>info)\"");
+        metadata.setOutputFilterJsonFields(List.of("level", "ctx.id"));
+        metadata.setCaptureToParameters(Map.of("lastInfoId", "ctx.id", "filteredLevel", "level"));
+        metadata.setExecutionContext(Map.of("category", TEST_CATEGORY, "group", TEST_GROUP));
+
+        List<String> output = new CopyOnWriteArrayList<>();
+        CommandResult result = new TerminalCommand(metadata, collectingStdout(output))
+                .executeAsync().get(10, TimeUnit.SECONDS);
+        assertTrue(result.success(), "Command execution should be successful");
+
+        assertEquals(List.of("info\ta1\ninfo\tc3"), output, "Only matching lines should be forwarded, reduced to fields");
+        assertEquals("c3",
+                CommandRegistry.getGroupParameterFromConfig(TEST_CATEGORY, TEST_GROUP, "lastInfoId").orElse(null),
+                "Last captured JSON field should be persisted");
+        assertEquals("info",
+                CommandRegistry.getGroupParameterFromConfig(TEST_CATEGORY, TEST_GROUP, "filteredLevel").orElse(null),
+                "Named regex group should be persisted");
+
+        System.out.println("✓ Successfully verified output filter and parameter capture");
+    }
+
+    private static StreamHandler collectingStdout(List<String> outputs) {
+        return (inputStream, streamType, commandName) -> CompletableFuture.runAsync(() -> {
+            try (inputStream) {
+                String text = new String(inputStream.readAllBytes()).trim();
+                if (streamType.equals("stdout")) {
+                    outputs.add(text);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     /**
      * Helper method to get the expected log file path based on FileStreamHandler logic
      */
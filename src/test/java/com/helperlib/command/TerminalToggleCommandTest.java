@@ -4,23 +4,45 @@ import com.helperlib.api.command.CommandMetadata;
 import com.helperlib.api.command.CommandResult;
 import com.helperlib.api.command.CommandType;
 import com.helperlib.api.command.ToggleCommand;
+import com.helperlib.api.command.logging.StreamHandler;
+import com.helperlib.command.terminaltoggle.ReadinessProbeType;
+import com.helperlib.command.terminaltoggle.RestartPolicy;
 import com.helperlib.command.terminaltoggle.TerminalToggleCommand;
 import com.helperlib.command.terminaltoggle.TerminalToggleCommandFactory;
 import com.helperlib.command.terminaltoggle.TerminalToggleCommandMetadata;
+import com.helperlib.command.terminaltoggle.ToggleCommandRegistry;
+import com.helperlib.command.terminaltoggle.ToggleProcessStateStore;
+import com.helperlib.command.toggle.ToggleState;
 import com.helperlib.core.command.CommandRegistry;
 import com.helperlib.core.command.logging.FileStreamHandler;
+import com.helperlib.core.command.logging.NoOpStreamHandler;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class TerminalToggleCommandTest {
@@ -236,6 +258,488 @@ public class TerminalToggleCommandTest {
         System.out.println("✓ Successfully tested simple terminal toggle command");
     }
 
+    @Test
+    void testTerminalToggleCommand_publishesStateChangesOnProcessExit() throws InterruptedException {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        // The background child keeps stdout open after the main process exits
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "StateEvents",
+                "Exits while a child still holds its output",
+                CommandType.TERMINAL_TOGGLE,
+                "sleep 0.5; sleep 3 &",
+                "echo Toggled",
+                Map.of(),
+                "",
+                ""
+        );
+        TerminalToggleCommand command = (TerminalToggleCommand) ToggleCommandRegistry.getOrCreateCommand(
+                "state-events", () -> new TerminalToggleCommand(metadata, new NoOpStreamHandler()));
+
+        List<ToggleState> states = new CopyOnWriteArrayList<>();
+        CountDownLatch stopped = new CountDownLatch(1);
+        command.addStateListener((name, previous, current) -> {
+            states.add(current);
+            if (current == ToggleState.STOPPED) {
+                stopped.countDown();
+            }
+        });
+
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        assertTrue(stopped.await(2, TimeUnit.SECONDS), "STOPPED should be published when the process exits");
+        assertEquals(List.of(ToggleState.STARTING, ToggleState.RUNNING, ToggleState.STOPPED), states);
+        assertEquals(ToggleState.STOPPED, command.getState());
+        assertFalse(command.isRunning(), "Exited process should not count as running");
+        assertFalse(execution.isDone(), "Event should not wait for the child's output to drain");
+
+        execution.join();
+        assertEquals(3, states.size(), "Draining the output should not publish further changes");
+    }
+
+    @Test
+    void testTerminalToggleCommand_supervisedRestartsStopAtCrashLoop() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "CrashingServer", "Always fails", CommandType.TERMINAL_TOGGLE,
+                "exit 3", "echo Toggled", Map.of(), "", "");
+        metadata.setRestartPolicy(RestartPolicy.ON_FAILURE);
+        metadata.setRestartInitialBackoffMs(20);
+        metadata.setRestartMaxBackoffMs(100);
+        metadata.setMaxRestartsInWindow(3);
+        metadata.setRestartWindowMs(10_000);
+
+        List<String> supervisorEvents = new CopyOnWriteArrayList<>();
+        List<ToggleState> states = new CopyOnWriteArrayList<>();
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, collecting("supervisor", supervisorEvents));
+        command.addStateListener((name, previous, current) -> states.add(current));
+
+        CommandResult result = command.executeAsync().join();
+
+        assertEquals(3, result.exitCode(), "Result should carry the last exit code");
+        assertEquals(4, states.stream().filter(s -> s == ToggleState.STARTING).count(), "One start plus three restarts");
+        assertTrue(states.contains(ToggleState.RESTARTING), "Backoff should be published as RESTARTING");
+        assertEquals(ToggleState.STOPPED, command.getState());
+        assertEquals(4, supervisorEvents.size(), "Three restart events and the crash-loop report: " + supervisorEvents);
+        assertTrue(supervisorEvents.getLast().startsWith("Crash loop detected"), supervisorEvents.getLast());
+    }
+
+    @Test
+    void testTerminalToggleCommand_toggleWinsOverPendingRestart() throws InterruptedException {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "FlakyServer", "Exits right away", CommandType.TERMINAL_TOGGLE,
+                "exit 1", "echo Stopping", Map.of(), "", "");
+        metadata.setRestartPolicy(RestartPolicy.ALWAYS);
+        metadata.setRestartInitialBackoffMs(5_000);
+
+        List<ToggleState> states = new CopyOnWriteArrayList<>();
+        CountDownLatch restarting = new CountDownLatch(1);
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+        command.addStateListener((name, previous, current) -> {
+            states.add(current);
+            if (current == ToggleState.RESTARTING) {
+                restarting.countDown();
+            }
+        });
+
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        assertTrue(restarting.await(2, TimeUnit.SECONDS), "Exit should lead to a pending restart");
+
+        long stopRequested = System.currentTimeMillis();
+        command.toggleAsync().join();
+        CommandResult result = execution.join();
+
+        assertTrue(System.currentTimeMillis() - stopRequested < 2_000, "Stop should cut the backoff short");
+        assertEquals(1, result.exitCode());
+        assertEquals(1, states.stream().filter(s -> s == ToggleState.STARTING).count(), "No restart after the stop");
+        assertEquals(ToggleState.STOPPED, command.getState());
+    }
+
+    @Test
+    void testTerminalToggleCommand_readyFutureFollowsOutputProbe() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "LoggingServer", "Announces readiness", CommandType.TERMINAL_TOGGLE,
+                "echo booting; sleep 0.3; echo 'Listening on port 8080'; sleep 1", "echo Stopping", Map.of(), "", "");
+        metadata.setReadinessProbe(ReadinessProbeType.OUTPUT_REGEX);
+        metadata.setReadinessTarget("Listening on port \\d+");
+
+        List<String> output = new CopyOnWriteArrayList<>();
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, collecting("stdout", output));
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+
+        command.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+        assertFalse(execution.isDone(), "Ready should complete while the process is still running");
+        assertEquals(0, execution.join().exitCode());
+        assertEquals(List.of("booting", "Listening on port 8080"), output, "Scanning must not alter the output");
+        assertEquals(output, command.getLogTail().orElseThrow().snapshot(), "Recent output stays queryable");
+
+        // A process that exits before the probe passes fails the future instead of waiting for the timeout
+        metadata.setCommandText("echo starting; exit 2");
+        command.executeAsync();
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> command.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    void testTerminalToggleCommand_readyFutureFollowsTcpProbe() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "PortServer", "Binds a port late", CommandType.TERMINAL_TOGGLE,
+                "sleep 2", "echo Stopping", Map.of(), "", "");
+        metadata.setReadinessProbe(ReadinessProbeType.TCP);
+        metadata.setReadinessTarget("127.0.0.1:" + port);
+        metadata.setReadinessIntervalMs(20);
+
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        CompletableFuture<Void> ready = command.getReadyFuture();
+
+        Thread.sleep(300);
+        assertFalse(ready.isDone(), "Nothing listens yet");
+        try (ServerSocket server = new ServerSocket(port)) {
+            assertTrue(server.isBound());
+            ready.orTimeout(2, TimeUnit.SECONDS).join();
+            assertFalse(execution.isDone());
+        }
+        execution.join();
+    }
+
+    @Test
+    void testTerminalToggleCommand_readyFutureFollowsHttpProbe() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        // Unavailable for the first probes, then healthy
+        AtomicInteger probes = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/health", exchange -> {
+            exchange.sendResponseHeaders(probes.incrementAndGet() <= 3 ? 503 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                    "HttpService", "Healthy after a few probes", CommandType.TERMINAL_TOGGLE,
+                    "sleep 5", "", Map.of(), "", "");
+            metadata.setReadinessProbe(ReadinessProbeType.HTTP);
+            metadata.setReadinessTarget("http://127.0.0.1:" + server.getAddress().getPort() + "/health");
+            metadata.setReadinessIntervalMs(20);
+
+            TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+            CompletableFuture<CommandResult> execution = command.executeAsync();
+            command.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+            assertTrue(probes.get() >= 4, "Ready only after a 2xx response, probed " + probes.get() + " times");
+
+            command.toggleAsync().join();
+            execution.orTimeout(10, TimeUnit.SECONDS).join();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testTerminalToggleCommand_malformedReadinessTargetFailsRightAway() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "BadProbe", "Port is not a number", CommandType.TERMINAL_TOGGLE,
+                "sleep 5", "", Map.of(), "", "");
+        metadata.setReadinessProbe(ReadinessProbeType.TCP);
+        metadata.setReadinessTarget("127.0.0.1:http");
+
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> command.getReadyFuture().orTimeout(2, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause(), failure.toString());
+
+        command.toggleAsync().join();
+        execution.orTimeout(10, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void testTerminalToggleCommand_builtInStopTerminatesProcessTree() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX signals");
+
+        // No toggle command: the toggle stops the shell and the children it spawned.
+        // Ready once the children exist, so they are part of the tree the stop sees
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "ShellTree", "Shell with children", CommandType.TERMINAL_TOGGLE,
+                "sleep 30 & sleep 30 & echo started; wait", "", Map.of(), "", "");
+        metadata.setReadinessProbe(ReadinessProbeType.OUTPUT_REGEX);
+        metadata.setReadinessTarget("started");
+        List<String> stopEvents = new CopyOnWriteArrayList<>();
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, collecting("stop", stopEvents));
+
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        command.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+        CommandResult stop = command.toggleAsync().join();
+
+        assertTrue(stop.success(), "Built-in stop should succeed");
+        assertTrue(stop.executionTimeMs() < 2_000, "SIGTERM should stop the tree without waiting out the grace period");
+        assertTrue(stopEvents.getFirst().contains("exited within"), stopEvents.toString());
+        execution.orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(ToggleState.STOPPED, command.getState());
+
+        // A child ignoring SIGTERM is killed once the grace period is over
+        metadata.setCommandText("sh -c \"trap '' TERM; echo started; while true; do sleep 0.1; done\"");
+        metadata.setStopGracePeriodMs(300);
+        stopEvents.clear();
+        execution = command.executeAsync();
+        command.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+        stop = command.toggleAsync().join();
+
+        assertTrue(stop.success());
+        assertTrue(stop.executionTimeMs() >= 300, "Escalation should wait for the grace period");
+        assertTrue(stopEvents.getFirst().contains("killed after the 300 ms grace period"), stopEvents.toString());
+        execution.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void testTerminalToggleCommand_socketActivationStartsOnDemand(@TempDir Path workDirectory) throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        // Echo server run from source with the test's own JVM
+        Files.writeString(workDirectory.resolve("Echo.java"), """
+                public class Echo {
+                    public static void main(String[] args) throws Exception {
+                        try (var server = new java.net.ServerSocket(Integer.parseInt(args[0]))) {
+                            System.out.println("ready");
+                            while (true) {
+                                var client = server.accept();
+                                Thread.startVirtualThread(() -> {
+                                    try (client) {
+                                        client.getInputStream().transferTo(client.getOutputStream());
+                                    } catch (Exception ignored) {
+                                    }
+                                });
+                            }
+                        }
+                    }
+                }
+                """);
+        String java = ProcessHandle.current().info().command().orElseThrow();
+        int listenPort = freePort();
+        int backendPort = freePort();
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "OnDemandEcho", "Started by its first connection", CommandType.TERMINAL_TOGGLE,
+                "exec '" + java + "' Echo.java " + backendPort, "", Map.of(), workDirectory.toString(), "");
+        metadata.setActivationAddress("127.0.0.1:" + listenPort);
+        metadata.setActivationBackendAddress(String.valueOf(backendPort));
+        metadata.setActivationIdleTimeoutMs(300);
+        metadata.setReadinessProbe(ReadinessProbeType.OUTPUT_REGEX);
+        metadata.setReadinessTarget("ready");
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        assertEquals(ToggleState.LISTENING, command.getState());
+        assertTrue(command.isRunning(), "A listening toggle is on");
+        command.getReadyFuture().orTimeout(1, TimeUnit.SECONDS).join();
+
+        assertEquals("first", echo(listenPort, "first"), "The first connection starts the server and is proxied");
+        awaitState(command, ToggleState.LISTENING);
+        assertTrue(command.getLogTail().orElseThrow().snapshot().stream().anyMatch(l -> l.contains("No connections")));
+
+        assertEquals("second", echo(listenPort, "second"), "The next connection starts it again");
+        assertEquals(ToggleState.RUNNING, command.getState());
+
+        assertTrue(command.toggleAsync().join().success());
+        assertTrue(execution.orTimeout(10, TimeUnit.SECONDS).join().success());
+        assertEquals(ToggleState.STOPPED, command.getState());
+        assertThrows(IOException.class, () -> echo(listenPort, "closed"), "The listener is closed");
+    }
+
+    @Test
+    void testTerminalToggleCommand_socketActivationWaitsForReadinessProbe(@TempDir Path workDirectory) throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        // Accepts right away but only reports ready later; connections before that are answered "cold:"
+        Files.writeString(workDirectory.resolve("Warming.java"), """
+                public class Warming {
+                    static volatile boolean ready;
+
+                    public static void main(String[] args) throws Exception {
+                        try (var server = new java.net.ServerSocket(Integer.parseInt(args[0]))) {
+                            Thread.startVirtualThread(() -> {
+                                try {
+                                    Thread.sleep(1000);
+                                } catch (InterruptedException ignored) {
+                                }
+                                ready = true;
+                                System.out.println("ready");
+                            });
+                            while (true) {
+                                var client = server.accept();
+                                Thread.startVirtualThread(() -> {
+                                    try (client) {
+                                        if (!ready) {
+                                            client.getOutputStream().write("cold:".getBytes());
+                                        }
+                                        client.getInputStream().transferTo(client.getOutputStream());
+                                    } catch (Exception ignored) {
+                                    }
+                                });
+                            }
+                        }
+                    }
+                }
+                """);
+        String java = ProcessHandle.current().info().command().orElseThrow();
+        int listenPort = freePort();
+        int backendPort = freePort();
+
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "WarmingEcho", "Slow to become ready", CommandType.TERMINAL_TOGGLE,
+                "exec '" + java + "' Warming.java " + backendPort, "", Map.of(), workDirectory.toString(), "");
+        metadata.setActivationAddress("127.0.0.1:" + listenPort);
+        metadata.setActivationBackendAddress(String.valueOf(backendPort));
+        metadata.setReadinessProbe(ReadinessProbeType.OUTPUT_REGEX);
+        metadata.setReadinessTarget("^ready$");
+        TerminalToggleCommand command = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+
+        CompletableFuture<CommandResult> execution = command.executeAsync();
+        try {
+            assertEquals("hello", echo(listenPort, "hello"),
+                    "The first connection should wait for the readiness probe, not just the backend port");
+        } finally {
+            command.toggleAsync().join();
+            execution.orTimeout(10, TimeUnit.SECONDS).join();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    private static String echo(int port, String message) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(20_000);
+            socket.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void awaitState(TerminalToggleCommand command, ToggleState expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (command.getState() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, command.getState());
+    }
+
+    @Test
+    void testTerminalToggleCommand_reattachesToRecordedProcess(@TempDir Path stateDirectory) throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        ToggleProcessStateStore.setDirectory(stateDirectory);
+        try {
+            // Output piped to this JVM would break once it exits, so such a process is never recorded
+            TerminalToggleCommandMetadata piped = new TerminalToggleCommandMetadata(
+                    "PipedService", "Writes to its stdout pipe", CommandType.TERMINAL_TOGGLE,
+                    "sleep 30", "", Map.of(), "", "");
+            TerminalToggleCommand pipedCommand = new TerminalToggleCommand(piped, new NoOpStreamHandler());
+            CompletableFuture<CommandResult> pipedExecution = pipedCommand.executeAsync();
+            pipedCommand.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+            assertFalse(Files.exists(stateDirectory.resolve(piped.getCommandIdentity() + ".state")),
+                    "A process writing to pipes must not be recorded");
+            assertTrue(pipedCommand.toggleAsync().join().success());
+            pipedExecution.orTimeout(5, TimeUnit.SECONDS).join();
+
+            TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                    "LongLivedService", "Outlives the application", CommandType.TERMINAL_TOGGLE,
+                    "echo started; sleep 30", "", Map.of(), "", "");
+            Path log = stateDirectory.resolve("service.log");
+            metadata.setStdoutRedirectPath(log.toString());
+            metadata.setMergeErrorStream(true);
+            assertTrue(ToggleProcessStateStore.isReattachable(metadata));
+            Path stateFile = stateDirectory.resolve(metadata.getCommandIdentity() + ".state");
+
+            TerminalToggleCommand running = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+            CompletableFuture<CommandResult> execution = running.executeAsync();
+            running.getReadyFuture().orTimeout(5, TimeUnit.SECONDS).join();
+            assertTrue(Files.exists(stateFile), "Running process should be recorded");
+            awaitFileContent(log, "started");
+
+            // Another instance in this JVM neither picks the process up on construction nor on reattach
+            TerminalToggleCommand duplicate = new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+            assertEquals(ToggleState.STOPPED, duplicate.getState());
+            assertFalse(duplicate.reattach(), "A process owned in this JVM must not be adopted twice");
+            assertFalse(duplicate.isRunning());
+
+            assertTrue(running.toggleAsync().join().success());
+            execution.orTimeout(5, TimeUnit.SECONDS).join();
+            assertFalse(Files.exists(stateFile), "Stopped process should be forgotten");
+
+            // A record left by an earlier JVM, as after an application restart
+            Process orphan = new ProcessBuilder("sleep", "30").start();
+            try {
+                Files.writeString(stateFile, "identity=" + metadata.getCommandIdentity()
+                        + "\npid=" + orphan.pid()
+                        + "\nstartedAt=" + orphan.info().startInstant().map(Instant::toEpochMilli).orElse(-1L) + "\n");
+                List<String> stopEvents = new CopyOnWriteArrayList<>();
+                TerminalToggleCommand reattached = new TerminalToggleCommand(metadata, collecting("stop", stopEvents));
+                assertEquals(ToggleState.STOPPED, reattached.getState(), "Construction has no side effects");
+                assertTrue(reattached.reattach());
+                assertTrue(reattached.isRunning());
+                assertEquals(ToggleState.RUNNING, reattached.getState());
+                assertFalse(new TerminalToggleCommand(metadata, new NoOpStreamHandler()).reattach(),
+                        "An adopted process must not be adopted again");
+                assertFalse(reattached.executeAsync().join().success(), "Must not start a duplicate");
+
+                assertTrue(reattached.toggleAsync().join().success());
+                assertEquals(1, stopEvents.size(), stopEvents.toString());
+                awaitState(reattached, ToggleState.STOPPED);
+                assertFalse(orphan.isAlive(), "The adopted process should be stopped");
+                assertFalse(Files.exists(stateFile), "Stopped process should be forgotten");
+            } finally {
+                orphan.destroyForcibly();
+            }
+
+            // A live pid that started at another time is a reused pid, not our process
+            Files.writeString(stateFile, "identity=" + metadata.getCommandIdentity()
+                    + "\npid=" + ProcessHandle.current().pid() + "\nstartedAt=1\n");
+            assertFalse(new TerminalToggleCommand(metadata, new NoOpStreamHandler()).reattach());
+            assertFalse(Files.exists(stateFile), "Stale record should be removed");
+        } finally {
+            ToggleProcessStateStore.setDirectory(null);
+        }
+    }
+
+    private static void awaitFileContent(Path file, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!(Files.exists(file) && Files.readString(file).contains(expected))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(Files.readString(file).contains(expected), "stdout should be written to " + file);
+    }
+
+    private static StreamHandler collecting(String streamType, List<String> lines) {
+        return (inputStream, type, commandName) -> CompletableFuture.runAsync(() -> {
+            try (inputStream) {
+                String text = new String(inputStream.readAllBytes());
+                if (type.equals(streamType)) {
+                    text.lines().forEach(lines::add);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     @Test
     void testTerminalToggleCommand_usingCommandRegistry() throws InterruptedException {
         System.out.println("Testing terminal toggle command through CommandRegistry...");
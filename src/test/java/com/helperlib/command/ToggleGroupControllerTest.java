@@ -0,0 +1,104 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.CommandType;
+import com.helperlib.command.terminaltoggle.ReadinessProbeType;
+import com.helperlib.command.terminaltoggle.TerminalToggleCommand;
+import com.helperlib.command.terminaltoggle.TerminalToggleCommandMetadata;
+import com.helperlib.command.toggle.ToggleGroupController;
+import com.helperlib.command.toggle.ToggleGroupItemResult;
+import com.helperlib.command.toggle.ToggleGroupItemStatus;
+import com.helperlib.command.toggle.ToggleGroupReport;
+import com.helperlib.command.toggle.ToggleState;
+import com.helperlib.core.command.logging.NoOpStreamHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class ToggleGroupControllerTest {
+
+    @Test
+    void testToggleGroup_startsDependentsAfterReadinessAndStopsConcurrently() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        TerminalToggleCommand database = service("Database", "sleep 0.4; echo ready; sleep 30");
+        TerminalToggleCommand cache = service("Cache", "echo ready; sleep 30");
+        TerminalToggleCommand api = service("Api", "echo ready; sleep 30");
+        TerminalToggleCommand broken = service("Broken", "exit 3");
+        TerminalToggleCommand worker = service("Worker", "echo ready; sleep 30");
+
+        ToggleGroupController group = new ToggleGroupController()
+                .add("database", database)
+                .add("cache", cache)
+                .add("api", api, "database", "cache")
+                .add("broken", broken)
+                .add("worker", worker, "broken");
+
+        ToggleGroupReport started = group.startAll().orTimeout(10, TimeUnit.SECONDS).join();
+        assertEquals(ToggleGroupItemStatus.READY, result(started, "database").status());
+        assertEquals(ToggleGroupItemStatus.READY, result(started, "cache").status());
+        ToggleGroupItemResult apiResult = result(started, "api");
+        assertEquals(ToggleGroupItemStatus.READY, apiResult.status());
+        assertEquals(1, apiResult.wave());
+        assertTrue(apiResult.offsetMs() >= 400, "Api must wait for the database to be ready: " + apiResult);
+        assertEquals(ToggleGroupItemStatus.FAILED, result(started, "broken").status());
+        assertEquals(ToggleGroupItemStatus.SKIPPED, result(started, "worker").status());
+        assertFalse(started.allSucceeded());
+        assertFalse(worker.isRunning(), "A skipped item must not be started");
+
+        // Independent items start in parallel, not one after another
+        assertTrue(result(started, "cache").durationMs() < 400, started.toString());
+
+        ToggleGroupReport secondStart = group.startAll().orTimeout(10, TimeUnit.SECONDS).join();
+        assertEquals(ToggleGroupItemStatus.ALREADY_RUNNING, result(secondStart, "database").status());
+        assertEquals(ToggleGroupItemStatus.FAILED, result(secondStart, "broken").status());
+        // The second start ran the broken member again; let it finish exiting before stopping the group
+        awaitState(broken, ToggleState.STOPPED);
+
+        ToggleGroupReport stopped = group.stopAll(5_000).orTimeout(10, TimeUnit.SECONDS).join();
+        assertEquals(ToggleGroupItemStatus.STOPPED, result(stopped, "database").status());
+        assertEquals(ToggleGroupItemStatus.STOPPED, result(stopped, "api").status());
+        assertEquals(ToggleGroupItemStatus.NOT_RUNNING, result(stopped, "worker").status());
+        assertEquals(ToggleGroupItemStatus.NOT_RUNNING, result(stopped, "broken").status());
+        assertTrue(stopped.allSucceeded(), stopped.toString());
+        assertEquals(ToggleState.STOPPED, api.getState());
+        assertTrue(stopped.wallClockMs() < 2_000, "Stops should run concurrently: " + stopped);
+    }
+
+    @Test
+    void testToggleGroup_rejectsUnknownDependenciesAndCycles() {
+        TerminalToggleCommand a = service("A", "sleep 1");
+        TerminalToggleCommand b = service("B", "sleep 1");
+
+        ToggleGroupController unknown = new ToggleGroupController().add("a", a, "missing");
+        assertThrows(IllegalArgumentException.class, unknown::startAll);
+
+        ToggleGroupController cycle = new ToggleGroupController().add("a", a, "b").add("b", b, "a");
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, cycle::startAll);
+        assertTrue(error.getMessage().contains("cycle"), error.getMessage());
+        assertFalse(a.isRunning());
+    }
+
+    private static TerminalToggleCommand service(String name, String commandText) {
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                name, "Group member", CommandType.TERMINAL_TOGGLE, commandText, "", Map.of(), "", "");
+        metadata.setReadinessProbe(ReadinessProbeType.OUTPUT_REGEX);
+        metadata.setReadinessTarget("ready");
+        return new TerminalToggleCommand(metadata, new NoOpStreamHandler());
+    }
+
+    private static void awaitState(TerminalToggleCommand command, ToggleState state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (command.getState() != state) {
+            assertTrue(System.nanoTime() < deadline, "Did not reach " + state + ", still " + command.getState());
+            Thread.sleep(10);
+        }
+    }
+
+    private static ToggleGroupItemResult result(ToggleGroupReport report, String id) {
+        return report.items().stream().filter(item -> item.id().equals(id)).findFirst().orElseThrow();
+    }
+}
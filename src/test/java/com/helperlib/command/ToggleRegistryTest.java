@@ -0,0 +1,136 @@
+package com.helperlib.command;
+
+import com.helperlib.api.command.CommandResult;
+import com.helperlib.api.command.CommandType;
+import com.helperlib.api.command.ToggleCommand;
+import com.helperlib.command.terminaltoggle.TerminalToggleCommand;
+import com.helperlib.command.terminaltoggle.TerminalToggleCommandMetadata;
+import com.helperlib.command.toggle.CommandIdentity;
+import com.helperlib.command.toggle.ToggleRegistry;
+import com.helperlib.command.toggle.ToggleRegistryStatistics;
+import com.helperlib.core.command.logging.NoOpStreamHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class ToggleRegistryTest {
+
+    @Test
+    void testToggleRegistry_concurrentCallersShareOneCommand() throws Exception {
+        ToggleRegistry<String, ToggleCommand> registry = new ToggleRegistry<>();
+        AtomicInteger supplied = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+
+        List<Future<ToggleCommand>> lookups = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 64; i++) {
+                lookups.add(pool.submit(() -> {
+                    go.await();
+                    return registry.getOrCreate("db", () -> {
+                        supplied.incrementAndGet();
+                        return new StubToggle(false);
+                    });
+                }));
+            }
+            go.countDown();
+            ToggleCommand first = lookups.getFirst().get();
+            for (Future<ToggleCommand> lookup : lookups) {
+                assertSame(first, lookup.get());
+            }
+        }
+
+        assertEquals(1, supplied.get(), "The supplier must run once per id");
+        ToggleRegistryStatistics stats = registry.getStatistics();
+        assertEquals(1, stats.totalCreated());
+        assertEquals(63, stats.totalReused());
+        registry.shutdown();
+        assertThrows(IllegalStateException.class, () -> registry.getOrCreate("other", () -> new StubToggle(false)));
+    }
+
+    @Test
+    void testToggleRegistry_capacityEvictsLeastRecentlyUsedInactiveEntries() {
+        ToggleRegistry<String, ToggleCommand> registry = new ToggleRegistry<>(2);
+        StubToggle running = new StubToggle(true);
+        registry.getOrCreate("running", () -> running);
+        registry.getOrCreate("idle-1", () -> new StubToggle(false));
+        registry.getOrCreate("idle-2", () -> new StubToggle(false));
+
+        assertEquals(2, registry.size());
+        assertSame(running, registry.get("running"), "Active commands are never evicted");
+        assertNull(registry.get("idle-1"), "Oldest inactive entry should go first");
+        assertNotNull(registry.get("idle-2"));
+        assertEquals(1, registry.getStatistics().totalEvicted());
+        registry.shutdown();
+    }
+
+    @Test
+    void testToggleRegistry_stoppedCommandIsEvictedAndReplaced() {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"), "Uses POSIX sh");
+
+        ToggleRegistry<String, ToggleCommand> registry = new ToggleRegistry<>();
+        TerminalToggleCommandMetadata metadata = new TerminalToggleCommandMetadata(
+                "ShortLived", "Exits right away", CommandType.TERMINAL_TOGGLE,
+                "exit 0", "echo Stopping", Map.of(), "", "");
+        TerminalToggleCommand command = (TerminalToggleCommand) registry.getOrCreate(
+                "short", () -> new TerminalToggleCommand(metadata, new NoOpStreamHandler()));
+        assertSame(command, registry.getOrCreate("short", () -> fail("Not started yet, should be reused")));
+
+        command.executeAsync().join();
+
+        assertNull(registry.get("short"), "STOPPED should evict the entry");
+        assertNotSame(command, registry.getOrCreate(
+                "short", () -> new TerminalToggleCommand(metadata, new NoOpStreamHandler())));
+        registry.shutdown();
+    }
+
+    @Test
+    void testToggleRegistry_identityTellsApartCommandsWithCollidingHashes() {
+        // "Aa" and "BB" share String.hashCode(), which the old string ids relied on
+        TerminalToggleCommandMetadata first = new TerminalToggleCommandMetadata(
+                "Server", "", CommandType.TERMINAL_TOGGLE, "run Aa", "stop", Map.of("a", "1", "b", "2"), "", "");
+        TerminalToggleCommandMetadata second = new TerminalToggleCommandMetadata(
+                "Server", "", CommandType.TERMINAL_TOGGLE, "run BB", "stop", Map.of("b", "2", "a", "1"), "", "");
+        assertEquals(first.getCommandText().hashCode(), second.getCommandText().hashCode());
+        assertNotEquals(first.getCommandIdentity(), second.getCommandIdentity());
+        assertSame(first.getCommandIdentity(), first.getCommandIdentity(), "Identity should be cached");
+
+        second.setCommandText("run Aa");
+        assertEquals(first.getCommandIdentity(), second.getCommandIdentity(),
+                "Setters reset the cached identity; argument order does not matter");
+
+        // Stdin, stdout, stderr and filter options decide what the process does, so they are part of the identity
+        second.setStdinText("input");
+        assertNotEquals(first.getCommandIdentity(), second.getCommandIdentity());
+        first.setStdinText("input");
+        first.setMergeErrorStream(true);
+        assertNotEquals(first.getCommandIdentity(), second.getCommandIdentity());
+        second.copyExecutionOptionsFrom(first);
+        assertEquals(first.getCommandIdentity(), second.getCommandIdentity());
+        first.setStdoutRedirectPath("/tmp/service.log");
+        assertNotEquals(first.getCommandIdentity(), second.getCommandIdentity());
+
+        // Field boundaries are part of the digest
+        assertNotEquals(CommandIdentity.builder().add("ab").add("c").build(),
+                CommandIdentity.builder().add("a").add("bc").build());
+        assertNotEquals(CommandIdentity.builder().add((String) null).build(),
+                CommandIdentity.builder().add("").build());
+    }
+
+    private record StubToggle(boolean isRunning) implements ToggleCommand {
+        @Override
+        public CompletableFuture<CommandResult> toggleAsync() {
+            return CompletableFuture.completedFuture(new CommandResult(true, 0, 0));
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.helperlib.command;
 
 import com.helperlib.api.command.CommandResult;
+import com.helperlib.command.ssh.SshSessionPool;
 import com.helperlib.command.tunneltoggle.TunnelAuthType;
 import com.helperlib.command.tunneltoggle.TunnelToggleCommand;
 import com.helperlib.command.tunneltoggle.TunnelToggleCommandMetadata;
+import com.helperlib.command.toggle.ToggleState;
 
 import com.sun.net.httpserver.HttpServer;
 import org.apache.sshd.server.SshServer;
@@ -30,8 +32,11 @@ import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,9 +70,12 @@ public class TunnelToggleCommandTest {
         sshd.setPort(0); // random free port
 
         var hostKeyPath = Files.createTempFile("hostkey", ".ser");
+        Files.delete(hostKeyPath);
         var hostKeyProvider = new SimpleGeneratorHostKeyProvider(hostKeyPath);
         // Optional: choose algorithm explicitly (RSA is broadly compatible)
         hostKeyProvider.setAlgorithm("RSA");
+        // Generate now; generating during the first handshake can outlast the client and reset it
+        hostKeyProvider.loadKeys(null);
         sshd.setKeyPairProvider(hostKeyProvider);
 
         sshd.setPasswordAuthenticator((username, password, session) ->
@@ -79,6 +87,7 @@ public class TunnelToggleCommandTest {
 
     @AfterEach
     void tearDown() throws IOException {
+        SshSessionPool.closeAll();
         if (backendHttpServer != null) {
             backendHttpServer.stop(0);
         }
@@ -140,6 +149,10 @@ public class TunnelToggleCommandTest {
         // Ensure tunnel is no longer reachable
         Optional<String> afterStop = httpGetOptional(url, Duration.ofMillis(500));
         assertTrue(afterStop.isEmpty(), "Tunnel should be closed and not accept connections");
+
+        List<String> events = command.getEventTail().snapshot();
+        assertTrue(events.getFirst().contains("Tunnel established"), events.toString());
+        assertTrue(events.getLast().endsWith("Tunnel closed"), events.toString());
     }
 
     @Test
@@ -206,11 +219,98 @@ public class TunnelToggleCommandTest {
         Optional<String> afterStop = httpGetOptional(url, Duration.ofMillis(500));
         assertTrue(afterStop.isEmpty(), "Tunnel should be closed and not accept connections");
 
+        List<String> events = command.getEventTail().snapshot();
+        assertTrue(events.getFirst().contains("Tunnel established"), events.toString());
+        assertTrue(events.getLast().endsWith("Tunnel closed"), events.toString());
+
         // Clean up
         Files.deleteIfExists(privateKeyPath);
     }
 
 
+    @Test
+    void testTunnelToggleCommand_tunnelsShareOneSession() throws Exception {
+        int firstPort = findFreePort();
+        int secondPort = findFreePort();
+        TunnelToggleCommand first = new TunnelToggleCommand(passwordTunnel("FirstTunnel", firstPort));
+        TunnelToggleCommand second = new TunnelToggleCommand(passwordTunnel("SecondTunnel", secondPort));
+        long handshakesBefore = SshSessionPool.getHandshakeCount();
+
+        CompletableFuture<CommandResult> firstRun = first.executeAsync();
+        waitUntilTrue(first::isRunning, 3000, "First tunnel did not start in time");
+        CompletableFuture<CommandResult> secondRun = second.executeAsync();
+        waitUntilTrue(second::isRunning, 3000, "Second tunnel did not start in time");
+
+        assertEquals(1, SshSessionPool.getHandshakeCount() - handshakesBefore, "Tunnels should share one handshake");
+        assertEquals(1, sshd.getActiveSessions().size(), "Tunnels should share one SSH connection");
+        assertEquals("pong", httpGet("http://127.0.0.1:" + firstPort + "/ping", Duration.ofSeconds(2)));
+        assertEquals("pong", httpGet("http://127.0.0.1:" + secondPort + "/ping", Duration.ofSeconds(2)));
+
+        // Stopping one tunnel removes only its forward
+        assertTrue(first.toggleAsync().join().success());
+        assertTrue(firstRun.join().success());
+        assertTrue(httpGetOptional("http://127.0.0.1:" + firstPort + "/ping", Duration.ofMillis(500)).isEmpty(),
+                "Stopped tunnel should not accept connections");
+        assertEquals("pong", httpGet("http://127.0.0.1:" + secondPort + "/ping", Duration.ofSeconds(2)));
+
+        assertTrue(second.toggleAsync().join().success());
+        assertTrue(secondRun.join().success());
+    }
+
+    @Test
+    void testTunnelToggleCommand_reconnectsAfterSessionLoss() throws Exception {
+        int localPort = findFreePort();
+        TunnelToggleCommandMetadata meta = passwordTunnel("ReconnectingTunnel", localPort);
+        meta.setReconnectInitialBackoffMs(100);
+        TunnelToggleCommand command = new TunnelToggleCommand(meta);
+        List<ToggleState> states = new CopyOnWriteArrayList<>();
+        command.addStateListener((name, previous, current) -> states.add(current));
+
+        CompletableFuture<CommandResult> runFuture = command.executeAsync();
+        waitUntilTrue(command::isRunning, 3000, "Tunnel did not start in time");
+        String url = "http://127.0.0.1:" + localPort + "/ping";
+        assertEquals("pong", httpGet(url, Duration.ofSeconds(2)));
+
+        // Server drops the connection, like a VPN link going away
+        sshd.getActiveSessions().forEach(session -> session.close(true));
+        waitUntilTrue(() -> states.contains(ToggleState.RESTARTING) && command.isRunning(), 5000,
+                "Tunnel did not reconnect in time");
+        assertEquals("pong", httpGet(url, Duration.ofSeconds(2)), "Forward should be re-established");
+        assertEquals(List.of(ToggleState.STARTING, ToggleState.RUNNING, ToggleState.RESTARTING, ToggleState.RUNNING),
+                states);
+        List<String> events = command.getEventTail().snapshot();
+        assertTrue(events.stream().anyMatch(e -> e.endsWith("Tunnel session lost")), events.toString());
+        assertTrue(events.getLast().contains("Tunnel re-established"), events.toString());
+
+        assertTrue(command.toggleAsync().join().success());
+        assertTrue(runFuture.join().success());
+        assertEquals(ToggleState.STOPPED, command.getState());
+    }
+
+    @Test
+    void testTunnelToggleCommand_givesUpAfterMaxReconnectAttempts() throws Exception {
+        TunnelToggleCommandMetadata meta = passwordTunnel("GivingUpTunnel", findFreePort());
+        meta.setReconnectInitialBackoffMs(50);
+        meta.setReconnectMaxAttempts(2);
+        meta.setConnectTimeoutMs(1_000);
+        TunnelToggleCommand command = new TunnelToggleCommand(meta);
+
+        CompletableFuture<CommandResult> runFuture = command.executeAsync();
+        waitUntilTrue(command::isRunning, 3000, "Tunnel did not start in time");
+        sshd.stop(true);
+
+        CommandResult result = runFuture.get(10, TimeUnit.SECONDS);
+        assertFalse(result.success(), "A tunnel that cannot be re-established ends in failure");
+        assertEquals(-1, result.exitCode());
+        assertEquals(ToggleState.STOPPED, command.getState());
+        List<String> events = command.getEventTail().snapshot();
+        long failedAttempts = events.stream()
+                .filter(e -> e.contains("reconnect attempt") && e.contains("failed"))
+                .count();
+        assertEquals(2, failedAttempts, events.toString());
+        assertTrue(events.stream().anyMatch(e -> e.contains("giving up after 2 reconnect attempt(s)")), events.toString());
+    }
+
     @Test
     void testTunnelToggleCommand_negative_invalidCredentials() {
         int localPort = findFreePort();
@@ -246,6 +346,12 @@ public class TunnelToggleCommandTest {
 
     // Helpers
 
+    private TunnelToggleCommandMetadata passwordTunnel(String name, int localPort) {
+        return new TunnelToggleCommandMetadata(name, "SSH tunnel test - shared session", "127.0.0.1", sshPort,
+                "testuser", TunnelAuthType.PASSWORD, "testpass", null, null, false, null,
+                "127.0.0.1", localPort, "127.0.0.1", backendPort, 5_000, 5);
+    }
+
     private static int findFreePort() {
         try (ServerSocket socket = new ServerSocket(0)) {
             socket.setReuseAddress(true);